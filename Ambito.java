@@ -0,0 +1,69 @@
+import java.util.Arrays;
+
+/*
+ * Esta clase representa un ámbito de la tabla de símbolos. Cada ámbito
+ * guarda sus propios símbolos en un arreglo indexado por el identificador
+ * del lexema en el PoolLexemas del programa, de modo que buscar un
+ * identificador es leer una casilla, sin calcular el hash del lexema.
+ * Los ámbitos están encadenados a su ámbito padre: una búsqueda revisa
+ * primero el ámbito actual y después los ámbitos que lo contienen
+ */
+
+public class Ambito {
+
+    private final String    nombre;
+    private final Ambito    padre;
+    private Simbolo[]       simbolos = new Simbolo[16];
+
+    public Ambito(String nombre, Ambito padre) {
+        this.nombre = nombre;
+        this.padre = padre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Ambito getPadre() {
+        return padre;
+    }
+
+    /**
+     * Busca un símbolo en este ámbito y en los ámbitos que lo contienen
+     * 
+     * @param lexemaId El identificador del lexema del identificador
+     * @return El símbolo encontrado, o null si no está declarado
+     */
+    public Simbolo lookup(int lexemaId) {
+
+        for(Ambito ambito = this; ambito != null; ambito = ambito.padre){
+            Simbolo simbolo = ambito.lookupLocal(lexemaId);
+            if(simbolo != null){
+                return simbolo;
+            }
+        }
+        return null;
+
+    }
+
+    /**
+     * Busca un símbolo solamente en este ámbito
+     * 
+     * @param lexemaId El identificador del lexema del identificador
+     * @return El símbolo encontrado, o null si no está declarado en este ámbito
+     */
+    public Simbolo lookupLocal(int lexemaId) {
+        return lexemaId >= 0 && lexemaId < simbolos.length ? simbolos[lexemaId] : null;
+    }
+
+    public void add(Simbolo simbolo) {
+
+        int id = simbolo.getLexemaId();
+        if(id >= simbolos.length){
+            simbolos = Arrays.copyOf(simbolos, Math.max(id + 1, simbolos.length * 2));
+        }
+        simbolos[id] = simbolo;
+
+    }
+
+}
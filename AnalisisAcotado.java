@@ -0,0 +1,193 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+
+/*
+ * Esta clase analiza programas que no caben en memoria, manteniendo solo
+ * una ventana de tokens a la vez.
+ *
+ * La sección de variables se analiza en flujo con DeclaracionesEnFlujo y
+ * se conserva hasta el primer "inicio", ya que forma la tabla de símbolos.
+ * Después, los tokens del cuerpo se acumulan hasta llenar la ventana y
+ * llegar a un punto y coma. Las revisiones de un identificador nunca
+ * cruzan un punto y coma (ver AnalisisIncremental), así que la ventana se
+ * revisa como un rango del cuerpo, sus filas ya resueltas se escriben en
+ * la tabla de tokens en disco y se descartan de la memoria.
+ *
+ * Los lexemas que aparecen solo en el cuerpo también se descartan del
+ * PoolLexemas al vaciar la ventana; los de la sección de variables, que
+ * son los que la tabla de símbolos necesita, conservan su identificador.
+ * La memoria usada depende entonces del tamaño de la sección de variables
+ * y de la ventana, pero no del tamaño del cuerpo.
+ *
+ * Los diagnósticos y las tablas son los mismos que los del análisis
+ * completo, salvo los saltos de la tabla de direcciones: el código
+ * intermedio necesita el cuerpo completo, así que aquí no se genera. Solo
+ * se escriben tablas en formato de texto.
+ */
+
+public class AnalisisAcotado implements LectorTokens.ConsumidorTokens {
+
+    public static final int DEFAULT_WINDOW_TOKENS = 1 << 16;
+
+    private final AnalizadorSemantico   session;
+    private final TablaTokens           window;
+    private final DeclaracionesEnFlujo  declarations;
+    private final int                   windowTokens;
+    private final EscritorTablas        spill;
+
+    // Índice en el programa completo de la primera fila de la ventana
+    private int                         windowBase = 0;
+    private Ambito                      bodyScope;
+    private int                         declaredLexemas;
+
+    private AnalisisAcotado(int windowTokens, EscritorTablas spill) {
+
+        this.window = new TablaTokens(windowTokens + 64);
+        this.session = new AnalizadorSemantico(window);
+        this.declarations = new DeclaracionesEnFlujo(session);
+        this.windowTokens = windowTokens;
+        this.spill = spill;
+
+    }
+
+    /**
+     * Analiza un archivo de tokens con una ventana acotada y escribe sus
+     * tablas. Si el programa tiene errores semánticos, no se escribe
+     * ninguna tabla
+     *
+     * @param tokensFile El archivo de tokens
+     * @param tablesDir El directorio de tablas
+     * @param windowTokens La cantidad mínima de tokens que se revisan juntos
+     * @return Los diagnósticos del programa
+     */
+    public static Diagnosticos analyze(File tokensFile, File tablesDir, int windowTokens) throws IOException {
+
+        tablesDir.mkdirs();
+        File tokensTable = new File(tablesDir, "tokensTable.txt");
+        File spillFile = new File(tablesDir, "tokensTable.txt.tmp");
+
+        AnalisisAcotado analysis;
+        try(EscritorTablas spill = new EscritorTablas(spillFile)){
+            analysis = new AnalisisAcotado(windowTokens, spill);
+            LectorTokens.read(tokensFile, analysis);
+            analysis.finish();
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(spillFile.toPath());
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spillFile.toPath());
+            throw e;
+        }
+
+        Diagnosticos diagnostics = analysis.session.getDiagnostics();
+        if(!diagnostics.isEmpty()){
+            Files.deleteIfExists(spillFile.toPath());
+            return diagnostics;
+        }
+
+        Files.move(spillFile.toPath(), tokensTable.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        TablaSimbolos symbols = analysis.session.getSymbols();
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "symbolTable.txt"))){
+            out.writeSymbolsTable(symbols);
+        }
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "addressesTable.txt"))){
+            out.writeAddressesTable(symbols);
+        }
+
+        return diagnostics;
+
+    }
+
+    @Override
+    public void accept(int token, byte[] buffer, int lexemaOffset, int lexemaLength, int posicionTabla, int numLinea) {
+
+        declarations.accept(token, buffer, lexemaOffset, lexemaLength, posicionTabla, numLinea);
+
+        if(bodyScope == null){
+            if(declarations.isFinished()){
+                beginBody();
+            }
+        } else if(token == Sintaxis.PUNTOCOMA && window.size() >= windowTokens){
+            checkWindow();
+        }
+
+    }
+
+    /**
+     * Termina el análisis al terminar la lectura: revisa el resto de la
+     * ventana y cierra el ámbito del programa
+     */
+    private void finish() throws IOException {
+
+        declarations.finish();
+        if(bodyScope == null){
+            beginBody();
+        }
+        checkWindow();
+        session.getSymbols().exitScope();
+
+    }
+
+    /**
+     * Pasa de la sección de variables al cuerpo: las filas de las
+     * declaraciones ya tienen su posición, así que se escriben y la
+     * ventana empieza en el "inicio"
+     */
+    private void beginBody() {
+
+        bodyScope = session.getSymbols().getCurrentScope();
+        declaredLexemas = window.getPool().size();
+        discard(session.getBodyStart());
+
+    }
+
+    /**
+     * Revisa los estatutos de la ventana y la vacía
+     */
+    private void checkWindow() {
+
+        Diagnosticos windowDiagnostics = new Diagnosticos();
+        ArbolPrograma range = ConstructorArbol.buildRange(window, 0, window.size());
+        new VerificadorTipos(range, bodyScope).check(range.getRoot(), windowDiagnostics);
+
+        // Los índices de la ventana se traducen a índices del programa
+        Diagnosticos diagnostics = session.getDiagnostics();
+        for(Diagnostico diagnostic : windowDiagnostics.getDiagnosticos()){
+            diagnostics.add(new Diagnostico(
+                diagnostic.getTipo(), diagnostic.getLexema(), diagnostic.getNumLinea(),
+                windowBase + diagnostic.getIndiceToken(), diagnostic.getMensaje()
+            ));
+        }
+
+        discard(window.size());
+
+        // Con la ventana vacía ya nadie usa los lexemas propios del cuerpo
+        if(window.getPool().size() - declaredLexemas > windowTokens){
+            window.getPool().truncate(declaredLexemas);
+        }
+
+    }
+
+    /**
+     * Escribe las primeras filas de la ventana en la tabla de tokens y las
+     * quita de la ventana
+     */
+    private void discard(int count) {
+
+        try {
+            spill.writeTokensTable(window, 0, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        window.replace(0, count, Collections.emptyList());
+        windowBase += count;
+
+    }
+
+}
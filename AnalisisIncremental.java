@@ -0,0 +1,135 @@
+import java.util.List;
+
+/*
+ * Esta clase mantiene el análisis de un programa que se edita, de modo
+ * que cada edición solo revise de nuevo los estatutos afectados.
+ *
+ * Una edición reemplaza un rango de tokens (o de líneas) por tokens
+ * nuevos. Si la edición toca la sección de variables, el programa se
+ * analiza completo otra vez, ya que cambia la tabla de símbolos. Si solo
+ * toca el cuerpo, se revisan los estatutos entre el punto y coma anterior
+ * a la edición y el punto y coma siguiente, o hasta el final del último
+ * estatuto que empieza ahí si termina después, y las tablas de tokens,
+ * símbolos y los diagnósticos se actualizan en el lugar. Una edición mueve
+ * las direcciones de todo el código que le sigue, así que los saltos de la
+ * tabla de direcciones se descartan y se generan de nuevo solo cuando se
+ * pide la tabla.
+ */
+
+public class AnalisisIncremental {
+
+    private TablaTokens         tokens;
+    private AnalizadorSemantico session;
+    private ResultadoAnalisis   result;
+    private int                 fullAnalysisCount = 0;
+
+    public AnalisisIncremental(TablaTokens tokens) {
+        this.tokens = tokens;
+        analyzeFully();
+    }
+
+    public ResultadoAnalisis getResult() {
+        return result;
+    }
+
+    /**
+     * @return Cuántas veces se ha analizado el programa completo
+     */
+    public int getFullAnalysisCount() {
+        return fullAnalysisCount;
+    }
+
+    /**
+     * Reemplaza las líneas [firstLine, lastLine] del programa por los tokens
+     * dados, que ocupan newLineCount líneas. Las líneas de los tokens
+     * posteriores se recorren según el cambio en la cantidad de líneas
+     * 
+     * @param firstLine La primera línea reemplazada
+     * @param lastLine La última línea reemplazada
+     * @param newLineCount La cantidad de líneas que ocupa el texto nuevo
+     * @param replacement Los tokens de las líneas nuevas
+     * @return El resultado actualizado del análisis
+     */
+    public ResultadoAnalisis replaceLines(int firstLine, int lastLine, int newLineCount, List<Token> replacement) {
+
+        int from = tokens.findFirstTokenAtLine(firstLine);
+        int to = tokens.findFirstTokenAtLine(lastLine + 1);
+        int lineDelta = newLineCount - (lastLine - firstLine + 1);
+
+        return replaceTokens(from, to, replacement, lineDelta);
+
+    }
+
+    /**
+     * Reemplaza los tokens [from, to) por los tokens dados
+     * 
+     * @param from El índice del primer token reemplazado
+     * @param to El índice siguiente al último token reemplazado
+     * @param replacement Los tokens nuevos
+     * @param lineDelta El cambio en la cantidad de líneas, que se suma a los tokens posteriores
+     * @return El resultado actualizado del análisis
+     */
+    public ResultadoAnalisis replaceTokens(int from, int to, List<Token> replacement, int lineDelta) {
+
+        int bodyStart = session.getBodyStart();
+        int delta = replacement.size() - (to - from);
+
+        tokens.replace(from, to, replacement);
+        tokens.shiftLines(from + replacement.size(), lineDelta);
+
+        // Una edición en la sección de variables (o en el "inicio" que la
+        // termina) cambia la tabla de símbolos, así que se analiza todo
+        if(from <= bodyStart || containsToken(replacement, Sintaxis.GENERAL_ID)){
+            analyzeFully();
+            return result;
+        }
+
+        // Los estatutos afectados van del punto y coma anterior a la edición
+        // al punto y coma siguiente. Las revisiones de un identificador nunca
+        // cruzan un punto y coma, así que el resto no cambia
+        int checkFrom = from;
+        while(checkFrom > bodyStart && tokens.getToken(checkFrom - 1) != Sintaxis.PUNTOCOMA){
+            checkFrom--;
+        }
+
+        int newTo = to + delta;
+        int checkTo = newTo;
+        while(checkTo < tokens.size() && tokens.getToken(checkTo) != Sintaxis.PUNTOCOMA){
+            checkTo++;
+        }
+        if(checkTo < tokens.size()){
+            checkTo++;
+        }
+
+        // Un estatuto que empieza en el rango puede terminar después, como un
+        // repetir cuyo "hasta" sigue al punto y coma editado. Sus
+        // diagnósticos se reemplazan hasta donde se leyó
+        Diagnosticos rangeDiagnostics = new Diagnosticos();
+        checkTo = session.checkBodyRange(checkFrom, checkTo, rangeDiagnostics);
+
+        result.getDiagnostics().replaceRange(checkFrom, checkTo - delta, delta, lineDelta, rangeDiagnostics);
+
+        return result;
+
+    }
+
+    private void analyzeFully() {
+
+        session = new AnalizadorSemantico(tokens);
+        result = session.analyze();
+        fullAnalysisCount++;
+
+    }
+
+    private static boolean containsToken(List<Token> replacement, int token) {
+
+        for(Token candidate : replacement){
+            if(candidate.getToken() == token){
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+}
@@ -0,0 +1,336 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Esta clase analiza en paralelo un conjunto de archivos de tokens,
+ * dado como un directorio o un patrón glob, usando un pool de hilos
+ * con robo de trabajo. Cada archivo recibe su propio directorio de
+ * tablas y al final se imprime un resumen de la ejecución. Los archivos
+ * con el mismo contenido se analizan una sola vez.
+ *
+ * Con --tuberia, los archivos pasan por una TuberiaAnalisis en lugar de
+ * repartirse entre los hilos del pool. Con --metricas, se miden las fases
+ * de todos los archivos y el reporte se escribe en formato JSON.
+ *
+ * Uso: AnalisisPorLotes [--tuberia] [--metricas reporte.json] <directorio|patrón> [directorio de salida] [hilos]
+ */
+
+public class AnalisisPorLotes {
+
+    private final Path              baseDir;
+    private final List<Path>        inputs;
+    private final File              outputDir;
+    private final int               threads;
+    private boolean                 pipelined = false;
+    private MetricasAnalisis        metrics;
+    private final CacheResultados   cache = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, null);
+
+    public AnalisisPorLotes(Path baseDir, List<Path> inputs, File outputDir, int threads) {
+        this.baseDir = baseDir;
+        this.inputs = inputs;
+        this.outputDir = outputDir;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+
+        boolean pipelined = false;
+        File metricsFile = null;
+        while(args.length > 0 && args[0].startsWith("--")){
+            if(args[0].equals("--tuberia")){
+                pipelined = true;
+            } else if(args[0].equals("--metricas") && args.length > 1){
+                metricsFile = new File(args[1]);
+                args = Arrays.copyOfRange(args, 1, args.length);
+            }
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        if(args.length < 1){
+            System.err.println("Uso: AnalisisPorLotes [--tuberia] [--metricas reporte.json] <directorio|patrón> [directorio de salida] [hilos]");
+            System.exit(2);
+        }
+
+        try {
+
+            String pattern = args[0];
+            File outputDir = new File(args.length > 1 ? args[1] : "tables");
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+            Path baseDir = getBaseDir(pattern);
+            List<Path> inputs = findInputs(baseDir, pattern, outputDir.toPath());
+
+            AnalisisPorLotes batch = new AnalisisPorLotes(baseDir, inputs, outputDir, threads);
+            batch.setPipelined(pipelined);
+            if(metricsFile != null){
+                batch.setMetrics(new MetricasAnalisis());
+            }
+            Resumen summary = batch.run();
+            System.out.println(summary);
+
+            if(metricsFile != null){
+                batch.getMetrics().writeJson(metricsFile);
+            }
+
+            if(summary.failed > 0 || summary.rejected > 0){
+                System.exit(1);
+            }
+
+        } catch (Exception e) {
+            System.err.println("Error en el análisis por lotes: " + e.getMessage());
+            System.exit(2);
+        }
+
+    }
+
+    /**
+     * Obtiene el directorio base de un patrón, es decir, la parte inicial
+     * del patrón que no contiene comodines
+     *
+     * @param pattern Un directorio o un patrón glob
+     * @return El directorio desde el que se buscan los archivos
+     */
+    public static Path getBaseDir(String pattern){
+
+        Path path = Paths.get(pattern);
+        if(!isGlob(pattern)){
+            return path;
+        }
+
+        Path baseDir = path.isAbsolute() ? path.getRoot() : Paths.get("");
+        for(Path part : path){
+            if(isGlob(part.toString())){
+                break;
+            }
+            baseDir = baseDir.resolve(part);
+        }
+        return baseDir;
+
+    }
+
+    /**
+     * Busca los archivos de tokens que corresponden a un directorio o patrón.
+     * Para un directorio se toman todos los archivos .txt que contiene. Los
+     * archivos del directorio de salida no se toman, ya que las tablas de
+     * una ejecución anterior también son archivos .txt
+     *
+     * @param baseDir El directorio base del patrón
+     * @param pattern Un directorio o un patrón glob
+     * @param outputDir El directorio de salida del lote
+     * @return Los archivos encontrados, en orden
+     */
+    public static List<Path> findInputs(Path baseDir, String pattern, Path outputDir) throws IOException {
+
+        Path excluded = outputDir.toAbsolutePath().normalize();
+
+        PathMatcher matcher = isGlob(pattern)
+            ? FileSystems.getDefault().getPathMatcher("glob:" + pattern)
+            : FileSystems.getDefault().getPathMatcher("glob:**.txt");
+
+        try(Stream<Path> paths = Files.walk(baseDir)){
+            return paths
+                .filter(Files::isRegularFile)
+                .filter(matcher::matches)
+                .filter(path -> !path.toAbsolutePath().normalize().startsWith(excluded))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+    }
+
+    private static boolean isGlob(String pattern){
+        return pattern.indexOf('*') >= 0
+            || pattern.indexOf('?') >= 0
+            || pattern.indexOf('[') >= 0
+            || pattern.indexOf('{') >= 0;
+    }
+
+    /**
+     * Elige si el lote se procesa como una tubería de etapas
+     *
+     * @param pipelined Verdadero para usar una TuberiaAnalisis
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Activa la medición de las fases de todos los archivos del lote
+     *
+     * @param metrics Las métricas, o null para no medir el lote
+     */
+    public void setMetrics(MetricasAnalisis metrics) {
+        this.metrics = metrics;
+    }
+
+    public MetricasAnalisis getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Analiza todos los archivos del lote y escribe sus tablas
+     *
+     * @return El resumen de la ejecución
+     */
+    public Resumen run() throws InterruptedException {
+
+        if(pipelined){
+            TuberiaAnalisis pipeline = new TuberiaAnalisis(
+                inputs, this::getTablesDir, cache, TuberiaAnalisis.DEFAULT_QUEUE_CAPACITY
+            );
+            pipeline.setMetrics(metrics);
+            return pipeline.run();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+
+        List<Future<Long>> futures = new ArrayList<Future<Long>>(inputs.size());
+        for(Path input : inputs){
+            futures.add(pool.submit(() -> analyzeFile(input)));
+        }
+
+        Resumen summary = new Resumen();
+        long[] latencies = new long[inputs.size()];
+
+        for(int i = 0; i < futures.size(); i++){
+            try {
+                latencies[summary.completed] = futures.get(i).get();
+                if(latencies[summary.completed] < 0){
+                    latencies[summary.completed] = -latencies[summary.completed];
+                    summary.rejected++;
+                }
+                summary.completed++;
+            } catch (ExecutionException e) {
+                summary.failed++;
+                System.err.println(inputs.get(i) + ": " + e.getCause());
+            }
+        }
+
+        pool.shutdown();
+
+        summary.files = inputs.size();
+        summary.elapsedNanos = System.nanoTime() - start;
+        summary.cache = cache.toString();
+
+        Arrays.sort(latencies, 0, summary.completed);
+        summary.p50Nanos = percentile(latencies, summary.completed, 0.50);
+        summary.p99Nanos = percentile(latencies, summary.completed, 0.99);
+
+        return summary;
+
+    }
+
+    /**
+     * Analiza un archivo de tokens y escribe sus tablas en un directorio
+     * propio dentro del directorio de salida
+     *
+     * @param input El archivo de tokens
+     * @return La latencia en nanosegundos, negativa si el programa tiene errores semánticos
+     */
+    private long analyzeFile(Path input) throws IOException {
+
+        long start = System.nanoTime();
+
+        // Los archivos repetidos dentro del lote se analizan una sola vez
+        ResultadoAnalisis result = cache.analyze(Files.readAllBytes(input), metrics);
+
+        if(!result.isSuccessful()){
+            for(Diagnostico diagnostic : result.getDiagnostics().getDiagnosticos()){
+                System.err.println(input + ": " + diagnostic);
+            }
+            // Las tablas de una corrida anterior ya no corresponden al archivo
+            EscritorTablas.deleteTables(getTablesDir(input));
+            return -(System.nanoTime() - start);
+        }
+
+        AnalizadorSemantico.writeTables(result, getTablesDir(input), false, metrics);
+
+        return System.nanoTime() - start;
+
+    }
+
+    /**
+     * Obtiene el directorio de tablas de un archivo, que replica su ruta
+     * relativa al directorio base sin la extensión
+     *
+     * @param input El archivo de tokens
+     * @return El directorio de tablas del archivo
+     */
+    private File getTablesDir(Path input){
+
+        Path relative = baseDir.relativize(input);
+        if(relative.toString().isEmpty()){
+            relative = input.getFileName();
+        }
+
+        String name = relative.toString();
+        int extension = name.lastIndexOf('.');
+        if(extension > 0 && name.lastIndexOf(File.separatorChar) < extension){
+            name = name.substring(0, extension);
+        }
+
+        return new File(outputDir, name);
+
+    }
+
+    public static long percentile(long[] sorted, int count, double percentile){
+
+        if(count == 0){
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+
+    }
+
+    /*
+     * Resumen agregado de una ejecución por lotes
+     */
+    public static class Resumen {
+
+        public int  files;
+        public int  completed;
+        public int  rejected;
+        public int  failed;
+        public long elapsedNanos;
+        public long p50Nanos;
+        public long p99Nanos;
+        public String cache;
+
+        public double getFilesPerSecond(){
+            return elapsedNanos == 0 ? 0 : files / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+
+            return String.format(
+                "Archivos: %d, con errores semánticos: %d, fallidos: %d%n"
+                + "Tiempo total: %.3f s, archivos por segundo: %.1f%n"
+                + "Latencia por archivo p50: %.3f ms, p99: %.3f ms%n"
+                + "%s",
+                files, rejected, failed,
+                elapsedNanos / 1e9, getFilesPerSecond(),
+                p50Nanos / 1e6, p99Nanos / 1e6,
+                cache
+            );
+
+        }
+
+    }
+
+}
@@ -1,17 +1,17 @@
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.Stack;
-
-import javax.swing.JOptionPane;
+import java.util.concurrent.ForkJoinPool;
 
 /*
  * Esta clase analiza los tokens generados por el analizador léxico
@@ -30,355 +30,807 @@ import javax.swing.JOptionPane;
 
 public class AnalizadorSemantico {
 
-    private static List<Token>     tokens = new ArrayList<Token>();
-    private static List<Token>     tokensInVarSection = new ArrayList<Token>();
-    private static List<Token>     tokensInBodySection = new ArrayList<Token>();
-    private static List<String>    symbolsTable = new ArrayList<String>();
-    private static List<String>    addressesTable = new ArrayList<String>();
-    private static Set<String>          variables = new HashSet<String>();
-    private static Stack<String>        ambits = new Stack<String>();
+    // Estado de una sesión de análisis. Cada instancia analiza un solo
+    // programa, por lo que varias sesiones pueden ejecutarse en paralelo
+    private final TablaTokens           tokens;
+    private int                         bodyStart;
+    private final TablaSimbolos         symbols;
+    private Ambito                      bodyScope;
+    private ArbolPrograma               tree;
+    private ForkJoinPool                pool;
+    private CodigoIntermedio            code;
+    private boolean                     jumpsRecorded = false;
+
+    // Bytes que asignaron los hilos del pool al anotar el árbol completo
+    private long                        workerBytes = 0;
+    private boolean                     declarationsAnalyzed = false;
+    private int                         declaredCount = 0;
+    private MetricasAnalisis            metrics;
+    private final Diagnosticos          diagnostics = new Diagnosticos();
 
-    public static void main(String[] args) {
+    /**
+     * Crea una sesión de análisis para un flujo de tokens. Los tokens se
+     * copian, por lo que la lista recibida no es modificada por el análisis
+     * 
+     * @param tokens Los tokens del programa a analizar
+     */
+    public AnalizadorSemantico(List<Token> tokens){
+        this(TablaTokens.fromList(tokens));
+    }
 
-        try {
+    /**
+     * Crea una sesión de análisis para una tabla de tokens. La sesión se
+     * vuelve dueña de la tabla y actualiza sus posiciones en la tabla de
+     * símbolos, por lo que no debe compartirse con otra sesión
+     * 
+     * @param tokens La tabla de tokens del programa a analizar
+     */
+    public AnalizadorSemantico(TablaTokens tokens){
+        this.tokens = tokens;
+        this.symbols = new TablaSimbolos(tokens.getPool());
+    }
 
-            // Creación de directorio y archivos para las tablas
-            File tablesDir = new File("tables");
-            if(!tablesDir.exists()){
-                tablesDir.mkdir();
-            }
-            File symbolsTableFile = new File(tablesDir, "symbolTable.txt");
-            File addressesTableFile = new File(tablesDir, "addressesTable.txt");
-            File tokensTableFile = new File(tablesDir, "tokensTable.txt");
-
-            if(symbolsTableFile.exists() && addressesTableFile.exists() && tokensTableFile.exists()){
-                symbolsTableFile.delete();
-                addressesTableFile.delete();
-                tokensTableFile.delete();
-            }
+    /**
+     * Lee un archivo de tokens y analiza su sección de variables durante
+     * la lectura, sin esperar a tener todos los tokens
+     * 
+     * @param file El archivo de tokens
+     * @return La sesión con las declaraciones ya analizadas
+     */
+    public static AnalizadorSemantico read(File file) throws IOException {
+        return read(file, null);
+    }
 
-            // Lectura del archivo de tokens
-            BufferedReader br = new BufferedReader(new FileReader("tokens.txt"));
-            String fileLine;        
+    /**
+     * Lee un archivo de tokens y analiza su sección de variables durante
+     * la lectura, registrando las fases en unas métricas
+     * 
+     * @param file El archivo de tokens
+     * @param metrics Las métricas de la sesión, o null para no medirla
+     * @return La sesión con las declaraciones ya analizadas
+     */
+    public static AnalizadorSemantico read(File file, MetricasAnalisis metrics) throws IOException {
 
-            while((fileLine = br.readLine()) != null) {
+        AnalizadorSemantico session = new AnalizadorSemantico(
+            new TablaTokens((int) Math.min(Integer.MAX_VALUE - 8, file.length() / 20 + 16))
+        );
+        session.setMetrics(metrics);
 
-                String[] tokenInfo = fileLine.split(",");
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.LECTURA);
+        try {
+            DeclaracionesEnFlujo declarations = new DeclaracionesEnFlujo(session);
+            LectorTokens.read(file, declarations);
+            declarations.finish();
+        } finally {
+            MetricasAnalisis.stop(medicion);
+        }
+        return session;
 
-                for (int i = 0; i < tokenInfo.length; i++) {
-                    tokenInfo[i] = tokenInfo[i].trim();
-                }
+    }
 
-                // Las comas son el delimitador de los tokens.
-                // Cuando una es el lexema, causa un error en el parsing
-                // de los tokens. En el caso en que el lexema está vacío,
-                // sabemos que la coma es el lexema y ajustamos
-                if(tokenInfo[1].equals("")){
-                    String[] temp = new String[4];
-                    temp[0] = tokenInfo[0];
-                    temp[1] = ",";
-                    temp[2] = tokenInfo[3];
-                    temp[3] = tokenInfo[4];
-                    tokenInfo = temp;
-                }
+    /**
+     * Lee el contenido de un archivo de tokens ya cargado en memoria y
+     * analiza su sección de variables durante la lectura
+     * 
+     * @param content Los bytes del archivo de tokens
+     * @return La sesión con las declaraciones ya analizadas
+     */
+    public static AnalizadorSemantico read(byte[] content) throws IOException {
+        return read(content, null);
+    }
+
+    /**
+     * Lee el contenido de un archivo de tokens ya cargado en memoria y
+     * analiza su sección de variables durante la lectura, registrando las
+     * fases en unas métricas
+     * 
+     * @param content Los bytes del archivo de tokens
+     * @param metrics Las métricas de la sesión, o null para no medirla
+     * @return La sesión con las declaraciones ya analizadas
+     */
+    public static AnalizadorSemantico read(byte[] content, MetricasAnalisis metrics) throws IOException {
 
-                tokens.add(
-                    new Token(
-                        Integer.parseInt(tokenInfo[0]),
-                        tokenInfo[1],
-                        Integer.parseInt(tokenInfo[2]),
-                        Integer.parseInt(tokenInfo[3].trim())
-                    )
-                );
+        AnalizadorSemantico session = new AnalizadorSemantico(new TablaTokens(content.length / 20 + 16));
+        session.setMetrics(metrics);
 
-            }
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.LECTURA);
+        try {
+            DeclaracionesEnFlujo declarations = new DeclaracionesEnFlujo(session);
+            new LectorTokens(Channels.newChannel(new ByteArrayInputStream(content)), declarations).read();
+            declarations.finish();
+        } finally {
+            MetricasAnalisis.stop(medicion);
+        }
+        return session;
 
-            br.close();
+    }
 
-            // Asignar tokens a sus respectivas secciones
-            splitSections();
-            
-            // Índice auxiliar para la navegación de la tabla de tokens
-            int index = -1;
+    /**
+     * Uso: AnalizadorSemantico [--json] [--binario] [--cache] [--vci] [--metricas reporte.json] [archivo de tokens] [directorio de tablas]
+     *      AnalizadorSemantico --optimizar [--json] [--binario] [--vci] [archivo de tokens] [directorio de tablas]
+     *      AnalizadorSemantico --paralelo [--json] [--binario] [--vci] [--metricas reporte.json] [archivo de tokens] [directorio de tablas]
+     *      AnalizadorSemantico --ejecutar [archivo de tokens] < entrada
+     *      AnalizadorSemantico --acotado [--json] [archivo de tokens] [directorio de tablas]
+     *      AnalizadorSemantico --lote [--tuberia] [--metricas reporte.json] <directorio|patrón> [directorio de salida] [hilos]
+     *      AnalizadorSemantico --servidor [puerto | --unix ruta] [--cache-mb megabytes] [--cache-disco directorio] [--metricas]
+     * 
+     * Termina con código 0 si el programa es válido, 1 si tiene errores
+     * semánticos y 2 si no se pudieron leer los tokens, escribir las tablas
+     * o ejecutar el programa
+     */
+    public static void main(String[] args) {
 
-            Map<String, Integer> tablePositions = new HashMap<String, Integer>();
+        // Modo por lotes: analiza todos los archivos de tokens de un directorio o patrón
+        if(args.length > 0 && args[0].equals("--lote")){
+            AnalisisPorLotes.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-            // Para los tokens en la sección de variables,
-            // revisamos que los identificadores estén declarados apropiadamente
-            // y que los identificadores con tipo asignado se anuncia bajo el tipo
-            // de dato correcto
-            for(Token token : tokensInVarSection){
+        // Modo servidor: atiende solicitudes de análisis por un socket local
+        if(args.length > 0 && args[0].equals("--servidor")){
+            ServidorAnalisis.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-                index++;
+        boolean json = false;
+        boolean binary = false;
+        boolean cached = false;
+        boolean bounded = false;
+        boolean parallel = false;
+        boolean vci = false;
+        boolean execute = false;
+        boolean optimized = false;
+        File metricsFile = null;
+        int firstArg = 0;
+        for(; firstArg < args.length && args[firstArg].startsWith("--"); firstArg++){
+            if(args[firstArg].equals("--json")){
+                json = true;
+            } else if(args[firstArg].equals("--binario")){
+                binary = true;
+            } else if(args[firstArg].equals("--cache")){
+                cached = true;
+            } else if(args[firstArg].equals("--paralelo")){
+                parallel = true;
+            } else if(args[firstArg].equals("--acotado")){
+                bounded = true;
+            } else if(args[firstArg].equals("--vci")){
+                vci = true;
+            } else if(args[firstArg].equals("--ejecutar")){
+                execute = true;
+            } else if(args[firstArg].equals("--optimizar")){
+                optimized = true;
+            } else if(args[firstArg].equals("--metricas") && firstArg + 1 < args.length){
+                metricsFile = new File(args[++firstArg]);
+            }
+        }
+        File tokensFile = new File(args.length > firstArg ? args[firstArg] : "tokens.txt");
+        File tablesDir = new File(args.length > firstArg + 1 ? args[firstArg + 1] : "tables");
 
-                if(!token.isIdentificador())
-                {
-                    continue;
-                }
+        // Con --metricas, se miden las fases y se escribe el reporte al final
+        MetricasAnalisis metrics = metricsFile != null ? new MetricasAnalisis() : null;
 
-                // Identificador de programa
-                if(token.getToken() == Sintaxis.GENERAL_ID)
-                {
-                    // Guardamos el ámbito actual
-                    ambits.push(token.getLexema());
+        // Las tablas del análisis anterior se borran antes de empezar
+        if(!execute){
+            EscritorTablas.deleteTables(tablesDir);
+        }
 
-                    // Si no están, los agregamos a la tabla de direcciones
-                    if(!variables.contains(token.getLexema()))
-                    {
-                        variables.add(token.getLexema());
+        // Con --acotado, el programa se analiza por ventanas y la tabla de
+        // tokens se escribe conforme se revisa, para programas muy grandes
+        if(bounded){
+            try {
+                Diagnosticos diagnostics = AnalisisAcotado.analyze(tokensFile, tablesDir, AnalisisAcotado.DEFAULT_WINDOW_TOKENS);
+                if(!diagnostics.isEmpty()){
+                    System.out.print(json ? diagnostics.toJson() + System.lineSeparator() : diagnostics.toText());
+                    System.exit(1);
+                }
+                System.out.println(json ? "[]" : "Análisis semántico completado");
+            } catch (Exception e) {
+                System.err.println("Error al procesar el archivo: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
 
-                        addRowToAddressesTable(token.getLexema(), token.getToken(), token.getNumLinea(), 0);
-                        token.setPosicionTabla(0);
-                    }
+        // Con --ejecutar, el programa se analiza y se ejecuta, leyendo de la
+        // entrada estándar y escribiendo en la salida estándar
+        if(execute){
+            try {
+                AnalizadorSemantico session = read(tokensFile);
+                ResultadoAnalisis result = session.analyze();
+                if(!result.isSuccessful()){
+                    System.out.print(json ? result.getDiagnostics().toJson() + System.lineSeparator() : result.getDiagnostics().toText());
+                    System.exit(1);
                 }
-                // ... Identificadores de variables
-                else
-                {
-                    // Si el identificador ya ha sido declarado, terminamos el programa
-                    if(variables.contains(token.getLexema())){
-                        JOptionPane.showMessageDialog(null, "Error semántico: El identificador " + token.getLexema() + " ya ha sido declarado");
-                        System.exit(0);
-                    }
-
-                    // Si el tipo de dato anunciado no coincide con el tipo de dato de
-                    // que anuncia el identifcador, terminamos el programa
-                    if(!checkDataTypes(token.getToken(), index)){
-                        JOptionPane.showMessageDialog(null, "Error semántico: El tipo de dato no coincide con el tipo de dato de la variable");
-                        System.exit(0);
-                    }
-
-
-                    variables.add(token.getLexema());
-
-                    addRowToSymbolsTable(
-                        token.getLexema(),
-                        token.getToken(),
-                        getIdentifierDefaultValue(token.getToken()),
-                        ambits.peek(),
-                        variables.size() - 1
+                Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                try {
+                    new Interprete(session.generateCode()).run(
+                        Interprete.Entrada.of(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))),
+                        Interprete.Salida.of(out)
                     );
-                    
-                    tablePositions.put(token.getLexema(), variables.size()-1);
-                    
-                    token.setPosicionTabla(variables.size()-1);
-                    
+                } finally {
+                    out.flush();
                 }
-                
+            } catch (Exception e) {
+                System.err.println("Error al ejecutar el programa: " + e.getMessage());
+                System.exit(2);
             }
+            return;
+        }
 
-            for(Token token : tokensInBodySection){
-
-                index++;
+        try {
 
-                if(!token.isIdentificador())
-                {
-                    continue;
+            // Con --cache, un archivo ya analizado se toma de tables/cache.
+            // Con --optimizar, la tabla de tokens cambia, así que no se usa
+            cached = cached && !optimized;
+            AnalizadorSemantico session = cached ? null : read(tokensFile, metrics);
+            ResultadoAnalisis result = cached
+                ? new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, new File(tablesDir, "cache"))
+                    .analyze(Files.readAllBytes(tokensFile.toPath()), metrics)
+                : parallel
+                    ? session.analyze(ForkJoinPool.commonPool())
+                    : session.analyze();
+
+            if(!result.isSuccessful()){
+                System.out.print(json ? result.getDiagnostics().toJson() + System.lineSeparator() : result.getDiagnostics().toText());
+                if(metrics != null){
+                    metrics.writeJson(metricsFile);
                 }
+                System.exit(1);
+            }
 
-                if(!variables.contains(token.getLexema()))
-                {
-                    JOptionPane.showMessageDialog(null, "Error semántico: El identificador " + token.getLexema() + " no ha sido declarado");
-                    System.exit(0);
+            // ¡Se completó el análisis con éxito! 🥳
+            System.out.println(json ? "[]" : "Análisis semántico completado");
+
+            // Con --optimizar, se pliegan las expresiones constantes antes de
+            // escribir las tablas y se reportan las condiciones constantes
+            if(optimized){
+                Diagnosticos warnings = session.optimize();
+                if(!json){
+                    System.out.print(warnings.toText());
+                }
+            }
+            
+            writeTables(result, tablesDir, binary, metrics);
+
+            // Con --vci, se genera el código intermedio del cuerpo. Un
+            // resultado de la caché no trae su árbol, así que se analiza
+            if(vci){
+                if(session == null){
+                    session = read(tokensFile);
+                    session.analyze();
                 }
+                session.generateCode().write(new File(tablesDir, "vci.bin"));
+            }
 
+            if(metrics != null){
+                metrics.writeJson(metricsFile);
+            }
 
-                // Cuando el token corresponde a un identificador, su posición en la tabla
-                // de símbolos se recupera
-                tokens.get(index).setPosicionTabla(tablePositions.get(token.getLexema()));
+        } catch (Exception e) {
+            System.err.println("Error al procesar el archivo: " + e.getMessage());
+            System.exit(2);
+        }
 
-                // Revisa la validez de las asignaciones
-                if(tokens.get(index+1).getToken() == Sintaxis.ASIGN_OP){
+    }
 
-                    if(!assignmentIsValid(token.getToken(), index)){
-                        JOptionPane.showMessageDialog(null, "Error semántico: La asignación no es válida");
-                        System.exit(0);
-                    }
-                }
+    /**
+     * Escribe las tablas de símbolos, direcciones y tokens de un resultado
+     * en un directorio, reemplazando las tablas anteriores
+     * 
+     * @param result El resultado del análisis
+     * @param tablesDir El directorio de destino
+     */
+    public static void writeTables(ResultadoAnalisis result, File tablesDir) throws IOException {
+        writeTables(result, tablesDir, false);
+    }
 
-                // Revisa la validez de las condiciones
-                int blockToken = tokens.get(index-2).getToken();
-                if(
-                    blockToken == Sintaxis.IF
-                    || blockToken == Sintaxis.MIENTRAS
-                    || blockToken == Sintaxis.HASTA
-                ){
-                    if(!booleanExpressionIsValid(token.getToken(), index, blockToken)){
-                        JOptionPane.showMessageDialog(null, "Error semántico: La condición no es válida");
-                        System.exit(0);
-                    }
-                }
-            }
+    /**
+     * Escribe las tablas de símbolos, direcciones y tokens de un resultado
+     * en un directorio, en formato de texto o en el formato binario compacto
+     * 
+     * @param result El resultado del análisis
+     * @param tablesDir El directorio de destino
+     * @param binary Verdadero para escribir las tablas en formato binario
+     */
+    public static void writeTables(ResultadoAnalisis result, File tablesDir, boolean binary) throws IOException {
+        writeTables(result, tablesDir, binary, null);
+    }
 
-            // ¡Se completó el análisis con éxito! 🥳
-            JOptionPane.showMessageDialog(null, "Análisis semántico completado");
-            
-            writeTableToFile(AnalizadorSemantico.symbolsTable, symbolsTableFile);
-            writeTableToFile(AnalizadorSemantico.addressesTable, addressesTableFile);
-            writeTableToFile(buildTextTokensTable(tokens), tokensTableFile);
+    /**
+     * Escribe las tablas de un resultado en un directorio, registrando la
+     * escritura en unas métricas
+     * 
+     * @param result El resultado del análisis
+     * @param tablesDir El directorio de destino
+     * @param binary Verdadero para escribir las tablas en formato binario
+     * @param metrics Las métricas, o null para no medir la escritura
+     */
+    public static void writeTables(ResultadoAnalisis result, File tablesDir, boolean binary, MetricasAnalisis metrics) throws IOException {
 
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, "Error al abrir el archivo: " + e.getMessage());
+        if(!tablesDir.exists()){
+            tablesDir.mkdirs();
+        }
+
+        // Los saltos se generan antes, en su propia fase
+        result.resolveJumps();
+
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.ESCRITURA);
+        try {
+            if(binary){
+                EscritorTablas.writeBinary(result, tablesDir);
+            } else {
+                EscritorTablas.writeText(result, tablesDir);
+            }
+        } finally {
+            MetricasAnalisis.stop(medicion);
         }
 
     }
 
-    
-    public static boolean booleanExpressionIsValid(int token, int index, int structure){
+    /**
+     * Lee un archivo de tokens con el formato "token , lexema , posicion , linea"
+     * 
+     * @param file El archivo de tokens
+     * @return La lista de tokens leídos
+     */
+    public static List<Token> readTokensFile(File file) throws IOException {
+        return LectorTokens.readAll(file);
+    }
 
-        List<Integer> foundTokens = new ArrayList<Integer>();
+    /**
+     * Ejecuta el análisis semántico del programa de la sesión. Los errores
+     * se registran como diagnósticos y el análisis continúa hasta el final
+     * 
+     * @return El resultado del análisis, con las tablas generadas y los diagnósticos
+     */
+    public ResultadoAnalisis analyze(){
 
-        if(structure == Sintaxis.IF || structure == Sintaxis.MIENTRAS){
+        // Asignar tokens a sus respectivas secciones
+        splitSections();
+        buildTree();
 
-            for(int i = index; i < tokens.size(); i++) {
+        analyzeDeclarations();
+        analyzeBody();
 
-                foundTokens.add(tokens.get(i).getToken());
+        return buildResult();
 
-                // La expresión booleana termina al encontrar el patrón:
-                // ...) { entonces inicio... <-
-                if(tokens.get(i+3).getToken() == Sintaxis.INICIO){
-                    return Sintaxis.logicalAndRelationalOperators.stream().anyMatch(foundTokens::contains);
-                }
+    }
 
-            }
+    /**
+     * Ejecuta el análisis semántico revisando la sección de cuerpo en
+     * paralelo. El resultado es el mismo que el de analyze()
+     * 
+     * @param pool El pool donde se revisa el cuerpo
+     * @return El resultado del análisis, con las tablas generadas y los diagnósticos
+     */
+    public ResultadoAnalisis analyze(ForkJoinPool pool){
+
+        splitSections();
+
+        analyzeDeclarations();
+        analyzeBody(pool);
+
+        return buildResult();
+
+    }
+
+    /**
+     * Analiza la sección de variables: registra el identificador del programa
+     * y las variables declaradas en las tablas de símbolos y direcciones.
+     * Requiere que las secciones ya se hayan separado con splitSections.
+     * Si la sesión se creó con read(), las declaraciones ya se analizaron
+     * durante la lectura y no se vuelven a analizar
+     */
+    public void analyzeDeclarations(){
+
+        if(declarationsAnalyzed){
+            return;
+        }
 
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.DECLARACIONES);
+        try {
+            declareAll(getTree());
+        } finally {
+            MetricasAnalisis.stop(medicion);
         }
-        else { // structure == Syntax.UNTIL
 
-            for(int i = index; i < tokens.size(); i++){
+        declarationsAnalyzed = true;
+
+    }
 
-                foundTokens.add(tokens.get(i).getToken());
+    private void declareAll(ArbolPrograma tree){
 
-                // La expresión booleana termina al encontrar el patrón:
-                // ...}
-                // hasta (
-                //  ...
-                // ); <-
-                if(tokens.get(i+2).getToken() == Sintaxis.PUNTOCOMA){
-                    return Sintaxis.logicalAndRelationalOperators.stream().anyMatch(foundTokens::contains);
-                }
+        // Para las declaraciones de la sección de variables,
+        // revisamos que los identificadores estén declarados apropiadamente
+        // y que los identificadores con tipo asignado se anuncia bajo el tipo
+        // de dato correcto
+        for(int node = tree.getFirstChild(tree.getRoot()); node != ArbolPrograma.NINGUNO; node = tree.getNextSibling(node)){
 
+            // Identificador de programa
+            if(tree.getClase(node) == ArbolPrograma.NOMBRE_PROGRAMA)
+            {
+                declareProgram(tree.getTokenIndex(node));
+            }
+            // ... Grupos de variables con un mismo tipo anunciado
+            else if(tree.getClase(node) == ArbolPrograma.DECLARACION)
+            {
+                int typeIndex = tree.getTokenIndex(node);
+                String announcedDataType = typeIndex == ArbolPrograma.NINGUNO ? null : tokens.getLexema(typeIndex);
+
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                    declareVariable(tree.getTokenIndex(child), announcedDataType);
+                }
             }
 
         }
 
-        return false; 
     }
-    
+
     /**
-     * Revisa que la asignación a un identificador sea válida
+     * Declara el identificador del programa y abre su ámbito, donde se
+     * declaran las variables siguientes
      * 
-     * @param token El token a ser evaluado, que es un identificador
-     * @param index El índice del token
-     * @return Verdadero si la asignación es válida, falso si no lo es
+     * @param index El índice del identificador del programa
      */
-    public static boolean assignmentIsValid(int token, int index){
+    public void declareProgram(int index){
 
-        Set<Integer> conditionCheckAssignmentEntero = new HashSet<Integer>(
-            Arrays.asList(-31, -32, -33, -34, -35, -36, -41, -42, -43, -52, -53, -54, -55, -62, -63, -64, -65)
-        );
-        Set<Integer> conditionCheckAssignmentReal = new HashSet<Integer>(
-            Arrays.asList(-31, -32, -33, -34, -35, -36, -41, -42, -43, -53, -54, -55, -63, -64, -65)
-        );
-        Set<Integer> conditionCheckAssignmentCadena = new HashSet<Integer>(
-            Arrays.asList(-31, -32, -33, -34, -35, -36, -41, -42, -43, -51, -52, -54, -55, -61, -62, -64, -65)
+        declaredCount++;
+
+        // Si no está, lo agregamos a la tabla de direcciones
+        Simbolo program = symbols.declareProgram(
+            tokens.getLexemaId(index), tokens.getToken(index), tokens.getNumLinea(index)
         );
-        Set<Integer> conditionCheckAssignmentLogico = new HashSet<Integer>(
-            Arrays.asList(-31, -32, -33, -34, -35, -36, -41, -42, -43, -64, -65)
+        if(program != null)
+        {
+            tokens.setPosicionTabla(index, program.getSlot());
+        }
+
+        // Las variables se declaran en el ámbito del programa
+        symbols.enterScope(tokens.getLexema(index));
+
+    }
+
+    /**
+     * Declara una variable en el ámbito actual
+     * 
+     * @param index El índice del identificador de la variable
+     * @param announcedDataType El tipo de dato anunciado en su declaración,
+     *          o null si la declaración no termina
+     */
+    public void declareVariable(int index, String announcedDataType){
+
+        declaredCount++;
+
+        // Si el tipo de dato anunciado no coincide con el tipo de dato de
+        // que anuncia el identifcador, se registra el error pero la variable
+        // se declara con su propio tipo para no provocar errores en cascada
+        boolean dataTypesMatch = getAllowedDataType(tokens.getToken(index)).equals(announcedDataType);
+
+        Simbolo variable = symbols.declareVariable(
+            tokens.getLexemaId(index), tokens.getToken(index), tokens.getNumLinea(index)
         );
 
-        List<Integer> foundTokens = new ArrayList<Integer>();
-
-        for(Token _token : tokens){
-
-            foundTokens.add(_token.getToken());
-
-            // Dado el final de la expresión, revisa que los tokens encontrados
-            // generen una expresión del tipo esperado
-            if(_token.getToken() == Sintaxis.PUNTOCOMA){
-                
-                int currentVar = foundTokens.get(0);
-                String currentVarDataType = getAllowedDataType(currentVar);
-                
-                switch(currentVarDataType){
-                    case "entero":
-                        if(conditionCheckAssignmentEntero.stream().anyMatch(foundTokens::contains)){
-                            return false;
-                        }
-                        break;
-                    case "real":
-                        if(conditionCheckAssignmentReal.stream().anyMatch(foundTokens::contains)){
-                            return false;
-                        }
-                        break;
-                    case "cadena":
-                        if(conditionCheckAssignmentCadena.stream().anyMatch(foundTokens::contains)){  
-                            return false;
-                        }
-                        break;
-                    case "logico":
-                        if(!conditionCheckAssignmentLogico.stream().anyMatch(foundTokens::contains)){
-                            return false;
-                        }
-                        break;
-                }
+        // Si el identificador ya ha sido declarado, se conserva
+        // la primera declaración
+        if(variable == null){
+            diagnostics.add(
+                Diagnostico.Tipo.IDENTIFICADOR_REDECLARADO, tokens, index,
+                "Error semántico: El identificador " + tokens.getLexema(index) + " ya ha sido declarado"
+            );
+            return;
+        }
 
-                return true;
-            }
+        if(!dataTypesMatch){
+            diagnostics.add(
+                Diagnostico.Tipo.TIPO_NO_COINCIDE, tokens, index,
+                "Error semántico: El tipo de dato no coincide con el tipo de dato de la variable"
+            );
         }
 
-        return false;
+        tokens.setPosicionTabla(index, variable.getSlot());
 
     }
 
     /**
-     * Revisa que el tipo de dato anunciado al final de la declaración de una
-     * variable coincida con el tipo de dato del identificador
+     * Analiza la sección de cuerpo: revisa que los identificadores estén
+     * declarados y que las asignaciones y condiciones sean válidas,
+     * recorriendo el árbol del programa en una sola pasada.
+     * Requiere que la sección de variables ya se haya analizado
+     */
+    public void analyzeBody(){
+
+        ArbolPrograma tree = getTree();
+        VerificadorTipos checker;
+
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.CUERPO);
+        try {
+
+            // Los identificadores del cuerpo se buscan desde el ámbito del programa
+            bodyScope = symbols.getCurrentScope();
+
+            checker = new VerificadorTipos(tree, bodyScope);
+            checker.check(tree.getBody(), diagnostics);
+
+            // Al terminar el cuerpo se cierra el ámbito del programa
+            symbols.exitScope();
+
+        } finally {
+            MetricasAnalisis.stop(medicion);
+        }
+
+        if(metrics != null){
+            metrics.countFile(
+                tokens.size(), declaredCount + checker.getIdentifiersResolved(),
+                checker.getAssignmentsChecked(), checker.getConditionsChecked()
+            );
+        }
+
+    }
+
+    /**
+     * Analiza la sección de cuerpo en paralelo con una VerificacionParalela.
+     * No se construye el árbol del programa completo, sino uno por cada
+     * trozo del cuerpo; el árbol completo se reconstruye si se pide.
+     * Requiere que la sección de variables ya se haya analizado
      * 
-     * @param token El token a ser evaluado, que es un identificador
-     * @param index El índice del token
-     * @return Verdadero si el tipo de dato anunciado coincide con el tipo de dato del identificador,
-     *          falso si no
+     * @param pool El pool donde se revisan los trozos del cuerpo
      */
-    public static boolean checkDataTypes(int token, int index){
+    public void analyzeBody(ForkJoinPool pool){
+
+        VerificacionParalela checker;
+        this.pool = pool;
 
-        for(int i = index; i < tokensInVarSection.size(); i++){
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.CUERPO);
+        try {
 
-            // Observa los tokens de la declaración hasta finalizar la expresión
-            if(tokensInVarSection.get(i).getToken() == Sintaxis.PUNTOCOMA){
+            // La tabla de símbolos ya no cambia, así que los trozos la
+            // comparten sin sincronización
+            bodyScope = symbols.getCurrentScope();
 
-                // Revisa el tipo de dato anunciado al final de la declaración...
-                String announcedDataType = tokensInVarSection.get(i-1).getLexema();
-                // ... y lo compara con el tipo de dato del identificador
-                return announcedDataType.equals(getAllowedDataType(token));
+            checker = new VerificacionParalela(tokens, bodyScope, bodyStart, tokens.size(), pool.getParallelism() * 4);
+            checker.run(pool);
+            checker.mergeInto(diagnostics);
+            MetricasAnalisis.addWorkerBytes(medicion, checker.getWorkerAllocatedBytes());
 
-            }
+            symbols.exitScope();
 
+        } finally {
+            MetricasAnalisis.stop(medicion);
         }
 
-        return false;
+        tree = null;
+
+        if(metrics != null){
+            metrics.countFile(
+                tokens.size(), declaredCount + checker.getIdentifiersResolved(),
+                checker.getAssignmentsChecked(), checker.getConditionsChecked()
+            );
+        }
 
     }
 
     /**
-     * Este método separa los tokens en las secciones de variables y cuerpo
+     * Revisa de nuevo un rango editado de la sección de cuerpo. Solo se
+     * construye el árbol de los estatutos del rango; el árbol del programa
+     * completo se reconstruye la próxima vez que se pida
+     * 
+     * @param from El índice del primer token a revisar
+     * @param to El índice siguiente al último token a revisar
+     * @param diagnostics El colector donde se registran los errores del rango
+     * @return El índice siguiente al último token revisado. Un estatuto que
+     *          empieza en el rango se lee completo, así que puede pasar de to
      */
-    public static void splitSections(){
+    public int checkBodyRange(int from, int to, Diagnosticos diagnostics){
 
-        List<Token> currentTargetSection = tokensInVarSection;
+        ArbolPrograma range = ConstructorArbol.buildRange(tokens, from, to);
+        new VerificadorTipos(range, bodyScope).check(range.getRoot(), diagnostics);
 
-        for(Token token : tokens){
+        tree = null;
+        invalidateCode();
 
-            // Si el token es "inicio", cambiamos el destino de los tokens
-            // subsecuentes a la sección de cuerpo
-            if(token.getToken() == Sintaxis.INICIO){
-                currentTargetSection = tokensInBodySection;
-            }
+        int end = to;
+        for(int node = 0; node < range.size(); node++){
+            end = Math.max(end, range.getTokenIndex(node) + 1);
+        }
+        return end;
+
+    }
+
+    /**
+     * Pliega las expresiones constantes del cuerpo y elimina los estatutos
+     * de control cuya condición constante decide qué rama se ejecuta. La
+     * tabla de tokens se reescribe, así que el árbol se reconstruye después
+     * de cada pasada
+     * 
+     * @return Los avisos de condiciones constantes del programa original
+     * @throws IllegalStateException Si el programa tiene errores semánticos
+     */
+    public Diagnosticos optimize(){
+
+        if(!diagnostics.isEmpty()){
+            throw new IllegalStateException("No se optimiza un programa con errores semánticos");
+        }
+
+        Diagnosticos warnings = PlegadorConstantes.findConstantConditions(getTree());
+        while(PlegadorConstantes.fold(getTree())){
+            tree = null;
+        }
+
+        // Las direcciones de los saltos cambian con el código plegado
+        invalidateCode();
+        return warnings;
+
+    }
+
+    /**
+     * Devuelve el código intermedio del cuerpo. Se genera la primera vez
+     * que se pide, sobre el árbol ya construido, y se conserva hasta que
+     * una revisión o un plegado cambian los tokens
+     * 
+     * @return El código intermedio del programa
+     * @throws IllegalStateException Si el programa tiene errores semánticos
+     */
+    public CodigoIntermedio generateCode(){
+
+        if(code != null){
+            return code;
+        }
+
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.CODIGO);
+        long workerStart = workerBytes;
+        try {
+            code = GeneradorVCI.generate(this);
+        } finally {
+            MetricasAnalisis.addWorkerBytes(medicion, workerBytes - workerStart);
+            MetricasAnalisis.stop(medicion);
+        }
+        return code;
+
+    }
+
+    /**
+     * Guarda en la tabla de direcciones los saltos del código intermedio,
+     * con las direcciones ya completadas. Solo se llama antes de escribir
+     * la tabla de direcciones; un programa con errores no tiene código,
+     * así que su tabla queda sin saltos
+     */
+    public void recordJumps(){
+
+        if(!jumpsRecorded){
+            symbols.setJumps(diagnostics.isEmpty() ? generateCode() : null);
+            jumpsRecorded = true;
+        }
+
+    }
+
+    /**
+     * Descarta el código intermedio y los saltos de la tabla de direcciones
+     * después de un cambio en los tokens. Se generan de nuevo cuando se piden
+     */
+    private void invalidateCode(){
+
+        code = null;
+        if(jumpsRecorded){
+            symbols.setJumps(null);
+            jumpsRecorded = false;
+        }
+
+    }
+
+    /**
+     * Construye el resultado de la sesión con el estado actual de las tablas
+     * 
+     * @return El resultado del análisis
+     */
+    public ResultadoAnalisis buildResult(){
 
-            currentTargetSection.add(token);
+        return new ResultadoAnalisis(
+            symbols,
+            tokens,
+            diagnostics,
+            this
+        );
+
+    }
+    
+    /**
+     * Este método separa los tokens en las secciones de variables y cuerpo.
+     * Las secciones son rangos de la tabla de tokens, delimitados por el
+     * primer "inicio", por lo que no se copian los tokens
+     */
+    public void splitSections(){
+
+        if(declarationsAnalyzed){
+            return;
+        }
+
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.SECCIONES);
+        try {
+            bodyStart = tokens.findBodyStart();
+        } finally {
+            MetricasAnalisis.stop(medicion);
         }
 
     }
 
+    /**
+     * Marca el final de una sección de variables analizada durante la
+     * lectura, como lo hace DeclaracionesEnFlujo
+     * 
+     * @param bodyStart El índice del primer token del cuerpo
+     */
+    public void endDeclarations(int bodyStart){
+        this.bodyStart = bodyStart;
+        this.declarationsAnalyzed = true;
+    }
+
+    /**
+     * Construye el árbol del programa a partir de la tabla de tokens.
+     * Requiere que las secciones ya se hayan separado con splitSections
+     */
+    public void buildTree(){
+
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.ARBOL);
+        try {
+            tree = ConstructorArbol.build(tokens, bodyStart);
+        } finally {
+            MetricasAnalisis.stop(medicion);
+        }
+
+    }
+
+    /**
+     * Devuelve el árbol del programa, compartido por las revisiones y por
+     * las etapas posteriores. Si una revisión de un rango editado lo
+     * invalidó, se reconstruye y, si el cuerpo ya se había analizado, se
+     * anotan de nuevo sus tipos
+     * 
+     * @return El árbol del programa
+     */
+    public ArbolPrograma getTree(){
+
+        if(tree == null){
+            buildTree();
+            if(bodyScope != null && pool != null){
+                workerBytes += VerificacionParalela.annotate(tree, bodyScope, pool);
+            } else if(bodyScope != null){
+                new VerificadorTipos(tree, bodyScope).check(tree.getBody(), new Diagnosticos());
+            }
+        }
+        return tree;
+
+    }
+
+    /**
+     * Activa las métricas de la sesión. Las fases que se ejecuten después
+     * se miden y se registran en ellas
+     * 
+     * @param metrics Las métricas, o null para no medir la sesión
+     */
+    public void setMetrics(MetricasAnalisis metrics){
+        this.metrics = metrics;
+    }
+
+    public MetricasAnalisis getMetrics(){
+        return metrics;
+    }
+
+    public int getBodyStart(){
+        return bodyStart;
+    }
+
+    public TablaTokens getTokens(){
+        return tokens;
+    }
+
+    public TablaSimbolos getSymbols(){
+        return symbols;
+    }
+
+    public Diagnosticos getDiagnostics(){
+        return diagnostics;
+    }
+
     /**
      * Este método devuelve el tipo de dato permitido para un token
      * 
@@ -423,54 +875,10 @@ public class AnalizadorSemantico {
 
     }
 
-    /**
-     * Este método agrega una fila a la tabla de símbolos
-     * 
-     * @param lexema El lexema a ser agregado
-     * @param token El token a ser agregado
-     * @param value El valor a ser agregado
-     * @param ambit El ámbito en el que se encuentra
-     * @param tableNumber El número de la tabla a la que se agregará la fila
-     */
-    public static void addRowToSymbolsTable(
-        String lexema,
-        int token,
-        String value,
-        String ambit,
-        int tableNumber
-    ){
-        symbolsTable.add(token + " , " + lexema + " , " + value + " , " + ambit);
-    }
-
-    /**
-     * Este método agrega una fila a la tabla de direcciones
-     * 
-     * @param lexema El lexema a ser agregado
-     * @param token El token a ser agregado
-     * @param numLine El número de línea a ser agregado
-     * @param vci El valor de control de la instrucción a ser agregado
-     */
-    public static void addRowToAddressesTable(
-        String lexema,
-        int token,
-        int numLine,
-        int vci
-    ){
-        addressesTable.add(token + " , " + lexema + " , " + numLine + " , " + vci);
-    }
-    
-    public static void writeTableToFile(List<String> table, File file){
-
-        try {
+    public static void writeTableToFile(List<String> table, File file) throws IOException {
 
-            FileWriter fw = new FileWriter(file);
-            for(String str : table){
-                fw.write(str + System.lineSeparator());
-            }
-            fw.close();
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, "Error al escribir el archivo: " + e.getMessage());
+        try(EscritorTablas out = new EscritorTablas(file)){
+            out.writeRows(table);
         }
         
     }
@@ -478,13 +886,13 @@ public class AnalizadorSemantico {
     /**
      * Formatea la tabla de tokens en una lista de cadenas
      * 
-     * @param tokens La lista de tokens a ser formateada
+     * @param tokens La tabla de tokens a ser formateada
      */
-    public static List<String> buildTextTokensTable(List<Token> tokens){
+    public static List<String> buildTextTokensTable(TablaTokens tokens){
 
-        ArrayList<String> table = new ArrayList<String>();
-        for(Token token : tokens){
-            table.add(token.getToken() + " , " + token.getLexema() + " , " + token.getPosicionTabla() + " , " + token.getNumLinea());
+        ArrayList<String> table = new ArrayList<String>(tokens.size());
+        for(int i = 0; i < tokens.size(); i++){
+            table.add(tokens.getToken(i) + " , " + tokens.getLexema(i) + " , " + tokens.getPosicionTabla(i) + " , " + tokens.getNumLinea(i));
         }
         return table;
 
@@ -0,0 +1,233 @@
+import java.util.Arrays;
+
+/*
+ * Esta clase es la representación intermedia de un programa: un árbol
+ * guardado en arreglos paralelos de enteros en lugar de un objeto por nodo.
+ * Cada nodo tiene una clase (ASIGNACION, SI, BINARIA, ...), el índice del
+ * token que lo representa en la tabla de tokens, su primer hijo y su
+ * siguiente hermano. El verificador de tipos anota además el tipo de dato
+ * de cada expresión.
+ *
+ * El token de cada clase de nodo es:
+ * - NOMBRE_PROGRAMA, IDENTIFICADOR y CONSTANTE: el propio token
+ * - DECLARACION: el tipo de dato anunciado, o -1 si la declaración no termina
+ * - CUERPO: el primer token del rango analizado
+ * - BLOQUE: "inicio"
+ * - ASIGNACION: el identificador asignado
+ * - SI, MIENTRAS, REPETIR, LEER y ESCRIBIR: la palabra reservada
+ * - CONDICION: la palabra reservada del estatuto (si, mientras o hasta)
+ * - BINARIA y UNARIA: el operador
+ * - ERROR: el token donde la expresión dejó de tener sentido
+ *
+ * Los hijos de cada clase de nodo son:
+ * - PROGRAMA: NOMBRE_PROGRAMA y DECLARACION en orden, y al final el CUERPO
+ * - DECLARACION: los IDENTIFICADOR declarados
+ * - CUERPO y BLOQUE: los estatutos
+ * - ASIGNACION: la expresión asignada
+ * - SI: la CONDICION, el estatuto verdadero y opcionalmente el de "sino"
+ * - MIENTRAS: la CONDICION y el estatuto repetido
+ * - REPETIR: el estatuto repetido y opcionalmente la CONDICION de "hasta"
+ * - CONDICION: la expresión
+ * - LEER y ESCRIBIR: los argumentos
+ * - BINARIA: los dos operandos; UNARIA: el operando
+ * - ERROR: los identificadores de la expresión mal formada, que aún se
+ *   resuelven en la tabla de símbolos
+ */
+
+public class ArbolPrograma {
+
+    public static final int PROGRAMA = 0;
+    public static final int NOMBRE_PROGRAMA = 1;
+    public static final int DECLARACION = 2;
+    public static final int CUERPO = 3;
+    public static final int BLOQUE = 4;
+    public static final int ASIGNACION = 5;
+    public static final int SI = 6;
+    public static final int MIENTRAS = 7;
+    public static final int REPETIR = 8;
+    public static final int CONDICION = 9;
+    public static final int LEER = 10;
+    public static final int ESCRIBIR = 11;
+    public static final int BINARIA = 12;
+    public static final int UNARIA = 13;
+    public static final int IDENTIFICADOR = 14;
+    public static final int CONSTANTE = 15;
+    public static final int ERROR = 16;
+
+    public static final int NINGUNO = -1;
+
+    private static final TipoDato[] TIPOS = TipoDato.values();
+
+    private final TablaTokens   tokens;
+    private byte[]              clases;
+    private byte[]              tiposDato;
+    private int[]               indices;
+    private int[]               primerHijo;
+    private int[]               ultimoHijo;
+    private int[]               siguiente;
+    private int                 size = 0;
+    private int                 root = NINGUNO;
+
+    public ArbolPrograma(TablaTokens tokens, int capacity) {
+        capacity = Math.max(capacity, 16);
+        this.tokens = tokens;
+        this.clases = new byte[capacity];
+        this.tiposDato = new byte[capacity];
+        this.indices = new int[capacity];
+        this.primerHijo = new int[capacity];
+        this.ultimoHijo = new int[capacity];
+        this.siguiente = new int[capacity];
+    }
+
+    /**
+     * Agrega un nodo sin hijos
+     *
+     * @param clase La clase del nodo
+     * @param tokenIndex El índice del token del nodo
+     * @return El identificador del nodo
+     */
+    public int add(int clase, int tokenIndex) {
+
+        if(size == clases.length){
+            int capacity = size + (size >> 1);
+            clases = Arrays.copyOf(clases, capacity);
+            tiposDato = Arrays.copyOf(tiposDato, capacity);
+            indices = Arrays.copyOf(indices, capacity);
+            primerHijo = Arrays.copyOf(primerHijo, capacity);
+            ultimoHijo = Arrays.copyOf(ultimoHijo, capacity);
+            siguiente = Arrays.copyOf(siguiente, capacity);
+        }
+
+        clases[size] = (byte) clase;
+        tiposDato[size] = NINGUNO;
+        indices[size] = tokenIndex;
+        primerHijo[size] = NINGUNO;
+        ultimoHijo[size] = NINGUNO;
+        siguiente[size] = NINGUNO;
+        return size++;
+
+    }
+
+    /**
+     * Agrega un nodo como último hijo de otro
+     *
+     * @param parent El nodo padre
+     * @param child El nodo hijo, o NINGUNO para no agregar nada
+     */
+    public void appendChild(int parent, int child) {
+
+        if(child == NINGUNO){
+            return;
+        }
+        if(primerHijo[parent] == NINGUNO){
+            primerHijo[parent] = child;
+        } else {
+            siguiente[ultimoHijo[parent]] = child;
+        }
+        ultimoHijo[parent] = child;
+
+    }
+
+    /**
+     * Descarta los nodos agregados a partir de un tamaño dado. Solo es válido
+     * si ningún nodo anterior recibió como hijo a uno de los descartados
+     *
+     * @param newSize La cantidad de nodos que se conservan
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public void setRoot(int root) {
+        this.root = root;
+    }
+
+    public TablaTokens getTokens() {
+        return tokens;
+    }
+
+    public int getClase(int node) {
+        return clases[node];
+    }
+
+    public int getTokenIndex(int node) {
+        return indices[node];
+    }
+
+    public void setTokenIndex(int node, int tokenIndex) {
+        indices[node] = tokenIndex;
+    }
+
+    /**
+     * Devuelve el código del token de un nodo
+     */
+    public int getToken(int node) {
+        return tokens.getToken(indices[node]);
+    }
+
+    public int getFirstChild(int node) {
+        return primerHijo[node];
+    }
+
+    public int getNextSibling(int node) {
+        return siguiente[node];
+    }
+
+    /**
+     * Devuelve el hijo en una posición dada
+     *
+     * @param node El nodo padre
+     * @param position La posición del hijo, empezando en 0
+     * @return El hijo, o NINGUNO si el nodo tiene menos hijos
+     */
+    public int getChild(int node, int position) {
+
+        int child = primerHijo[node];
+        for(int i = 0; i < position && child != NINGUNO; i++){
+            child = siguiente[child];
+        }
+        return child;
+
+    }
+
+    /**
+     * Devuelve el tipo de dato anotado en una expresión
+     *
+     * @return El tipo de dato, o null si la expresión no se ha verificado
+     */
+    public TipoDato getTipoDato(int node) {
+        return tiposDato[node] == NINGUNO ? null : TIPOS[tiposDato[node]];
+    }
+
+    public void setTipoDato(int node, TipoDato tipo) {
+        tiposDato[node] = (byte) tipo.ordinal();
+    }
+
+    /**
+     * Busca el nodo CUERPO entre los hijos de la raíz
+     *
+     * @return El cuerpo del programa, o NINGUNO si no hay
+     */
+    public int getBody() {
+
+        if(root != NINGUNO && clases[root] == CUERPO){
+            return root;
+        }
+        for(int child = root == NINGUNO ? NINGUNO : primerHijo[root]; child != NINGUNO; child = siguiente[child]){
+            if(clases[child] == CUERPO){
+                return child;
+            }
+        }
+        return NINGUNO;
+
+    }
+
+}
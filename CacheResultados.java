@@ -0,0 +1,489 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Esta clase guarda los resultados de análisis ya hechos, indexados por un
+ * hash de 128 bits del contenido del archivo de tokens. Un archivo repetido
+ * se resuelve sin leer sus tokens ni repetir el análisis.
+ *
+ * La caché tiene dos niveles:
+ * - En memoria, con reemplazo LRU y un límite aproximado de bytes
+ * - Opcionalmente en disco, un archivo por resultado dentro de un
+ *   directorio (por ejemplo tables/cache). Un resultado encontrado en disco
+ *   se sube al nivel en memoria
+ *
+ * Los resultados guardados no deben modificarse, ya que se comparten entre
+ * todas las solicitudes con el mismo contenido.
+ */
+
+public class CacheResultados {
+
+    public static final long    DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final int    DISK_MAGIC = 0x5253454D;       // "RSEM"
+    private static final int    DISK_VERSION = 3;
+
+    private static final VarHandle LONGS =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /*
+     * Una entrada del nivel en memoria, con su tamaño estimado
+     */
+    private static final class Entrada {
+
+        final ResultadoAnalisis result;
+        final long              bytes;
+
+        Entrada(ResultadoAnalisis result, long bytes) {
+            this.result = result;
+            this.bytes = bytes;
+        }
+
+    }
+
+    private final long                      maxBytes;
+    private final File                      diskDir;
+    private final LinkedHashMap<String, Entrada> memory = new LinkedHashMap<String, Entrada>(16, 0.75f, true);
+    private long                            memoryBytes = 0;
+
+    private final AtomicLong                hits = new AtomicLong();
+    private final AtomicLong                diskHits = new AtomicLong();
+    private final AtomicLong                misses = new AtomicLong();
+    private final AtomicLong                evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes El tamaño máximo aproximado del nivel en memoria
+     * @param diskDir El directorio del nivel en disco, o null para no usarlo
+     */
+    public CacheResultados(long maxBytes, File diskDir) {
+        this.maxBytes = maxBytes;
+        this.diskDir = diskDir;
+    }
+
+    /**
+     * Analiza el contenido de un archivo de tokens, o devuelve el resultado
+     * guardado si el mismo contenido ya se había analizado
+     *
+     * @param content Los bytes del archivo de tokens
+     * @return El resultado del análisis
+     */
+    public ResultadoAnalisis analyze(byte[] content) throws IOException {
+        return analyze(content, null);
+    }
+
+    /**
+     * Analiza el contenido de un archivo de tokens, o devuelve el resultado
+     * guardado. Solo los análisis que no estaban en la caché se registran
+     * en las métricas
+     *
+     * @param content Los bytes del archivo de tokens
+     * @param metrics Las métricas del análisis, o null para no medirlo
+     * @return El resultado del análisis
+     */
+    public ResultadoAnalisis analyze(byte[] content, MetricasAnalisis metrics) throws IOException {
+
+        String key = hash(content);
+
+        ResultadoAnalisis result = lookup(key);
+        if(result == null){
+            result = AnalizadorSemantico.read(content, metrics).analyze().freeze();
+            store(key, result);
+        }
+        return result;
+
+    }
+
+    /**
+     * Busca un resultado en memoria y después en disco
+     *
+     * @param key El hash del contenido, calculado con hash()
+     * @return El resultado guardado, o null si no está en la caché
+     */
+    public ResultadoAnalisis lookup(String key) {
+
+        ResultadoAnalisis result = getFromMemory(key);
+        if(result != null){
+            hits.incrementAndGet();
+            return result;
+        }
+
+        result = readFromDisk(key);
+        if(result != null){
+            diskHits.incrementAndGet();
+            putInMemory(key, result);
+            return result;
+        }
+
+        misses.incrementAndGet();
+        return null;
+
+    }
+
+    /**
+     * Guarda un resultado nuevo en los dos niveles. Se guarda una copia
+     * congelada, con los saltos y el JSON ya generados
+     *
+     * @param key El hash del contenido, calculado con hash()
+     * @param result El resultado del análisis de ese contenido
+     */
+    public void store(String key, ResultadoAnalisis result) throws IOException {
+
+        result = result.freeze();
+        putInMemory(key, result);
+        writeToDisk(key, result);
+
+    }
+
+    private synchronized ResultadoAnalisis getFromMemory(String key) {
+
+        Entrada entry = memory.get(key);
+        return entry == null ? null : entry.result;
+
+    }
+
+    private synchronized void putInMemory(String key, ResultadoAnalisis result) {
+
+        long bytes = estimateBytes(result);
+        if(bytes > maxBytes){
+            return;
+        }
+
+        Entrada previous = memory.put(key, new Entrada(result, bytes));
+        if(previous != null){
+            memoryBytes -= previous.bytes;
+        }
+        memoryBytes += bytes;
+
+        // Descarta los resultados usados hace más tiempo
+        Iterator<Entrada> eldest = memory.values().iterator();
+        while(memoryBytes > maxBytes && eldest.hasNext()){
+            memoryBytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Estima la memoria que ocupa un resultado: las cuatro columnas de la
+     * tabla de tokens, su pool de lexemas, los símbolos, los diagnósticos y
+     * el JSON ya generado
+     */
+    private static long estimateBytes(ResultadoAnalisis result) {
+
+        TablaTokens tokens = result.getTokens();
+        PoolLexemas pool = tokens.getPool();
+
+        return 16L * tokens.size()
+            + 2L * pool.getBytes().length + 48L * pool.size()
+            + 96L * (result.getSymbols().getVariables().size() + result.getSymbols().getAddresses().size())
+            + 64L * result.getSymbols().getJumpCount()
+            + 160L * result.getDiagnostics().size()
+            + result.toJsonBytes().length;
+
+    }
+
+    /**
+     * Calcula un hash de 128 bits del contenido, procesando ocho bytes a la
+     * vez en dos carriles independientes
+     *
+     * @param content Los bytes a procesar
+     * @return El hash como 32 dígitos hexadecimales
+     */
+    public static String hash(byte[] content) {
+
+        long h1 = 0x9E3779B97F4A7C15L ^ content.length;
+        long h2 = 0xC2B2AE3D27D4EB4FL ^ ((long) content.length << 32);
+
+        int blocks = content.length >>> 3;
+        for(int i = 0; i < blocks; i++){
+            long k = (long) LONGS.get(content, i << 3);
+            h1 = Long.rotateLeft(h1 ^ (k * 0x87C37B91114253D5L), 31) * 0x4CF5AD432745937FL;
+            h2 = Long.rotateLeft(h2 ^ (k * 0x4CF5AD432745937FL), 33) * 0x87C37B91114253D5L + h1;
+        }
+
+        long tail = 0;
+        for(int i = content.length - 1; i >= blocks << 3; i--){
+            tail = (tail << 8) | (content[i] & 0xFF);
+        }
+        h1 ^= tail * 0x87C37B91114253D5L;
+        h2 ^= Long.rotateLeft(tail, 29) * 0x4CF5AD432745937FL;
+
+        h1 += h2;
+        h2 += h1;
+        h1 = mix(h1);
+        h2 = mix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        return String.format("%016x%016x", h1, h2);
+
+    }
+
+    private static long mix(long h) {
+
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+
+    }
+
+    /**
+     * Lee un resultado del nivel en disco. Un archivo ilegible se trata
+     * como si no existiera
+     *
+     * @return El resultado, o null si no está en disco
+     */
+    private ResultadoAnalisis readFromDisk(String key) {
+
+        if(diskDir == null){
+            return null;
+        }
+
+        File file = new File(diskDir, key + ".res");
+        if(!file.isFile()){
+            return null;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))){
+            return readResult(in);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Guarda un resultado en el nivel en disco. El archivo se escribe con
+     * otro nombre y se renombra, por lo que un lector nunca ve un archivo
+     * a medio escribir
+     */
+    private void writeToDisk(String key, ResultadoAnalisis result) throws IOException {
+
+        if(diskDir == null){
+            return;
+        }
+
+        diskDir.mkdirs();
+        File file = new File(diskDir, key + ".res");
+        File temporary = File.createTempFile(key, ".tmp", diskDir);
+
+        try {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))){
+                writeResult(out, result);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temporary.delete();
+        }
+
+    }
+
+    private static void writeResult(DataOutputStream out, ResultadoAnalisis result) throws IOException {
+
+        out.writeInt(DISK_MAGIC);
+        out.writeInt(DISK_VERSION);
+
+        TablaTokens tokens = result.getTokens();
+        PoolLexemas pool = tokens.getPool();
+
+        out.writeInt(pool.size());
+        for(int id = 0; id < pool.size(); id++){
+            out.writeInt(pool.getByteLength(id));
+            out.write(pool.getBytes(), pool.getByteOffset(id), pool.getByteLength(id));
+        }
+
+        out.writeInt(tokens.size());
+        for(int i = 0; i < tokens.size(); i++){
+            out.writeInt(tokens.getToken(i));
+            out.writeInt(tokens.getLexemaId(i));
+            out.writeInt(tokens.getPosicionTabla(i));
+            out.writeInt(tokens.getNumLinea(i));
+        }
+
+        TablaSimbolos symbols = result.getSymbols();
+        writeSymbols(out, symbols.getAddresses());
+        writeSymbols(out, symbols.getVariables());
+
+        out.writeInt(symbols.getJumpCount());
+        for(int row = 0; row < symbols.getJumpCount(); row++){
+            out.writeInt(symbols.getJumpToken(row));
+            out.writeUTF(symbols.getJumpLexema(row));
+            out.writeInt(symbols.getJumpLine(row));
+            out.writeInt(symbols.getJumpAddress(row));
+        }
+
+        List<Diagnostico> diagnostics = result.getDiagnostics().getDiagnosticos();
+        out.writeInt(diagnostics.size());
+        for(Diagnostico diagnostic : diagnostics){
+            out.writeUTF(diagnostic.getTipo().name());
+            out.writeUTF(diagnostic.getLexema());
+            out.writeInt(diagnostic.getNumLinea());
+            out.writeInt(diagnostic.getIndiceToken());
+            out.writeUTF(diagnostic.getMensaje());
+        }
+
+    }
+
+    private static void writeSymbols(DataOutputStream out, List<Simbolo> symbols) throws IOException {
+
+        out.writeInt(symbols.size());
+        for(Simbolo simbolo : symbols){
+            out.writeUTF(simbolo.getLexema());
+            out.writeInt(simbolo.getToken());
+            out.writeUTF(simbolo.getTipo());
+            out.writeUTF(simbolo.getValorPorDefecto());
+            out.writeUTF(simbolo.getAmbito().getNombre());
+            out.writeInt(simbolo.getSlot());
+            out.writeInt(simbolo.getNumLinea());
+        }
+
+    }
+
+    private static ResultadoAnalisis readResult(DataInputStream in) throws IOException {
+
+        if(in.readInt() != DISK_MAGIC || in.readInt() != DISK_VERSION){
+            throw new IOException("Formato de caché desconocido");
+        }
+
+        PoolLexemas pool = new PoolLexemas();
+        int poolSize = in.readInt();
+        for(int id = 0; id < poolSize; id++){
+            byte[] lexema = new byte[in.readInt()];
+            in.readFully(lexema);
+            pool.intern(lexema, 0, lexema.length);
+        }
+
+        int tokenCount = in.readInt();
+        TablaTokens tokens = new TablaTokens(tokenCount, pool);
+        for(int i = 0; i < tokenCount; i++){
+            tokens.add(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        }
+
+        // Los ámbitos se reconstruyen por nombre, anidados en el orden en
+        // que aparecen
+        TablaSimbolos symbols = new TablaSimbolos(pool);
+        Map<String, Ambito> scopes = new HashMap<String, Ambito>();
+        scopes.put(symbols.getCurrentScope().getNombre(), symbols.getCurrentScope());
+        readSymbols(in, symbols, scopes, true);
+        readSymbols(in, symbols, scopes, false);
+
+        int jumpCount = in.readInt();
+        for(int row = 0; row < jumpCount; row++){
+            symbols.addJump(in.readInt(), in.readUTF(), in.readInt(), in.readInt());
+        }
+
+        Diagnosticos diagnostics = new Diagnosticos();
+        int diagnosticCount = in.readInt();
+        for(int i = 0; i < diagnosticCount; i++){
+            diagnostics.add(new Diagnostico(
+                Diagnostico.Tipo.valueOf(in.readUTF()), in.readUTF(), in.readInt(), in.readInt(), in.readUTF()
+            ));
+        }
+
+        return new ResultadoAnalisis(symbols, tokens, diagnostics).freeze();
+
+    }
+
+    private static void readSymbols(
+        DataInputStream in, TablaSimbolos symbols, Map<String, Ambito> scopes, boolean address
+    ) throws IOException {
+
+        int count = in.readInt();
+        for(int i = 0; i < count; i++){
+
+            String lexema = in.readUTF();
+            int token = in.readInt();
+            String tipo = in.readUTF();
+            String valorPorDefecto = in.readUTF();
+            String scopeName = in.readUTF();
+
+            Ambito scope = scopes.get(scopeName);
+            if(scope == null){
+                scope = symbols.enterScope(scopeName);
+                scopes.put(scopeName, scope);
+            }
+
+            int lexemaId = symbols.getPool().intern(lexema);
+            symbols.restore(
+                new Simbolo(lexemaId, symbols.getPool().get(lexemaId), token, tipo, valorPorDefecto, scope, in.readInt(), in.readInt()),
+                address
+            );
+
+        }
+
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized int getEntryCount() {
+        return memory.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Formatea los contadores de la caché como un objeto JSON
+     *
+     * @return Los contadores en formato JSON
+     */
+    public synchronized String toJson() {
+
+        return "{\"aciertos\":" + hits.get()
+            + ",\"aciertosDisco\":" + diskHits.get()
+            + ",\"fallos\":" + misses.get()
+            + ",\"desalojos\":" + evictions.get()
+            + ",\"entradas\":" + memory.size()
+            + ",\"bytes\":" + memoryBytes
+            + ",\"bytesMaximos\":" + maxBytes + "}";
+
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        return String.format(
+            "Caché: %d aciertos, %d aciertos en disco, %d fallos, %d desalojos, %d entradas (%.1f de %.1f MB)",
+            hits.get(), diskHits.get(), misses.get(), evictions.get(),
+            memory.size(), memoryBytes / 1048576.0, maxBytes / 1048576.0
+        );
+
+    }
+
+}
@@ -0,0 +1,151 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/*
+ * Esta clase envía archivos de tokens a un ServidorAnalisis y recibe el
+ * resultado del análisis en formato JSON. Una misma conexión puede enviar
+ * varias solicitudes.
+ *
+ * Uso: ClienteAnalisis [puerto | --unix ruta] [archivo de tokens]
+ *
+ * Imprime el resultado y termina con código 0 si el programa es válido,
+ * 1 si tiene errores semánticos y 2 si la solicitud falló
+ */
+
+public class ClienteAnalisis implements Closeable {
+
+    private final SocketChannel channel;
+    private final InputStream   in;
+    private final OutputStream  out;
+
+    private ClienteAnalisis(SocketChannel channel) {
+        this.channel = channel;
+        this.in = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+    }
+
+    public static ClienteAnalisis connectTcp(int port) throws IOException {
+        return new ClienteAnalisis(
+            SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))
+        );
+    }
+
+    public static ClienteAnalisis connectUnix(Path path) throws IOException {
+
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(path));
+        return new ClienteAnalisis(channel);
+
+    }
+
+    public static void main(String[] args) {
+
+        int firstArg = 0;
+
+        try {
+
+            ClienteAnalisis client;
+            if(args.length > 1 && args[0].equals("--unix")){
+                client = connectUnix(Paths.get(args[1]));
+                firstArg = 2;
+            } else if(args.length > 0 && args[0].matches("\\d+")){
+                client = connectTcp(Integer.parseInt(args[0]));
+                firstArg = 1;
+            } else {
+                client = connectTcp(ServidorAnalisis.DEFAULT_PORT);
+            }
+
+            String result;
+            try(ClienteAnalisis connection = client){
+                result = connection.analyze(Files.readAllBytes(Paths.get(args.length > firstArg ? args[firstArg] : "tokens.txt")));
+            }
+
+            System.out.println(result);
+            if(!result.startsWith("{\"exito\":true")){
+                System.exit(1);
+            }
+
+        } catch (Exception e) {
+            System.err.println("Error en la solicitud de análisis: " + e.getMessage());
+            System.exit(2);
+        }
+
+    }
+
+    /**
+     * Envía un archivo de tokens y espera el resultado
+     *
+     * @param tokens El contenido del archivo de tokens
+     * @return El resultado del análisis en formato JSON
+     * @throws IOException Si la conexión falla o el servidor rechaza la solicitud
+     */
+    public String analyze(byte[] tokens) throws IOException {
+
+        out.write(("ANALIZAR " + tokens.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(tokens);
+        out.flush();
+        return readResponse();
+
+    }
+
+    /**
+     * Comprueba que el servidor responde
+     */
+    public void ping() throws IOException {
+
+        out.write("PING\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        readResponse();
+
+    }
+
+    private String readResponse() throws IOException {
+
+        StringBuilder header = new StringBuilder();
+        int b;
+        while((b = in.read()) != '\n'){
+            if(b < 0){
+                throw new IOException("El servidor cerró la conexión");
+            }
+            header.append((char) b);
+        }
+
+        int space = header.indexOf(" ");
+        if(space < 0){
+            throw new IOException("Respuesta mal formada: " + header);
+        }
+
+        int length = Integer.parseInt(header.substring(space + 1));
+        byte[] body = in.readNBytes(length);
+        if(body.length < length){
+            throw new IOException("El servidor cerró la conexión");
+        }
+
+        String text = new String(body, StandardCharsets.UTF_8);
+        if(!header.substring(0, space).equals("OK")){
+            throw new IOException(text);
+        }
+        return text;
+
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
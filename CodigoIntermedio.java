@@ -0,0 +1,332 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/*
+ * Esta clase guarda el vector de código intermedio (VCI) de un programa:
+ * el cuerpo en notación postfija como un arreglo de enteros, con los
+ * saltos de los estatutos de control ya resueltos a direcciones del
+ * vector.
+ *
+ * Cada instrucción es una palabra con el código de operación en el byte
+ * bajo y el tipo de dato con que opera (el ordinal de TipoDato) en los
+ * bits siguientes, seguida de un operando si la instrucción lo tiene:
+ *
+ *   CARGAR_VARIABLE slot       Apila el valor de una variable
+ *   CARGAR_CONSTANTE índice    Apila una constante de la tabla de constantes
+ *   OPERACION token            Desapila dos valores y apila el resultado
+ *   OPERACION_UNARIA token     Desapila un valor y apila el resultado
+ *   ASIGNAR slot               Desapila un valor y lo guarda en una variable
+ *   LEER slot                  Lee un valor de la entrada en una variable,
+ *                              o lo descarta si el slot es -1
+ *   ESCRIBIR                   Desapila un valor y lo escribe en la salida
+ *   DESCARTAR                  Desapila un valor
+ *   CONVERTIR_REAL             Convierte el entero de la cima de la pila a real
+ *   SALTAR dirección           Continúa en la dirección
+ *   SALTAR_SI_FALSO dirección  Desapila un valor logico y salta si es falso
+ *   TERMINAR                   Termina el programa
+ *
+ * En las operaciones el tipo es el de los operandos, con los enteros ya
+ * promovidos a real con CONVERTIR_REAL si el otro operando es real; en
+ * ASIGNAR y LEER es el de la variable. Las instrucciones sin tipo llevan
+ * el tipo ERROR.
+ *
+ * Junto con el código se guarda una tabla de direcciones con el mismo
+ * formato que la tabla de direcciones del análisis (token, lexema, línea,
+ * vci): una fila por cada salto, con la palabra reservada del estatuto
+ * que lo genera y la dirección a la que salta.
+ *
+ * Formato binario (enteros big-endian, cadenas en UTF-8 modificado):
+ *   "VCI1", versión
+ *   variables: cantidad, y por cada posición: tipo (byte), lexema, valor por defecto
+ *   constantes: cantidad, y por cada una: tipo (byte), lexema
+ *   código: longitud, palabras
+ *   direcciones: cantidad, y por cada fila: token, lexema, línea, dirección
+ */
+
+public class CodigoIntermedio {
+
+    public static final int     BINARY_MAGIC = 0x56434931;     // "VCI1"
+    public static final int     BINARY_VERSION = 2;
+
+    // Códigos de operación
+    public static final int     TERMINAR = 0;
+    public static final int     CARGAR_VARIABLE = 1;
+    public static final int     CARGAR_CONSTANTE = 2;
+    public static final int     OPERACION = 3;
+    public static final int     OPERACION_UNARIA = 4;
+    public static final int     ASIGNAR = 5;
+    public static final int     LEER = 6;
+    public static final int     ESCRIBIR = 7;
+    public static final int     DESCARTAR = 8;
+    public static final int     SALTAR = 9;
+    public static final int     SALTAR_SI_FALSO = 10;
+    public static final int     CONVERTIR_REAL = 11;
+
+    private static final String[] NOMBRES = {
+        "TERMINAR", "CARGAR_VARIABLE", "CARGAR_CONSTANTE", "OPERACION", "OPERACION_UNARIA",
+        "ASIGNAR", "LEER", "ESCRIBIR", "DESCARTAR", "SALTAR", "SALTAR_SI_FALSO", "CONVERTIR_REAL"
+    };
+
+    private static final TipoDato[] TIPOS = TipoDato.values();
+
+    private final TipoDato[]    variableTypes;
+    private final String[]      variableNames;
+    private final String[]      variableDefaults;
+    private final TipoDato[]    constantTypes;
+    private final String[]      constants;
+    private final int[]         code;
+
+    private final int[]         addressTokens;
+    private final String[]      addressLexemas;
+    private final int[]         addressLines;
+    private final int[]         addresses;
+
+    public CodigoIntermedio(
+        TipoDato[] variableTypes, String[] variableNames, String[] variableDefaults,
+        TipoDato[] constantTypes, String[] constants,
+        int[] code,
+        int[] addressTokens, String[] addressLexemas, int[] addressLines, int[] addresses
+    ) {
+        this.variableTypes = variableTypes;
+        this.variableNames = variableNames;
+        this.variableDefaults = variableDefaults;
+        this.constantTypes = constantTypes;
+        this.constants = constants;
+        this.code = code;
+        this.addressTokens = addressTokens;
+        this.addressLexemas = addressLexemas;
+        this.addressLines = addressLines;
+        this.addresses = addresses;
+    }
+
+    /**
+     * Arma la palabra de una instrucción
+     *
+     * @param opcode El código de operación
+     * @param tipo El tipo de dato con que opera
+     * @return La palabra de la instrucción
+     */
+    public static int word(int opcode, TipoDato tipo) {
+        return opcode | tipo.ordinal() << 8;
+    }
+
+    public static int opcode(int word) {
+        return word & 0xFF;
+    }
+
+    public static TipoDato tipo(int word) {
+        return TIPOS[word >>> 8];
+    }
+
+    /**
+     * @return Verdadero si la instrucción va seguida de un operando
+     */
+    public static boolean hasOperand(int opcode) {
+        return opcode != TERMINAR && opcode != ESCRIBIR && opcode != DESCARTAR && opcode != CONVERTIR_REAL;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public int getVariableCount() {
+        return variableTypes.length;
+    }
+
+    public TipoDato getVariableType(int slot) {
+        return variableTypes[slot];
+    }
+
+    public String getVariableName(int slot) {
+        return variableNames[slot];
+    }
+
+    /**
+     * @return El valor por defecto de la variable, como en la tabla de símbolos
+     */
+    public String getVariableDefault(int slot) {
+        return variableDefaults[slot];
+    }
+
+    public int getConstantCount() {
+        return constants.length;
+    }
+
+    public TipoDato getConstantType(int index) {
+        return constantTypes[index];
+    }
+
+    public String getConstant(int index) {
+        return constants[index];
+    }
+
+    public int getAddressCount() {
+        return addresses.length;
+    }
+
+    public int getAddressToken(int row) {
+        return addressTokens[row];
+    }
+
+    public String getAddressLexema(int row) {
+        return addressLexemas[row];
+    }
+
+    public int getAddressLine(int row) {
+        return addressLines[row];
+    }
+
+    public int getAddress(int row) {
+        return addresses[row];
+    }
+
+    /**
+     * Escribe el código en formato binario
+     *
+     * @param file El archivo de destino
+     */
+    public void write(File file) throws IOException {
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))){
+
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+
+            out.writeInt(variableTypes.length);
+            for(int slot = 0; slot < variableTypes.length; slot++){
+                out.writeByte(variableTypes[slot].ordinal());
+                out.writeUTF(variableNames[slot]);
+                out.writeUTF(variableDefaults[slot]);
+            }
+
+            out.writeInt(constants.length);
+            for(int i = 0; i < constants.length; i++){
+                out.writeByte(constantTypes[i].ordinal());
+                out.writeUTF(constants[i]);
+            }
+
+            out.writeInt(code.length);
+            for(int word : code){
+                out.writeInt(word);
+            }
+
+            out.writeInt(addresses.length);
+            for(int row = 0; row < addresses.length; row++){
+                out.writeInt(addressTokens[row]);
+                out.writeUTF(addressLexemas[row]);
+                out.writeInt(addressLines[row]);
+                out.writeInt(addresses[row]);
+            }
+
+        }
+
+    }
+
+    /**
+     * Lee un código escrito con write()
+     *
+     * @param file El archivo de código
+     * @return El código leído
+     */
+    public static CodigoIntermedio read(File file) throws IOException {
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))){
+
+            if(in.readInt() != BINARY_MAGIC || in.readInt() != BINARY_VERSION){
+                throw new IOException("El archivo " + file + " no es un VCI válido");
+            }
+
+            int variableCount = in.readInt();
+            TipoDato[] variableTypes = new TipoDato[variableCount];
+            String[] variableNames = new String[variableCount];
+            String[] variableDefaults = new String[variableCount];
+            for(int slot = 0; slot < variableCount; slot++){
+                variableTypes[slot] = TIPOS[in.readUnsignedByte()];
+                variableNames[slot] = in.readUTF();
+                variableDefaults[slot] = in.readUTF();
+            }
+
+            int constantCount = in.readInt();
+            TipoDato[] constantTypes = new TipoDato[constantCount];
+            String[] constants = new String[constantCount];
+            for(int i = 0; i < constantCount; i++){
+                constantTypes[i] = TIPOS[in.readUnsignedByte()];
+                constants[i] = in.readUTF();
+            }
+
+            int[] code = new int[in.readInt()];
+            for(int i = 0; i < code.length; i++){
+                code[i] = in.readInt();
+            }
+
+            int addressCount = in.readInt();
+            int[] addressTokens = new int[addressCount];
+            String[] addressLexemas = new String[addressCount];
+            int[] addressLines = new int[addressCount];
+            int[] addresses = new int[addressCount];
+            for(int row = 0; row < addressCount; row++){
+                addressTokens[row] = in.readInt();
+                addressLexemas[row] = in.readUTF();
+                addressLines[row] = in.readInt();
+                addresses[row] = in.readInt();
+            }
+
+            return new CodigoIntermedio(
+                variableTypes, variableNames, variableDefaults, constantTypes, constants, code,
+                addressTokens, addressLexemas, addressLines, addresses
+            );
+
+        }
+
+    }
+
+    /**
+     * Formatea el código como una lista de instrucciones, una por línea,
+     * precedidas por su dirección
+     *
+     * @return El listado del código
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder text = new StringBuilder();
+
+        for(int pc = 0; pc < code.length; ){
+
+            int word = code[pc];
+            int opcode = opcode(word);
+            text.append(pc).append(": ").append(NOMBRES[opcode]);
+            if(opcode != SALTAR && opcode != TERMINAR){
+                text.append(' ').append(tipo(word).getNombre());
+            }
+
+            if(hasOperand(opcode)){
+                int operand = code[pc + 1];
+                text.append(' ');
+                if(opcode == CARGAR_VARIABLE || opcode == ASIGNAR || opcode == LEER){
+                    text.append(operand < 0 ? "-" : variableNames[operand]);
+                } else if(opcode == CARGAR_CONSTANTE){
+                    text.append(constants[operand]);
+                } else {
+                    text.append(operand);
+                }
+                pc += 2;
+            } else {
+                pc++;
+            }
+
+            text.append(System.lineSeparator());
+
+        }
+
+        return text.toString();
+
+    }
+
+}
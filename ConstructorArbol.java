@@ -0,0 +1,582 @@
+/*
+ * Esta clase construye el ArbolPrograma a partir de la tabla de tokens en
+ * una sola pasada.
+ *
+ * La sección de variables se agrupa en declaraciones: cada grupo de
+ * identificadores termina en un punto y coma, y el token anterior al punto
+ * y coma es el tipo de dato anunciado.
+ *
+ * El cuerpo se analiza con un analizador descendente. Las expresiones
+ * respetan la precedencia de los operadores (de menor a mayor):
+ *   o
+ *   y
+ *   no
+ *   relacionales (<, <=, >, >=, ==, <>)
+ *   suma y resta
+ *   multiplicación, división y módulo
+ *   signo
+ *
+ * La tabla de tokens ya pasó por el analizador sintáctico, pero la
+ * construcción no falla con tokens inesperados: una expresión mal formada
+ * se reemplaza por un nodo ERROR y los tokens sueltos se ignoran.
+ *
+ * La profundidad del árbol se limita a MAX_DEPTH niveles, contando los
+ * estatutos anidados, los paréntesis, los operadores unarios y cada
+ * operador de una cadena como "a + b + c", que se asocia a la izquierda.
+ * Así un programa muy anidado no agota la pila del analizador ni la de los
+ * recorridos del árbol. Lo que pasa del límite se reemplaza también por un
+ * nodo ERROR.
+ */
+
+public class ConstructorArbol {
+
+    // Se lanza para abandonar una expresión mal formada. No guarda la pila
+    // de llamadas, ya que se usa como control de flujo
+    private static final class ExpresionMalFormada extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ExpresionMalFormada() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final ExpresionMalFormada MALFORMED = new ExpresionMalFormada();
+
+    public static final int     MAX_DEPTH = 500;
+
+    // Un paréntesis vuelve a recorrer todas las reglas de precedencia, así
+    // que cuenta como un nivel por regla
+    private static final int    PRECEDENCE_LEVELS = 8;
+
+    private final TablaTokens   tokens;
+    private final ArbolPrograma tree;
+    private int                 pos;
+    private int                 limit;
+    private int                 errorPos;
+    private int                 depth;
+
+    private ConstructorArbol(TablaTokens tokens, int capacity) {
+        this.tokens = tokens;
+        this.tree = new ArbolPrograma(tokens, capacity);
+    }
+
+    /**
+     * Construye el árbol de un programa completo
+     *
+     * @param tokens La tabla de tokens del programa
+     * @param bodyStart El índice del primer token del cuerpo
+     * @return El árbol del programa
+     */
+    public static ArbolPrograma build(TablaTokens tokens, int bodyStart) {
+
+        ConstructorArbol builder = new ConstructorArbol(tokens, tokens.size());
+        ArbolPrograma tree = builder.tree;
+
+        int root = tree.add(ArbolPrograma.PROGRAMA, 0);
+        tree.setRoot(root);
+        builder.buildDeclarations(root, bodyStart);
+        tree.appendChild(root, builder.buildStatements(bodyStart, tokens.size()));
+
+        return tree;
+
+    }
+
+    /**
+     * Construye el árbol de un rango de estatutos del cuerpo. Se usa para
+     * revisar de nuevo un rango editado sin reconstruir todo el programa
+     *
+     * @param tokens La tabla de tokens del programa
+     * @param from El índice del primer token del rango
+     * @param to El índice siguiente al último token del rango. Un estatuto
+     *          que empieza dentro del rango se lee completo
+     * @return Un árbol cuya raíz es el CUERPO del rango
+     */
+    public static ArbolPrograma buildRange(TablaTokens tokens, int from, int to) {
+
+        ConstructorArbol builder = new ConstructorArbol(tokens, to - from);
+        builder.tree.setRoot(builder.buildStatements(from, to));
+        return builder.tree;
+
+    }
+
+    private void buildDeclarations(int root, int bodyStart) {
+
+        // Las declaraciones abiertas desde el último punto y coma reciben
+        // el tipo anunciado al cerrarse
+        int firstOpen = tree.size();
+        int group = ArbolPrograma.NINGUNO;
+
+        for(int index = 0; index < bodyStart; index++){
+
+            int token = tokens.getToken(index);
+
+            if(token == Sintaxis.PUNTOCOMA){
+                for(int node = firstOpen; node < tree.size(); node++){
+                    if(tree.getClase(node) == ArbolPrograma.DECLARACION){
+                        tree.setTokenIndex(node, index - 1);
+                    }
+                }
+                firstOpen = tree.size();
+                group = ArbolPrograma.NINGUNO;
+            }
+            else if(token == Sintaxis.GENERAL_ID){
+                tree.appendChild(root, tree.add(ArbolPrograma.NOMBRE_PROGRAMA, index));
+                group = ArbolPrograma.NINGUNO;
+            }
+            else if(Sintaxis.isIdentifier(token)){
+                if(group == ArbolPrograma.NINGUNO){
+                    group = tree.add(ArbolPrograma.DECLARACION, ArbolPrograma.NINGUNO);
+                    tree.appendChild(root, group);
+                }
+                tree.appendChild(group, tree.add(ArbolPrograma.IDENTIFICADOR, index));
+            }
+
+        }
+
+    }
+
+    private int buildStatements(int from, int to) {
+
+        pos = from;
+        limit = to;
+
+        int body = tree.add(ArbolPrograma.CUERPO, from);
+        while(pos < limit){
+            tree.appendChild(body, parseStatement());
+        }
+        return body;
+
+    }
+
+    /**
+     * Lee un estatuto a partir de la posición actual
+     *
+     * @return El nodo del estatuto, o NINGUNO si el token actual no inicia
+     *          un estatuto y se ignoró
+     */
+    private int parseStatement() {
+
+        int token = current();
+
+        if(
+            token == Sintaxis.INICIO || token == Sintaxis.IF
+            || token == Sintaxis.MIENTRAS || token == Sintaxis.REPETIR
+        ){
+            if(depth >= MAX_DEPTH){
+                return skipNested();
+            }
+            depth++;
+            int node = parseCompoundStatement(token);
+            depth--;
+            return node;
+        }
+
+        // Un "hasta" sin su "repetir" aparece al revisar un rango editado
+        if(token == Sintaxis.HASTA){
+            return parseCondition(Sintaxis.PUNTOCOMA);
+        }
+
+        if(token == Sintaxis.LEER || token == Sintaxis.ESCRIBIR){
+            return parseInputOutput(token == Sintaxis.LEER ? ArbolPrograma.LEER : ArbolPrograma.ESCRIBIR);
+        }
+
+        if(Sintaxis.isIdentifier(token)){
+            if(pos + 1 < tokens.size() && tokens.getToken(pos + 1) == Sintaxis.ASIGN_OP){
+                int node = tree.add(ArbolPrograma.ASIGNACION, pos);
+                pos += 2;
+                tree.appendChild(node, parseTerminatedExpression(Sintaxis.PUNTOCOMA));
+                consume(Sintaxis.PUNTOCOMA);
+                return node;
+            }
+            return tree.add(ArbolPrograma.IDENTIFICADOR, pos++);
+        }
+
+        // Cualquier otro token (punto y coma, "fin" o "sino" sueltos) se ignora
+        pos++;
+        return ArbolPrograma.NINGUNO;
+
+    }
+
+    /**
+     * Lee un bloque o un estatuto si, mientras o repetir, con los estatutos
+     * que contiene
+     */
+    private int parseCompoundStatement(int token) {
+
+        if(token == Sintaxis.INICIO){
+            int block = tree.add(ArbolPrograma.BLOQUE, pos++);
+            while(pos < limit && current() != Sintaxis.FIN){
+                tree.appendChild(block, parseStatement());
+            }
+            if(current() == Sintaxis.FIN){
+                pos++;
+            }
+            return block;
+        }
+
+        if(token == Sintaxis.IF){
+            int node = tree.add(ArbolPrograma.SI, pos);
+            tree.appendChild(node, parseCondition(Sintaxis.ENTONCES));
+            int then = parseNestedStatement();
+            // Una rama vacía se representa con un bloque vacío, para que la
+            // rama sino siga siendo el tercer hijo
+            if(then == ArbolPrograma.NINGUNO && current() == Sintaxis.SINO){
+                then = tree.add(ArbolPrograma.BLOQUE, pos);
+            }
+            tree.appendChild(node, then);
+            if(current() == Sintaxis.SINO){
+                pos++;
+                tree.appendChild(node, parseNestedStatement());
+            }
+            return node;
+        }
+
+        if(token == Sintaxis.REPETIR){
+            int node = tree.add(ArbolPrograma.REPETIR, pos++);
+            tree.appendChild(node, parseNestedStatement());
+            if(current() == Sintaxis.HASTA){
+                tree.appendChild(node, parseCondition(Sintaxis.PUNTOCOMA));
+            }
+            return node;
+        }
+
+        int node = tree.add(ArbolPrograma.MIENTRAS, pos);
+        tree.appendChild(node, parseCondition(Sintaxis.HACER));
+        tree.appendChild(node, parseNestedStatement());
+        return node;
+
+    }
+
+    /**
+     * Reemplaza por un nodo ERROR un estatuto que pasa del anidamiento
+     * máximo. Se saltan sus tokens sin recursión hasta el punto y coma o el
+     * "fin" que lo cierra; los identificadores saltados se conservan como
+     * hijos del nodo
+     */
+    private int skipNested() {
+
+        int error = tree.add(ArbolPrograma.ERROR, pos);
+        int open = 0;
+
+        while(pos < tokens.size()){
+
+            int token = current();
+            if(token == Sintaxis.FIN && open == 0){
+                break;
+            }
+
+            if(Sintaxis.isIdentifier(token)){
+                tree.appendChild(error, tree.add(ArbolPrograma.IDENTIFICADOR, pos));
+            }
+            pos++;
+
+            if(token == Sintaxis.INICIO){
+                open++;
+            }
+            else if(token == Sintaxis.FIN && --open == 0){
+                break;
+            }
+            else if(token == Sintaxis.PUNTOCOMA && open == 0){
+                break;
+            }
+
+        }
+
+        return error;
+
+    }
+
+    private int parseNestedStatement() {
+        return pos < limit ? parseStatement() : ArbolPrograma.NINGUNO;
+    }
+
+    /**
+     * Lee la condición de un estatuto de control, desde su palabra reservada
+     * hasta el token que la termina
+     */
+    private int parseCondition(int terminator) {
+
+        int node = tree.add(ArbolPrograma.CONDICION, pos++);
+        tree.appendChild(node, parseTerminatedExpression(terminator));
+        consume(terminator);
+        return node;
+
+    }
+
+    /**
+     * Lee "leer" o "escribir" con sus argumentos entre paréntesis
+     */
+    private int parseInputOutput(int clase) {
+
+        int node = tree.add(clase, pos++);
+        int mark = tree.size();
+        int start = pos;
+        int outer = depth;
+
+        try {
+
+            expect(Sintaxis.PAR_ABRIR);
+            int first = current() == Sintaxis.PAR_CERRAR ? ArbolPrograma.NINGUNO : parseExpression();
+            expect(Sintaxis.PAR_CERRAR);
+            tree.appendChild(node, first);
+
+        } catch (ExpresionMalFormada e) {
+            depth = outer;
+            tree.truncate(mark);
+            tree.appendChild(node, recover(start, Sintaxis.PUNTOCOMA));
+        }
+
+        consume(Sintaxis.PUNTOCOMA);
+        return node;
+
+    }
+
+    /**
+     * Lee una expresión que debe terminar en un token dado, sin consumirlo.
+     * Si la expresión está mal formada devuelve un nodo ERROR
+     */
+    private int parseTerminatedExpression(int terminator) {
+
+        int mark = tree.size();
+        int start = pos;
+        int outer = depth;
+
+        try {
+
+            int expression = parseExpression();
+            if(current() != terminator){
+                throw malformed();
+            }
+            return expression;
+
+        } catch (ExpresionMalFormada e) {
+            depth = outer;
+            tree.truncate(mark);
+            return recover(start, terminator);
+        }
+
+    }
+
+    /**
+     * Construye el nodo ERROR de una expresión mal formada y avanza hasta el
+     * token que la termina, sin pasar de un límite de bloque. Los
+     * identificadores saltados se conservan como hijos del nodo
+     */
+    private int recover(int start, int terminator) {
+
+        int error = tree.add(ArbolPrograma.ERROR, errorPos);
+
+        for(int index = start; index < errorPos; index++){
+            if(Sintaxis.isIdentifier(tokens.getToken(index))){
+                tree.appendChild(error, tree.add(ArbolPrograma.IDENTIFICADOR, index));
+            }
+        }
+
+        pos = errorPos;
+        while(
+            pos < tokens.size()
+            && current() != terminator
+            && current() != Sintaxis.PUNTOCOMA
+            && current() != Sintaxis.INICIO
+            && current() != Sintaxis.FIN
+        ){
+            if(Sintaxis.isIdentifier(current())){
+                tree.appendChild(error, tree.add(ArbolPrograma.IDENTIFICADOR, pos));
+            }
+            pos++;
+        }
+
+        return error;
+
+    }
+
+    // expresión := y ( "o" y )*
+    private int parseExpression() {
+
+        int left = parseAnd();
+        int outer = depth;
+        while(current() == Sintaxis.OR_OP){
+            int operator = pos++;
+            nest(1);
+            left = binary(operator, left, parseAnd());
+        }
+        depth = outer;
+        return left;
+
+    }
+
+    // y := no ( "y" no )*
+    private int parseAnd() {
+
+        int left = parseNot();
+        int outer = depth;
+        while(current() == Sintaxis.AND_OP){
+            int operator = pos++;
+            nest(1);
+            left = binary(operator, left, parseNot());
+        }
+        depth = outer;
+        return left;
+
+    }
+
+    // no := "no" no | relacional
+    private int parseNot() {
+
+        if(current() == Sintaxis.NOT_OP){
+            int operator = pos++;
+            nest(1);
+            int operand = parseNot();
+            depth--;
+            return unary(operator, operand);
+        }
+        return parseRelational();
+
+    }
+
+    // relacional := suma ( operador-relacional suma )?
+    private int parseRelational() {
+
+        int left = parseSum();
+        if(Sintaxis.isRelationalOperator(current())){
+            int operator = pos++;
+            nest(1);
+            int right = parseSum();
+            depth--;
+            return binary(operator, left, right);
+        }
+        return left;
+
+    }
+
+    // suma := término ( ("+" | "-") término )*
+    private int parseSum() {
+
+        int left = parseTerm();
+        int outer = depth;
+        while(current() == Sintaxis.SUM_OP || current() == Sintaxis.RES_OP){
+            int operator = pos++;
+            nest(1);
+            left = binary(operator, left, parseTerm());
+        }
+        depth = outer;
+        return left;
+
+    }
+
+    // término := signo ( ("*" | "/" | "%") signo )*
+    private int parseTerm() {
+
+        int left = parseUnary();
+        int outer = depth;
+        while(current() == Sintaxis.MUL_OP || current() == Sintaxis.DIV_OP || current() == Sintaxis.MOD_OP){
+            int operator = pos++;
+            nest(1);
+            left = binary(operator, left, parseUnary());
+        }
+        depth = outer;
+        return left;
+
+    }
+
+    // signo := ("-" | "+") signo | primario
+    private int parseUnary() {
+
+        if(current() == Sintaxis.RES_OP || current() == Sintaxis.SUM_OP){
+            int operator = pos++;
+            nest(1);
+            int operand = parseUnary();
+            depth--;
+            return unary(operator, operand);
+        }
+        return parsePrimary();
+
+    }
+
+    // primario := constante | identificador | "(" expresión ")"
+    private int parsePrimary() {
+
+        int token = current();
+
+        if(token == Sintaxis.PAR_ABRIR){
+            nest(PRECEDENCE_LEVELS);
+            pos++;
+            int inner = parseExpression();
+            expect(Sintaxis.PAR_CERRAR);
+            depth -= PRECEDENCE_LEVELS;
+            return inner;
+        }
+
+        if(Sintaxis.isConstant(token)){
+            return tree.add(ArbolPrograma.CONSTANTE, pos++);
+        }
+
+        if(Sintaxis.isIdentifier(token)){
+            return tree.add(ArbolPrograma.IDENTIFICADOR, pos++);
+        }
+
+        throw malformed();
+
+    }
+
+    private int binary(int operator, int left, int right) {
+
+        int node = tree.add(ArbolPrograma.BINARIA, operator);
+        tree.appendChild(node, left);
+        tree.appendChild(node, right);
+        return node;
+
+    }
+
+    private int unary(int operator, int operand) {
+
+        int node = tree.add(ArbolPrograma.UNARIA, operator);
+        tree.appendChild(node, operand);
+        return node;
+
+    }
+
+    private int current() {
+        return pos < tokens.size() ? tokens.getToken(pos) : 0;
+    }
+
+    private void expect(int token) {
+
+        if(current() != token){
+            throw malformed();
+        }
+        pos++;
+
+    }
+
+    /**
+     * Entra a un nivel de anidamiento de una expresión. Una expresión que
+     * pasa del máximo se trata como mal formada desde el token actual.
+     * Quien llama restaura depth al salir del nivel
+     *
+     * @param levels Los niveles que cuenta la regla
+     */
+    private void nest(int levels) {
+
+        if(depth + levels > MAX_DEPTH){
+            throw malformed();
+        }
+        depth += levels;
+
+    }
+
+    private void consume(int token) {
+
+        if(current() == token){
+            pos++;
+        }
+
+    }
+
+    private ExpresionMalFormada malformed() {
+        errorPos = Math.min(pos, tokens.size() - 1);
+        return MALFORMED;
+    }
+
+}
@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/*
+ * Esta clase analiza la sección de variables conforme se leen los tokens,
+ * sin esperar a tener la tabla completa. Es una máquina de estados que
+ * recibe cada token del LectorTokens, lo guarda en la tabla de la sesión
+ * y, mientras no llegue el primer "inicio", avanza la declaración actual:
+ *
+ *   - Un identificador se agrega al grupo pendiente
+ *   - Un punto y coma cierra el grupo: el tipo anunciado (el token
+ *     anterior) se resuelve una sola vez y se asigna a todo el grupo
+ *   - "inicio" cierra la sección; un grupo sin punto y coma se declara
+ *     sin tipo anunciado
+ *
+ * Solo se conservan los índices del grupo pendiente, por lo que la sección
+ * de variables se procesa en una sola pasada sin volver sobre los tokens.
+ * Los símbolos y diagnósticos son los mismos que produce
+ * AnalizadorSemantico.analyzeDeclarations sobre la tabla completa.
+ */
+
+public class DeclaracionesEnFlujo implements LectorTokens.ConsumidorTokens {
+
+    private final AnalizadorSemantico   session;
+    private final TablaTokens           tokens;
+    private final MetricasAnalisis      metrics;
+    private boolean                     inBody = false;
+    private long                        declarationNanos = 0;
+
+    // Índices del grupo pendiente en orden de aparición. Los nombres de
+    // programa se guardan como ~índice para declararlos en el mismo orden
+    private int[]                       pending = new int[16];
+    private int                         pendingCount = 0;
+
+    /**
+     * @param session La sesión cuyas tablas se llenan. Su tabla de tokens
+     *          debe estar vacía
+     */
+    public DeclaracionesEnFlujo(AnalizadorSemantico session) {
+        this.session = session;
+        this.tokens = session.getTokens();
+        this.metrics = session.getMetrics();
+    }
+
+    @Override
+    public void accept(int token, byte[] buffer, int lexemaOffset, int lexemaLength, int posicionTabla, int numLinea) {
+
+        int index = tokens.size();
+        tokens.accept(token, buffer, lexemaOffset, lexemaLength, posicionTabla, numLinea);
+
+        if(inBody){
+            return;
+        }
+
+        if(token == Sintaxis.INICIO){
+            flush(null);
+            end(index);
+        }
+        else if(token == Sintaxis.PUNTOCOMA){
+            flush(index > 0 ? tokens.getLexema(index - 1) : null);
+        }
+        else if(token == Sintaxis.GENERAL_ID){
+            push(~index);
+        }
+        else if(Sintaxis.isIdentifier(token)){
+            push(index);
+        }
+
+    }
+
+    /**
+     * Termina la sección de variables si el programa no tiene cuerpo.
+     * Debe llamarse al terminar la lectura
+     */
+    public void finish() {
+
+        if(!inBody){
+            flush(null);
+            end(tokens.size());
+        }
+
+    }
+
+    /**
+     * @return Verdadero si la sección de variables ya terminó
+     */
+    public boolean isFinished() {
+        return inBody;
+    }
+
+    private void end(int bodyStart) {
+
+        inBody = true;
+        session.endDeclarations(bodyStart);
+
+        // Las declaraciones se intercalan con la lectura, así que su fase
+        // suma solo el tiempo de declarar los grupos
+        if(metrics != null){
+            metrics.record(MetricasAnalisis.Fase.DECLARACIONES, declarationNanos, 0);
+        }
+
+    }
+
+    private void push(int entry) {
+
+        if(pendingCount == pending.length){
+            pending = Arrays.copyOf(pending, pendingCount << 1);
+        }
+        pending[pendingCount++] = entry;
+
+    }
+
+    /**
+     * Declara el grupo pendiente con su tipo anunciado
+     */
+    private void flush(String announcedDataType) {
+
+        long start = metrics == null ? 0 : System.nanoTime();
+
+        for(int i = 0; i < pendingCount; i++){
+            if(pending[i] < 0){
+                session.declareProgram(~pending[i]);
+            } else {
+                session.declareVariable(pending[i], announcedDataType);
+            }
+        }
+        pendingCount = 0;
+
+        if(metrics != null){
+            declarationNanos += System.nanoTime() - start;
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Esta clase representa un error semántico encontrado durante el análisis:
+ * su tipo, el lexema que lo causa, la línea en la que aparece y el índice
+ * del token en el flujo de tokens del programa
+ */
+
+public class Diagnostico {
+
+    public enum Tipo {
+        IDENTIFICADOR_REDECLARADO,
+        TIPO_NO_COINCIDE,
+        IDENTIFICADOR_NO_DECLARADO,
+        IDENTIFICADOR_NO_ES_VARIABLE,
+        ASIGNACION_INVALIDA,
+        CONDICION_INVALIDA,
+        OPERACION_INVALIDA,
+        EXPRESION_MAL_FORMADA,
+        CONDICION_CONSTANTE
+    }
+
+    private final Tipo      tipo;
+    private final String    lexema;
+    private final int       numLinea;
+    private final int       indiceToken;
+    private final String    mensaje;
+
+    public Diagnostico(Tipo tipo, String lexema, int numLinea, int indiceToken, String mensaje) {
+        this.tipo = tipo;
+        this.lexema = lexema;
+        this.numLinea = numLinea;
+        this.indiceToken = indiceToken;
+        this.mensaje = mensaje;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public String getLexema() {
+        return lexema;
+    }
+
+    public int getNumLinea() {
+        return numLinea;
+    }
+
+    public int getIndiceToken() {
+        return indiceToken;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    /**
+     * Formatea el diagnóstico como un objeto JSON
+     * 
+     * @return El diagnóstico en formato JSON
+     */
+    public String toJson() {
+
+        return "{"
+                + "\"tipo\":\"" + tipo + "\""
+                + ",\"lexema\":" + jsonString(lexema)
+                + ",\"linea\":" + numLinea
+                + ",\"indice\":" + indiceToken
+                + ",\"mensaje\":" + jsonString(mensaje)
+                + "}"
+        ;
+
+    }
+
+    /**
+     * Escapa una cadena para incluirla en un documento JSON
+     * 
+     * @param str La cadena a escapar
+     * @return La cadena entre comillas y escapada
+     */
+    public static String jsonString(String str) {
+
+        StringBuilder sb = new StringBuilder(str.length() + 2);
+        sb.append('"');
+        for(int i = 0; i < str.length(); i++){
+            char c = str.charAt(i);
+            switch(c){
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20){
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+        return sb.toString();
+
+    }
+
+    @Override
+    public String toString() {
+        return "Línea " + numLinea + ", token " + indiceToken + " (" + lexema + "): " + mensaje;
+    }
+
+}
@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Esta clase recolecta los diagnósticos de una sesión de análisis, de modo
+ * que el análisis continúe después de un error y se reporten todos los
+ * errores en una sola pasada
+ */
+
+public class Diagnosticos {
+
+    private final List<Diagnostico> diagnosticos = new ArrayList<Diagnostico>();
+
+    /**
+     * Registra un error semántico
+     * 
+     * @param tipo El tipo de error
+     * @param token El token que causa el error
+     * @param indiceToken El índice del token en el flujo de tokens
+     * @param mensaje La descripción del error
+     */
+    public void add(Diagnostico.Tipo tipo, Token token, int indiceToken, String mensaje) {
+        diagnosticos.add(new Diagnostico(tipo, token.getLexema(), token.getNumLinea(), indiceToken, mensaje));
+    }
+
+    /**
+     * Registra un error semántico causado por un token de una tabla de tokens
+     * 
+     * @param tipo El tipo de error
+     * @param tokens La tabla de tokens
+     * @param indiceToken El índice del token que causa el error
+     * @param mensaje La descripción del error
+     */
+    public void add(Diagnostico.Tipo tipo, TablaTokens tokens, int indiceToken, String mensaje) {
+        diagnosticos.add(
+            new Diagnostico(tipo, tokens.getLexema(indiceToken), tokens.getNumLinea(indiceToken), indiceToken, mensaje)
+        );
+    }
+
+    public void add(Diagnostico diagnostico) {
+        diagnosticos.add(diagnostico);
+    }
+
+    /**
+     * Reemplaza los diagnósticos de un rango de tokens editado. Los
+     * diagnósticos del rango se descartan, los posteriores se recorren
+     * según el cambio de tamaño y los nuevos se insertan en orden
+     * 
+     * @param from El índice del primer token del rango
+     * @param oldTo El índice siguiente al último token del rango, antes de la edición
+     * @param delta El cambio en la cantidad de tokens
+     * @param lineDelta El cambio en la cantidad de líneas
+     * @param replacement Los diagnósticos del rango después de la edición
+     */
+    public void replaceRange(int from, int oldTo, int delta, int lineDelta, Diagnosticos replacement) {
+
+        List<Diagnostico> merged = new ArrayList<Diagnostico>(diagnosticos.size() + replacement.size());
+        boolean inserted = false;
+
+        for(Diagnostico diagnostico : diagnosticos){
+
+            int index = diagnostico.getIndiceToken();
+
+            if(index >= from && !inserted){
+                merged.addAll(replacement.diagnosticos);
+                inserted = true;
+            }
+
+            if(index < from){
+                merged.add(diagnostico);
+            }
+            else if(index >= oldTo){
+                merged.add(delta == 0 && lineDelta == 0 ? diagnostico : new Diagnostico(
+                    diagnostico.getTipo(),
+                    diagnostico.getLexema(),
+                    diagnostico.getNumLinea() + lineDelta,
+                    index + delta,
+                    diagnostico.getMensaje()
+                ));
+            }
+        }
+
+        if(!inserted){
+            merged.addAll(replacement.diagnosticos);
+        }
+
+        diagnosticos.clear();
+        diagnosticos.addAll(merged);
+
+    }
+
+    /**
+     * Ordena por índice de token los diagnósticos registrados a partir de
+     * una posición. El orden es estable, así que los diagnósticos de un
+     * mismo token conservan el orden en que se registraron
+     * 
+     * @param start La posición del primer diagnóstico a ordenar
+     */
+    public void sortFrom(int start) {
+
+        if(diagnosticos.size() - start > 1){
+            diagnosticos.subList(start, diagnosticos.size())
+                .sort(Comparator.comparingInt(Diagnostico::getIndiceToken));
+        }
+
+    }
+
+    public List<Diagnostico> getDiagnosticos() {
+        return Collections.unmodifiableList(diagnosticos);
+    }
+
+    public boolean isEmpty() {
+        return diagnosticos.isEmpty();
+    }
+
+    public int size() {
+        return diagnosticos.size();
+    }
+
+    /**
+     * Formatea los diagnósticos como texto plano, uno por línea
+     * 
+     * @return Los diagnósticos en texto plano
+     */
+    public String toText() {
+
+        StringBuilder sb = new StringBuilder();
+        for(Diagnostico diagnostico : diagnosticos){
+            sb.append(diagnostico).append(System.lineSeparator());
+        }
+        return sb.toString();
+
+    }
+
+    /**
+     * Formatea los diagnósticos como un arreglo JSON
+     * 
+     * @return Los diagnósticos en formato JSON
+     */
+    public String toJson() {
+
+        StringBuilder sb = new StringBuilder("[");
+        for(int i = 0; i < diagnosticos.size(); i++){
+            if(i > 0){
+                sb.append(',');
+            }
+            sb.append(diagnosticos.get(i).toJson());
+        }
+        return sb.append(']').toString();
+
+    }
+
+}
@@ -0,0 +1,475 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/*
+ * Esta clase escribe las tablas de símbolos, direcciones y tokens
+ * directamente en un FileChannel a través de un buffer de bytes, sin
+ * generar una cadena por cada fila. Los textos se escriben en UTF-8 y los
+ * números se convierten a dígitos dentro del buffer.
+ *
+ * Además del formato de texto existe un formato binario compacto para
+ * otras herramientas. Cada archivo .bin contiene, en big-endian:
+ * - El número mágico "TSEM", la versión del formato (1), la cantidad de
+ *   filas y la cantidad de columnas
+ * - Cada columna completa, como enteros de 4 bytes. Las columnas de texto
+ *   guardan el identificador de la cadena en el pool del archivo
+ * - El pool de cadenas: la cantidad de cadenas y, por cada una, su
+ *   longitud en bytes seguida de sus bytes UTF-8
+ */
+
+public class EscritorTablas implements Closeable {
+
+    public static final int     BINARY_MAGIC = 0x5453454D;     // "TSEM"
+    public static final int     BINARY_VERSION = 1;
+
+    // Las salidas de un análisis en los dos formatos, más el código intermedio
+    private static final String[] OUTPUT_FILES = {
+        "symbolTable.txt", "addressesTable.txt", "tokensTable.txt",
+        "symbolTable.bin", "addressesTable.bin", "tokensTable.bin",
+        "vci.bin"
+    };
+
+    private static final byte[] SEPARATOR = " , ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel   channel;
+    private final ByteBuffer    buffer = ByteBuffer.allocate(1 << 16);
+
+    public EscritorTablas(File file) throws IOException {
+        this.channel = FileChannel.open(
+            file.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        );
+    }
+
+    /**
+     * Borra las tablas de un análisis anterior, en ambos formatos, para que
+     * un programa con errores o una salida en otro formato no dejen tablas
+     * que no corresponden al último análisis
+     *
+     * @param tablesDir El directorio de las tablas
+     */
+    public static void deleteTables(File tablesDir) {
+
+        for(String name : OUTPUT_FILES){
+            new File(tablesDir, name).delete();
+        }
+
+    }
+
+    /**
+     * Escribe las tres tablas de un resultado en formato de texto
+     *
+     * @param result El resultado del análisis
+     * @param tablesDir El directorio de destino
+     */
+    public static void writeText(ResultadoAnalisis result, File tablesDir) throws IOException {
+
+        result.resolveJumps();
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "symbolTable.txt"))){
+            out.writeSymbolsTable(result.getSymbols());
+        }
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "addressesTable.txt"))){
+            out.writeAddressesTable(result.getSymbols());
+        }
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "tokensTable.txt"))){
+            out.writeTokensTable(result.getTokens());
+        }
+
+    }
+
+    /**
+     * Escribe las tres tablas de un resultado en formato de texto, cada una
+     * en una tarea distinta, y espera a que terminen las tres
+     *
+     * @param result El resultado del análisis
+     * @param tablesDir El directorio de destino
+     * @param writers Los hilos que escriben las tablas
+     */
+    public static void writeText(ResultadoAnalisis result, File tablesDir, ExecutorService writers) throws IOException {
+
+        // Los saltos se generan antes de repartir las tablas entre los hilos
+        result.resolveJumps();
+
+        List<Future<?>> writes = new ArrayList<Future<?>>(3);
+        writes.add(writers.submit(() -> {
+            try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "symbolTable.txt"))){
+                out.writeSymbolsTable(result.getSymbols());
+            }
+            return null;
+        }));
+        writes.add(writers.submit(() -> {
+            try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "addressesTable.txt"))){
+                out.writeAddressesTable(result.getSymbols());
+            }
+            return null;
+        }));
+        writes.add(writers.submit(() -> {
+            try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "tokensTable.txt"))){
+                out.writeTokensTable(result.getTokens());
+            }
+            return null;
+        }));
+
+        IOException failure = null;
+        for(Future<?> write : writes){
+            try {
+                write.get();
+            } catch (ExecutionException e) {
+                if(failure == null){
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Escritura de tablas interrumpida", e);
+            }
+        }
+        if(failure != null){
+            throw failure;
+        }
+
+    }
+
+    /**
+     * Escribe las tres tablas de un resultado en formato binario
+     *
+     * @param result El resultado del análisis
+     * @param tablesDir El directorio de destino
+     */
+    public static void writeBinary(ResultadoAnalisis result, File tablesDir) throws IOException {
+
+        result.resolveJumps();
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "symbolTable.bin"))){
+            out.writeBinarySymbolsTable(result.getSymbols());
+        }
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "addressesTable.bin"))){
+            out.writeBinaryAddressesTable(result.getSymbols());
+        }
+        try(EscritorTablas out = new EscritorTablas(new File(tablesDir, "tokensTable.bin"))){
+            out.writeBinaryTokensTable(result.getTokens());
+        }
+
+    }
+
+    /**
+     * Escribe una tabla ya formateada, una fila por línea
+     *
+     * @param table Las filas de la tabla
+     */
+    public void writeRows(List<String> table) throws IOException {
+
+        for(String row : table){
+            writeString(row);
+            writeBytes(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        }
+
+    }
+
+    public void writeTokensTable(TablaTokens tokens) throws IOException {
+        writeTokensTable(tokens, 0, tokens.size());
+    }
+
+    /**
+     * Escribe las filas [from, to) de una tabla de tokens
+     *
+     * @param tokens La tabla de tokens
+     * @param from El índice de la primera fila
+     * @param to El índice siguiente a la última fila
+     */
+    public void writeTokensTable(TablaTokens tokens, int from, int to) throws IOException {
+
+        PoolLexemas pool = tokens.getPool();
+        byte[] lexemaBytes = pool.getBytes();
+
+        for(int i = from; i < to; i++){
+            int lexemaId = tokens.getLexemaId(i);
+            writeInt(tokens.getToken(i));
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeBytes(lexemaBytes, pool.getByteOffset(lexemaId), pool.getByteLength(lexemaId));
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeInt(tokens.getPosicionTabla(i));
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeInt(tokens.getNumLinea(i));
+            writeBytes(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        }
+
+    }
+
+    public void writeSymbolsTable(TablaSimbolos symbols) throws IOException {
+
+        for(Simbolo simbolo : symbols.getVariables()){
+            writeInt(simbolo.getToken());
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeString(simbolo.getLexema());
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeString(simbolo.getValorPorDefecto());
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeString(simbolo.getAmbito().getNombre());
+            writeBytes(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        }
+
+    }
+
+    public void writeAddressesTable(TablaSimbolos symbols) throws IOException {
+
+        for(Simbolo simbolo : symbols.getAddresses()){
+            writeInt(simbolo.getToken());
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeString(simbolo.getLexema());
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeInt(simbolo.getNumLinea());
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeInt(0);
+            writeBytes(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        }
+
+        for(int row = 0; row < symbols.getJumpCount(); row++){
+            writeInt(symbols.getJumpToken(row));
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeString(symbols.getJumpLexema(row));
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeInt(symbols.getJumpLine(row));
+            writeBytes(SEPARATOR, 0, SEPARATOR.length);
+            writeInt(symbols.getJumpAddress(row));
+            writeBytes(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+        }
+
+    }
+
+    public void writeBinaryTokensTable(TablaTokens tokens) throws IOException {
+
+        int rows = tokens.size();
+        writeBinaryHeader(rows, 4);
+
+        for(int i = 0; i < rows; i++){
+            writeBinaryInt(tokens.getToken(i));
+        }
+        for(int i = 0; i < rows; i++){
+            writeBinaryInt(tokens.getLexemaId(i));
+        }
+        for(int i = 0; i < rows; i++){
+            writeBinaryInt(tokens.getPosicionTabla(i));
+        }
+        for(int i = 0; i < rows; i++){
+            writeBinaryInt(tokens.getNumLinea(i));
+        }
+
+        // El pool de lexemas ya está en UTF-8 y sus identificadores son densos
+        PoolLexemas pool = tokens.getPool();
+        writeBinaryInt(pool.size());
+        for(int id = 0; id < pool.size(); id++){
+            writeBinaryInt(pool.getByteLength(id));
+            writeBytes(pool.getBytes(), pool.getByteOffset(id), pool.getByteLength(id));
+        }
+
+    }
+
+    public void writeBinarySymbolsTable(TablaSimbolos symbols) throws IOException {
+
+        List<Simbolo> variables = symbols.getVariables();
+        Map<String, Integer> strings = new HashMap<String, Integer>();
+        List<String> stringPool = new ArrayList<String>();
+
+        writeBinaryHeader(variables.size(), 4);
+        for(Simbolo simbolo : variables){
+            writeBinaryInt(simbolo.getToken());
+        }
+        for(Simbolo simbolo : variables){
+            writeBinaryInt(stringId(simbolo.getLexema(), strings, stringPool));
+        }
+        for(Simbolo simbolo : variables){
+            writeBinaryInt(stringId(simbolo.getValorPorDefecto(), strings, stringPool));
+        }
+        for(Simbolo simbolo : variables){
+            writeBinaryInt(stringId(simbolo.getAmbito().getNombre(), strings, stringPool));
+        }
+        writeBinaryStringPool(stringPool);
+
+    }
+
+    public void writeBinaryAddressesTable(TablaSimbolos symbols) throws IOException {
+
+        List<Simbolo> addresses = symbols.getAddresses();
+        int jumps = symbols.getJumpCount();
+        Map<String, Integer> strings = new HashMap<String, Integer>();
+        List<String> stringPool = new ArrayList<String>();
+
+        writeBinaryHeader(addresses.size() + jumps, 4);
+        for(Simbolo simbolo : addresses){
+            writeBinaryInt(simbolo.getToken());
+        }
+        for(int row = 0; row < jumps; row++){
+            writeBinaryInt(symbols.getJumpToken(row));
+        }
+        for(Simbolo simbolo : addresses){
+            writeBinaryInt(stringId(simbolo.getLexema(), strings, stringPool));
+        }
+        for(int row = 0; row < jumps; row++){
+            writeBinaryInt(stringId(symbols.getJumpLexema(row), strings, stringPool));
+        }
+        for(Simbolo simbolo : addresses){
+            writeBinaryInt(simbolo.getNumLinea());
+        }
+        for(int row = 0; row < jumps; row++){
+            writeBinaryInt(symbols.getJumpLine(row));
+        }
+        for(int i = 0; i < addresses.size(); i++){
+            writeBinaryInt(0);
+        }
+        for(int row = 0; row < jumps; row++){
+            writeBinaryInt(symbols.getJumpAddress(row));
+        }
+        writeBinaryStringPool(stringPool);
+
+    }
+
+    private static int stringId(String str, Map<String, Integer> strings, List<String> stringPool){
+
+        Integer id = strings.get(str);
+        if(id == null){
+            id = stringPool.size();
+            strings.put(str, id);
+            stringPool.add(str);
+        }
+        return id;
+
+    }
+
+    private void writeBinaryHeader(int rows, int columns) throws IOException {
+        writeBinaryInt(BINARY_MAGIC);
+        writeBinaryInt(BINARY_VERSION);
+        writeBinaryInt(rows);
+        writeBinaryInt(columns);
+    }
+
+    private void writeBinaryStringPool(List<String> stringPool) throws IOException {
+
+        writeBinaryInt(stringPool.size());
+        for(String str : stringPool){
+            byte[] encoded = str.getBytes(StandardCharsets.UTF_8);
+            writeBinaryInt(encoded.length);
+            writeBytes(encoded, 0, encoded.length);
+        }
+
+    }
+
+    private void writeBinaryInt(int value) throws IOException {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Escribe un entero como texto, sin crear una cadena intermedia
+     */
+    private void writeInt(int value) throws IOException {
+
+        ensureCapacity(11);
+
+        if(value == Integer.MIN_VALUE){
+            writeString(Integer.toString(value));
+            return;
+        }
+        if(value < 0){
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        int digits = 1;
+        for(int rest = value / 10; rest != 0; rest /= 10){
+            digits++;
+        }
+
+        int end = buffer.position() + digits;
+        for(int i = end - 1; i >= buffer.position(); i--){
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+
+    }
+
+    /**
+     * Escribe una cadena en UTF-8. Las cadenas ASCII se copian carácter por
+     * carácter sin pasar por el codificador
+     */
+    private void writeString(String str) throws IOException {
+
+        int length = str.length();
+        for(int i = 0; i < length; i++){
+            if(str.charAt(i) >= 0x80){
+                byte[] encoded = str.getBytes(StandardCharsets.UTF_8);
+                writeBytes(encoded, 0, encoded.length);
+                return;
+            }
+        }
+
+        int written = 0;
+        while(written < length){
+            if(!buffer.hasRemaining()){
+                flush();
+            }
+            int chunk = Math.min(buffer.remaining(), length - written);
+            for(int i = 0; i < chunk; i++){
+                buffer.put((byte) str.charAt(written + i));
+            }
+            written += chunk;
+        }
+
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+
+        while(length > 0){
+            if(!buffer.hasRemaining()){
+                flush();
+            }
+            int chunk = Math.min(buffer.remaining(), length);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if(buffer.remaining() < bytes){
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+
+    }
+
+}
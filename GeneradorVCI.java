@@ -0,0 +1,360 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Esta clase genera el vector de código intermedio (VCI) de un programa
+ * ya analizado, recorriendo su ArbolPrograma con los tipos anotados por
+ * VerificadorTipos.
+ *
+ * Las expresiones se emiten en postfijo y los estatutos de control se
+ * traducen a saltos:
+ *
+ *   si c entonces A sino B     c SALTAR_SI_FALSO L1  A  SALTAR L2  L1: B  L2:
+ *   mientras c hacer A         L1: c SALTAR_SI_FALSO L2  A  SALTAR L1  L2:
+ *   repetir A hasta c ;        L1: A  c SALTAR_SI_FALSO L1
+ *
+ * Los saltos hacia adelante se emiten con la dirección pendiente y se
+ * completan al terminar el código de su destino.
+ */
+
+public class GeneradorVCI {
+
+    private final ArbolPrograma     tree;
+    private final TablaTokens       tokens;
+
+    private int[]                   code = new int[256];
+    private int                     size = 0;
+
+    private final Map<Integer, Integer> constantIndex = new HashMap<Integer, Integer>();
+    private TipoDato[]              constantTypes = new TipoDato[16];
+    private String[]                constants = new String[16];
+    private int                     constantCount = 0;
+
+    // Por cada salto: el índice de la palabra reservada que lo genera y la
+    // posición de su operando en el código
+    private int[]                   jumps = new int[32];
+    private int                     jumpCount = 0;
+
+    private GeneradorVCI(ArbolPrograma tree) {
+        this.tree = tree;
+        this.tokens = tree.getTokens();
+    }
+
+    /**
+     * Genera el código de una sesión que ya se analizó sin errores
+     *
+     * @param session La sesión analizada
+     * @return El código intermedio del cuerpo del programa
+     * @throws IllegalStateException Si el programa tiene errores semánticos
+     */
+    public static CodigoIntermedio generate(AnalizadorSemantico session) {
+
+        if(!session.getDiagnostics().isEmpty()){
+            throw new IllegalStateException("No se genera código para un programa con errores semánticos");
+        }
+
+        ArbolPrograma tree = session.getTree();
+        GeneradorVCI generator = new GeneradorVCI(tree);
+        generator.emitStatement(tree.getBody());
+        generator.emit(CodigoIntermedio.TERMINAR, TipoDato.ERROR);
+
+        return generator.build(session.getSymbols());
+
+    }
+
+    private CodigoIntermedio build(TablaSimbolos symbols) {
+
+        int slotCount = symbols.getAddresses().size() + symbols.getVariables().size();
+        TipoDato[] variableTypes = new TipoDato[slotCount];
+        String[] variableNames = new String[slotCount];
+        String[] variableDefaults = new String[slotCount];
+        for(Simbolo simbolo : symbols.getAddresses()){
+            variableTypes[simbolo.getSlot()] = TipoDato.ERROR;
+            variableNames[simbolo.getSlot()] = simbolo.getLexema();
+            variableDefaults[simbolo.getSlot()] = simbolo.getValorPorDefecto();
+        }
+        for(Simbolo simbolo : symbols.getVariables()){
+            variableTypes[simbolo.getSlot()] = TipoDato.fromToken(simbolo.getToken());
+            variableNames[simbolo.getSlot()] = simbolo.getLexema();
+            variableDefaults[simbolo.getSlot()] = simbolo.getValorPorDefecto();
+        }
+
+        int rows = jumpCount / 2;
+        int[] addressTokens = new int[rows];
+        String[] addressLexemas = new String[rows];
+        int[] addressLines = new int[rows];
+        int[] addresses = new int[rows];
+        for(int row = 0; row < rows; row++){
+            int index = jumps[row * 2];
+            addressTokens[row] = tokens.getToken(index);
+            addressLexemas[row] = tokens.getLexema(index);
+            addressLines[row] = tokens.getNumLinea(index);
+            addresses[row] = code[jumps[row * 2 + 1]];
+        }
+
+        return new CodigoIntermedio(
+            variableTypes, variableNames, variableDefaults,
+            Arrays.copyOf(constantTypes, constantCount), Arrays.copyOf(constants, constantCount),
+            Arrays.copyOf(code, size),
+            addressTokens, addressLexemas, addressLines, addresses
+        );
+
+    }
+
+    private void emitStatement(int node) {
+
+        if(node == ArbolPrograma.NINGUNO){
+            return;
+        }
+
+        switch(tree.getClase(node)){
+
+            case ArbolPrograma.CUERPO:
+            case ArbolPrograma.BLOQUE:
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                    emitStatement(child);
+                }
+                break;
+
+            case ArbolPrograma.ASIGNACION: {
+                int index = tree.getTokenIndex(node);
+                TipoDato target = TipoDato.fromToken(tokens.getToken(index));
+                emitExpression(tree.getFirstChild(node), target);
+                emit(CodigoIntermedio.ASIGNAR, target, tokens.getPosicionTabla(index));
+                break;
+            }
+
+            case ArbolPrograma.SI: {
+                int elseBranch = tree.getChild(node, 2);
+                emitCondition(tree.getChild(node, 0));
+                int skipThen = emitJump(CodigoIntermedio.SALTAR_SI_FALSO, tree.getTokenIndex(node));
+                emitStatement(tree.getChild(node, 1));
+                if(elseBranch == ArbolPrograma.NINGUNO){
+                    patch(skipThen, size);
+                } else {
+                    int skipElse = emitJump(CodigoIntermedio.SALTAR, findSino(node, elseBranch));
+                    patch(skipThen, size);
+                    emitStatement(elseBranch);
+                    patch(skipElse, size);
+                }
+                break;
+            }
+
+            case ArbolPrograma.MIENTRAS: {
+                int start = size;
+                emitCondition(tree.getChild(node, 0));
+                int exit = emitJump(CodigoIntermedio.SALTAR_SI_FALSO, tree.getTokenIndex(node));
+                emitStatement(tree.getChild(node, 1));
+                patch(emitJump(CodigoIntermedio.SALTAR, tree.getTokenIndex(node)), start);
+                patch(exit, size);
+                break;
+            }
+
+            case ArbolPrograma.REPETIR: {
+                int start = size;
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                    if(tree.getClase(child) == ArbolPrograma.CONDICION){
+                        emitCondition(child);
+                        patch(emitJump(CodigoIntermedio.SALTAR_SI_FALSO, tree.getTokenIndex(child)), start);
+                    } else {
+                        emitStatement(child);
+                    }
+                }
+                break;
+            }
+
+            // Un "hasta" sin su "repetir": la condición se evalúa y se descarta
+            case ArbolPrograma.CONDICION:
+                emitCondition(node);
+                emit(CodigoIntermedio.DESCARTAR, TipoDato.ERROR);
+                break;
+
+            case ArbolPrograma.LEER: {
+                int target = tree.getFirstChild(node);
+                if(target == ArbolPrograma.NINGUNO){
+                    break;
+                }
+                if(tree.getClase(target) == ArbolPrograma.IDENTIFICADOR){
+                    int index = tree.getTokenIndex(target);
+                    emit(CodigoIntermedio.LEER, TipoDato.fromToken(tokens.getToken(index)), tokens.getPosicionTabla(index));
+                } else {
+                    emit(CodigoIntermedio.LEER, TipoDato.ERROR, -1);
+                }
+                break;
+            }
+
+            case ArbolPrograma.ESCRIBIR: {
+                int value = tree.getFirstChild(node);
+                if(value != ArbolPrograma.NINGUNO){
+                    emitExpression(value);
+                    emit(CodigoIntermedio.ESCRIBIR, tree.getTipoDato(value));
+                }
+                break;
+            }
+
+            // Un identificador suelto no tiene efecto
+            case ArbolPrograma.IDENTIFICADOR:
+                break;
+
+            default:
+                throw new IllegalStateException("Estatuto inesperado en el árbol: " + tree.getClase(node));
+
+        }
+
+    }
+
+    private void emitCondition(int condition) {
+        emitExpression(tree.getFirstChild(condition));
+    }
+
+    private void emitExpression(int node) {
+
+        switch(tree.getClase(node)){
+
+            case ArbolPrograma.CONSTANTE:
+                emit(CodigoIntermedio.CARGAR_CONSTANTE, tree.getTipoDato(node), constant(tree.getTokenIndex(node)));
+                break;
+
+            case ArbolPrograma.IDENTIFICADOR:
+                emit(
+                    CodigoIntermedio.CARGAR_VARIABLE, tree.getTipoDato(node),
+                    tokens.getPosicionTabla(tree.getTokenIndex(node))
+                );
+                break;
+
+            case ArbolPrograma.UNARIA: {
+                int operand = tree.getFirstChild(node);
+                emitExpression(operand);
+                emit(CodigoIntermedio.OPERACION_UNARIA, tree.getTipoDato(operand), tree.getToken(node));
+                break;
+            }
+
+            case ArbolPrograma.BINARIA: {
+                int left = tree.getFirstChild(node);
+                int right = tree.getNextSibling(left);
+                TipoDato tipo = operandType(tree.getTipoDato(left), tree.getTipoDato(right));
+                emitExpression(left, tipo);
+                emitExpression(right, tipo);
+                emit(CodigoIntermedio.OPERACION, tipo, tree.getToken(node));
+                break;
+            }
+
+            default:
+                throw new IllegalStateException("Expresión inesperada en el árbol: " + tree.getClase(node));
+
+        }
+
+    }
+
+    /**
+     * Emite una expresión y, si es entera y se espera un real, la convierte
+     *
+     * @param expected El tipo con que se usará el valor
+     */
+    private void emitExpression(int node, TipoDato expected) {
+
+        emitExpression(node);
+        if(expected == TipoDato.REAL && tree.getTipoDato(node) == TipoDato.ENTERO){
+            emit(CodigoIntermedio.CONVERTIR_REAL, TipoDato.REAL);
+        }
+
+    }
+
+    /**
+     * El tipo con que opera una operación binaria: real si uno de los
+     * operandos numéricos es real
+     */
+    private static TipoDato operandType(TipoDato left, TipoDato right) {
+
+        if(left.isNumeric() && right.isNumeric()){
+            return left == TipoDato.REAL || right == TipoDato.REAL ? TipoDato.REAL : TipoDato.ENTERO;
+        }
+        return left;
+
+    }
+
+    /**
+     * Busca el "sino" de un estatuto si, que es el token anterior al inicio
+     * de su rama sino
+     */
+    private int findSino(int node, int elseBranch) {
+
+        int index = tree.getTokenIndex(elseBranch) - 1;
+        return index >= 0 && tokens.getToken(index) == Sintaxis.SINO ? index : tree.getTokenIndex(node);
+
+    }
+
+    /**
+     * Agrega una constante a la tabla de constantes, una sola vez por lexema
+     *
+     * @return El índice de la constante
+     */
+    private int constant(int index) {
+
+        Integer existing = constantIndex.get(tokens.getLexemaId(index));
+        if(existing != null){
+            return existing;
+        }
+
+        if(constantCount == constants.length){
+            constants = Arrays.copyOf(constants, constantCount * 2);
+            constantTypes = Arrays.copyOf(constantTypes, constantCount * 2);
+        }
+        constants[constantCount] = tokens.getLexema(index);
+        constantTypes[constantCount] = TipoDato.fromToken(tokens.getToken(index));
+        constantIndex.put(tokens.getLexemaId(index), constantCount);
+
+        return constantCount++;
+
+    }
+
+    /**
+     * Emite un salto con la dirección pendiente
+     *
+     * @param opcode SALTAR o SALTAR_SI_FALSO
+     * @param keyword El índice de la palabra reservada que genera el salto
+     * @return La posición del operando, para completarlo con patch()
+     */
+    private int emitJump(int opcode, int keyword) {
+
+        emit(opcode, opcode == CodigoIntermedio.SALTAR ? TipoDato.ERROR : TipoDato.LOGICO, -1);
+
+        if(jumpCount == jumps.length){
+            jumps = Arrays.copyOf(jumps, jumpCount * 2);
+        }
+        jumps[jumpCount++] = keyword;
+        jumps[jumpCount++] = size - 1;
+
+        return size - 1;
+
+    }
+
+    private void patch(int operand, int address) {
+        code[operand] = address;
+    }
+
+    private void emit(int opcode, TipoDato tipo) {
+
+        ensureCapacity(1);
+        code[size++] = CodigoIntermedio.word(opcode, tipo);
+
+    }
+
+    private void emit(int opcode, TipoDato tipo, int operand) {
+
+        ensureCapacity(2);
+        code[size++] = CodigoIntermedio.word(opcode, tipo);
+        code[size++] = operand;
+
+    }
+
+    private void ensureCapacity(int words) {
+
+        if(size + words > code.length){
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + words));
+        }
+
+    }
+
+}
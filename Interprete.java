@@ -0,0 +1,661 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/*
+ * Esta clase ejecuta el código intermedio (VCI) de un programa ya
+ * analizado.
+ *
+ * Al crearse, el código de pila del VCI se traduce una sola vez a un
+ * código de registros donde cada instrucción ya distingue su tipo y su
+ * operador, por ejemplo SUMA_ENTERO o MENOR_CADENA, así que el ciclo de
+ * ejecución despacha con un solo switch por instrucción y no vuelve a
+ * revisar tipos. Los registros están en un arreglo por tipo: los enteros
+ * viven en un int[], los reales en un double[], los lógicos en un
+ * boolean[] y las cadenas en un String[], sin valores en objetos. Cada
+ * arreglo tiene primero las variables, después las constantes y al final
+ * los temporales de las expresiones.
+ *
+ * La traducción evita las instrucciones que en el VCI solo mueven
+ * valores: las cargas no generan código, una asignación escribe el
+ * resultado de su expresión directo en la variable y una comparación
+ * entera o real seguida de un salto condicional se une en una sola
+ * instrucción. Un estatuto como "i& = i& + 1" queda en una instrucción.
+ *
+ * Un mismo Interprete puede ejecutarse muchas veces, incluso desde varios
+ * hilos, ya que cada ejecución tiene sus propias variables y pilas, que
+ * empiezan con los valores por defecto de la tabla de símbolos. Los
+ * estatutos leer y escribir usan una Entrada y una Salida que se pasan a
+ * cada ejecución.
+ */
+
+public class Interprete {
+
+    /*
+     * La entrada de los estatutos leer, un valor por lectura
+     */
+    public interface Entrada {
+
+        int readEntero() throws IOException;
+
+        double readReal() throws IOException;
+
+        String readCadena() throws IOException;
+
+        boolean readLogico() throws IOException;
+
+        /**
+         * Una entrada que lee un valor por línea
+         */
+        static Entrada of(BufferedReader in) {
+            return new Entrada() {
+                public int readEntero() throws IOException {
+                    return Integer.parseInt(line().trim());
+                }
+                public double readReal() throws IOException {
+                    return Double.parseDouble(line().trim());
+                }
+                public String readCadena() throws IOException {
+                    return line();
+                }
+                public boolean readLogico() throws IOException {
+                    String value = line().trim();
+                    return value.equals("verdadero") || value.equals("true");
+                }
+                private String line() throws IOException {
+                    String line = in.readLine();
+                    if(line == null){
+                        throw new IOException("Se terminó la entrada del programa");
+                    }
+                    return line;
+                }
+            };
+        }
+
+    }
+
+    /*
+     * La salida de los estatutos escribir
+     */
+    public interface Salida {
+
+        void writeEntero(int value) throws IOException;
+
+        void writeReal(double value) throws IOException;
+
+        void writeCadena(String value) throws IOException;
+
+        void writeLogico(boolean value) throws IOException;
+
+        /**
+         * Una salida que escribe un valor por línea. Los lógicos se
+         * escriben como "verdadero" o "falso"
+         */
+        static Salida of(Writer out) {
+            return new Salida() {
+                public void writeEntero(int value) throws IOException {
+                    out.write(Integer.toString(value));
+                    out.write('\n');
+                }
+                public void writeReal(double value) throws IOException {
+                    out.write(Double.toString(value));
+                    out.write('\n');
+                }
+                public void writeCadena(String value) throws IOException {
+                    out.write(String.valueOf(value));
+                    out.write('\n');
+                }
+                public void writeLogico(boolean value) throws IOException {
+                    out.write(value ? "verdadero" : "falso");
+                    out.write('\n');
+                }
+            };
+        }
+
+    }
+
+
+    public static final long    SIN_LIMITE = Long.MAX_VALUE;
+
+    // Código interno. Cada instrucción ocupa cuatro palabras: la operación,
+    // el registro de destino (o la dirección de un salto) y los registros
+    // de sus dos operandos. Los nombres terminan con el tipo con que operan
+    private static final int    TERMINAR = 0;
+    private static final int    SALTAR = 1;
+    private static final int    SALTAR_SI_FALSO = 2;
+    private static final int    CONVERTIR_REAL = 3;
+
+    private static final int    MOVER_ENTERO = 10;
+    private static final int    MOVER_REAL = 11;
+    private static final int    MOVER_CADENA = 12;
+    private static final int    MOVER_LOGICO = 13;
+    private static final int    LEER_ENTERO = 14;
+    private static final int    LEER_REAL = 15;
+    private static final int    LEER_CADENA = 16;
+    private static final int    LEER_LOGICO = 17;
+    private static final int    LEER_DESCARTAR = 18;
+    private static final int    ESCRIBIR_ENTERO = 19;
+    private static final int    ESCRIBIR_REAL = 20;
+    private static final int    ESCRIBIR_CADENA = 21;
+    private static final int    ESCRIBIR_LOGICO = 22;
+
+    private static final int    SUMA_ENTERO = 30;
+    private static final int    RESTA_ENTERO = 31;
+    private static final int    MULTIPLICACION_ENTERO = 32;
+    private static final int    DIVISION_ENTERO = 33;
+    private static final int    MODULO_ENTERO = 34;
+    private static final int    NEGATIVO_ENTERO = 35;
+    private static final int    MENOR_ENTERO = 36;
+    private static final int    MENOR_IGUAL_ENTERO = 37;
+    private static final int    MAYOR_ENTERO = 38;
+    private static final int    MAYOR_IGUAL_ENTERO = 39;
+    private static final int    IGUAL_ENTERO = 40;
+    private static final int    DIFERENTE_ENTERO = 41;
+
+    private static final int    SUMA_REAL = 50;
+    private static final int    RESTA_REAL = 51;
+    private static final int    MULTIPLICACION_REAL = 52;
+    private static final int    DIVISION_REAL = 53;
+    private static final int    NEGATIVO_REAL = 55;
+    private static final int    MENOR_REAL = 56;
+    private static final int    MENOR_IGUAL_REAL = 57;
+    private static final int    MAYOR_REAL = 58;
+    private static final int    MAYOR_IGUAL_REAL = 59;
+    private static final int    IGUAL_REAL = 60;
+    private static final int    DIFERENTE_REAL = 61;
+
+    private static final int    CONCATENAR_CADENA = 70;
+    private static final int    MENOR_CADENA = 76;
+    private static final int    MENOR_IGUAL_CADENA = 77;
+    private static final int    MAYOR_CADENA = 78;
+    private static final int    MAYOR_IGUAL_CADENA = 79;
+    private static final int    IGUAL_CADENA = 80;
+    private static final int    DIFERENTE_CADENA = 81;
+
+    private static final int    Y_LOGICO = 90;
+    private static final int    O_LOGICO = 91;
+    private static final int    NO_LOGICO = 92;
+    private static final int    IGUAL_LOGICO = 93;
+    private static final int    DIFERENTE_LOGICO = 94;
+
+    // Una comparación entera o real seguida de SALTAR_SI_FALSO se une en
+    // una sola instrucción, con este valor sumado a la comparación
+    private static final int    SALTAR_SI_NO = 100;
+
+    private static final int    NINGUNA = -1;
+
+    // Los operadores binarios, en el orden de las operaciones de cada tipo
+    private static final int[]  OPERATORS = {
+        Sintaxis.SUM_OP, Sintaxis.RES_OP, Sintaxis.MUL_OP, Sintaxis.DIV_OP, Sintaxis.MOD_OP,
+        Sintaxis.MENOR_OP, Sintaxis.MENIG_OP, Sintaxis.MAYOR_OP, Sintaxis.MAYIG_OP, Sintaxis.IGUAL_OP, Sintaxis.DIF_OP,
+        Sintaxis.AND_OP, Sintaxis.OR_OP
+    };
+
+    private static final int[]  OPERACIONES_ENTERO = {
+        SUMA_ENTERO, RESTA_ENTERO, MULTIPLICACION_ENTERO, DIVISION_ENTERO, MODULO_ENTERO,
+        MENOR_ENTERO, MENOR_IGUAL_ENTERO, MAYOR_ENTERO, MAYOR_IGUAL_ENTERO, IGUAL_ENTERO, DIFERENTE_ENTERO,
+        NINGUNA, NINGUNA
+    };
+
+    private static final int[]  OPERACIONES_REAL = {
+        SUMA_REAL, RESTA_REAL, MULTIPLICACION_REAL, DIVISION_REAL, NINGUNA,
+        MENOR_REAL, MENOR_IGUAL_REAL, MAYOR_REAL, MAYOR_IGUAL_REAL, IGUAL_REAL, DIFERENTE_REAL,
+        NINGUNA, NINGUNA
+    };
+
+    private static final int[]  OPERACIONES_CADENA = {
+        CONCATENAR_CADENA, NINGUNA, NINGUNA, NINGUNA, NINGUNA,
+        MENOR_CADENA, MENOR_IGUAL_CADENA, MAYOR_CADENA, MAYOR_IGUAL_CADENA, IGUAL_CADENA, DIFERENTE_CADENA,
+        NINGUNA, NINGUNA
+    };
+
+    private static final int[]  OPERACIONES_LOGICO = {
+        NINGUNA, NINGUNA, NINGUNA, NINGUNA, NINGUNA,
+        NINGUNA, NINGUNA, NINGUNA, NINGUNA, IGUAL_LOGICO, DIFERENTE_LOGICO,
+        Y_LOGICO, O_LOGICO
+    };
+
+    private static final int    TIPOS = 4;
+
+    private final int[]         code;
+
+    // Los valores iniciales de los registros de cada tipo: las variables
+    // con su valor por defecto, las constantes y los temporales
+    private final int[]         enteros;
+    private final double[]      reales;
+    private final String[]      cadenas;
+    private final boolean[]     logicos;
+
+    // Estado de la traducción
+    private int[]               translated;
+    private int                 size = 0;
+    private int[]               stack = new int[16];
+    private int                 sp = 0;
+    private final int[]         temporaries = new int[TIPOS];
+    private final int[]         maxTemporaries = new int[TIPOS];
+    private final int[]         firstTemporary = new int[TIPOS];
+    private int                 lastResult = NINGUNA;
+    private int                 lastResultType = NINGUNA;
+
+    /**
+     * Traduce un código intermedio para ejecutarlo
+     *
+     * @param vci El código intermedio de un programa sin errores
+     * @throws IllegalStateException Si el código usa un valor sin tipo, como el identificador del programa
+     */
+    public Interprete(CodigoIntermedio vci) {
+
+        // Cada variable y cada constante recibe un registro del arreglo de
+        // su tipo; los temporales van después
+        int[] counts = new int[TipoDato.values().length];
+        int[] variableRegisters = new int[vci.getVariableCount()];
+        for(int slot = 0; slot < variableRegisters.length; slot++){
+            variableRegisters[slot] = counts[vci.getVariableType(slot).ordinal()]++;
+        }
+        int[] constantRegisters = new int[vci.getConstantCount()];
+        for(int i = 0; i < constantRegisters.length; i++){
+            constantRegisters[i] = counts[vci.getConstantType(i).ordinal()]++;
+        }
+        for(int t = 0; t < TIPOS; t++){
+            firstTemporary[t] = counts[t];
+        }
+
+        translated = new int[(vci.getCode().length + 1) * 4];
+        translate(vci, variableRegisters, constantRegisters);
+        code = Arrays.copyOf(translated, size);
+        translated = null;
+        stack = null;
+
+        enteros = new int[counts[TipoDato.ENTERO.ordinal()] + maxTemporaries[TipoDato.ENTERO.ordinal()]];
+        reales = new double[counts[TipoDato.REAL.ordinal()] + maxTemporaries[TipoDato.REAL.ordinal()]];
+        cadenas = new String[counts[TipoDato.CADENA.ordinal()] + maxTemporaries[TipoDato.CADENA.ordinal()]];
+        logicos = new boolean[counts[TipoDato.LOGICO.ordinal()] + maxTemporaries[TipoDato.LOGICO.ordinal()]];
+
+        for(int slot = 0; slot < variableRegisters.length; slot++){
+            initialize(vci.getVariableType(slot), variableRegisters[slot], vci.getVariableDefault(slot));
+        }
+        for(int i = 0; i < constantRegisters.length; i++){
+            initialize(vci.getConstantType(i), constantRegisters[i], vci.getConstant(i));
+        }
+
+    }
+
+    /**
+     * Ejecuta el programa hasta terminar
+     *
+     * @param in La entrada de los estatutos leer
+     * @param out La salida de los estatutos escribir
+     */
+    public void run(Entrada in, Salida out) throws IOException {
+        run(in, out, SIN_LIMITE);
+    }
+
+    /**
+     * Ejecuta el programa hasta terminar o hasta dar una cantidad de saltos,
+     * para detener los programas que no terminan
+     *
+     * @param in La entrada de los estatutos leer
+     * @param out La salida de los estatutos escribir
+     * @param maxJumps La cantidad máxima de saltos, o SIN_LIMITE
+     * @throws IllegalStateException Si se dividió entre cero o se excedieron los saltos
+     */
+    public void run(Entrada in, Salida out, long maxJumps) throws IOException {
+
+        final int[] code = this.code;
+
+        int[] enteros = this.enteros.clone();
+        double[] reales = this.reales.clone();
+        String[] cadenas = this.cadenas.clone();
+        boolean[] logicos = this.logicos.clone();
+
+        long jumps = maxJumps;
+        int pc = 0;
+
+        try {
+
+            while(true){
+
+                int d = code[pc + 1];
+                int a = code[pc + 2];
+                int b = code[pc + 3];
+
+                switch(code[pc]){
+
+                    case TERMINAR:
+                        return;
+
+                    case SALTAR:
+                        if(--jumps < 0){
+                            throw tooManyJumps(maxJumps);
+                        }
+                        pc = d;
+                        continue;
+
+                    case SALTAR_SI_FALSO:
+                        if(!logicos[a]){
+                            if(--jumps < 0){
+                                throw tooManyJumps(maxJumps);
+                            }
+                            pc = d;
+                            continue;
+                        }
+                        break;
+
+                    case MENOR_ENTERO + SALTAR_SI_NO:       if(enteros[a] < enteros[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MENOR_IGUAL_ENTERO + SALTAR_SI_NO: if(enteros[a] <= enteros[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MAYOR_ENTERO + SALTAR_SI_NO:       if(enteros[a] > enteros[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MAYOR_IGUAL_ENTERO + SALTAR_SI_NO: if(enteros[a] >= enteros[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case IGUAL_ENTERO + SALTAR_SI_NO:       if(enteros[a] == enteros[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case DIFERENTE_ENTERO + SALTAR_SI_NO:   if(enteros[a] != enteros[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MENOR_REAL + SALTAR_SI_NO:         if(reales[a] < reales[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MENOR_IGUAL_REAL + SALTAR_SI_NO:   if(reales[a] <= reales[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MAYOR_REAL + SALTAR_SI_NO:         if(reales[a] > reales[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case MAYOR_IGUAL_REAL + SALTAR_SI_NO:   if(reales[a] >= reales[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case IGUAL_REAL + SALTAR_SI_NO:         if(reales[a] == reales[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+                    case DIFERENTE_REAL + SALTAR_SI_NO:     if(reales[a] != reales[b]) break; pc = jump(d, --jumps, maxJumps); continue;
+
+                    case CONVERTIR_REAL:        reales[d] = enteros[a]; break;
+
+                    case MOVER_ENTERO:          enteros[d] = enteros[a]; break;
+                    case MOVER_REAL:            reales[d] = reales[a]; break;
+                    case MOVER_CADENA:          cadenas[d] = cadenas[a]; break;
+                    case MOVER_LOGICO:          logicos[d] = logicos[a]; break;
+                    case LEER_ENTERO:           enteros[d] = in.readEntero(); break;
+                    case LEER_REAL:             reales[d] = in.readReal(); break;
+                    case LEER_CADENA:           cadenas[d] = in.readCadena(); break;
+                    case LEER_LOGICO:           logicos[d] = in.readLogico(); break;
+                    case LEER_DESCARTAR:        in.readCadena(); break;
+                    case ESCRIBIR_ENTERO:       out.writeEntero(enteros[a]); break;
+                    case ESCRIBIR_REAL:         out.writeReal(reales[a]); break;
+                    case ESCRIBIR_CADENA:       out.writeCadena(cadenas[a]); break;
+                    case ESCRIBIR_LOGICO:       out.writeLogico(logicos[a]); break;
+
+                    case SUMA_ENTERO:           enteros[d] = enteros[a] + enteros[b]; break;
+                    case RESTA_ENTERO:          enteros[d] = enteros[a] - enteros[b]; break;
+                    case MULTIPLICACION_ENTERO: enteros[d] = enteros[a] * enteros[b]; break;
+                    case DIVISION_ENTERO:       enteros[d] = enteros[a] / enteros[b]; break;
+                    case MODULO_ENTERO:         enteros[d] = enteros[a] % enteros[b]; break;
+                    case NEGATIVO_ENTERO:       enteros[d] = -enteros[a]; break;
+                    case MENOR_ENTERO:          logicos[d] = enteros[a] < enteros[b]; break;
+                    case MENOR_IGUAL_ENTERO:    logicos[d] = enteros[a] <= enteros[b]; break;
+                    case MAYOR_ENTERO:          logicos[d] = enteros[a] > enteros[b]; break;
+                    case MAYOR_IGUAL_ENTERO:    logicos[d] = enteros[a] >= enteros[b]; break;
+                    case IGUAL_ENTERO:          logicos[d] = enteros[a] == enteros[b]; break;
+                    case DIFERENTE_ENTERO:      logicos[d] = enteros[a] != enteros[b]; break;
+
+                    case SUMA_REAL:             reales[d] = reales[a] + reales[b]; break;
+                    case RESTA_REAL:            reales[d] = reales[a] - reales[b]; break;
+                    case MULTIPLICACION_REAL:   reales[d] = reales[a] * reales[b]; break;
+                    case DIVISION_REAL:         reales[d] = reales[a] / reales[b]; break;
+                    case NEGATIVO_REAL:         reales[d] = -reales[a]; break;
+                    case MENOR_REAL:            logicos[d] = reales[a] < reales[b]; break;
+                    case MENOR_IGUAL_REAL:      logicos[d] = reales[a] <= reales[b]; break;
+                    case MAYOR_REAL:            logicos[d] = reales[a] > reales[b]; break;
+                    case MAYOR_IGUAL_REAL:      logicos[d] = reales[a] >= reales[b]; break;
+                    case IGUAL_REAL:            logicos[d] = reales[a] == reales[b]; break;
+                    case DIFERENTE_REAL:        logicos[d] = reales[a] != reales[b]; break;
+
+                    case CONCATENAR_CADENA:     cadenas[d] = cadenas[a] + cadenas[b]; break;
+                    case MENOR_CADENA:          logicos[d] = compare(cadenas[a], cadenas[b]) < 0; break;
+                    case MENOR_IGUAL_CADENA:    logicos[d] = compare(cadenas[a], cadenas[b]) <= 0; break;
+                    case MAYOR_CADENA:          logicos[d] = compare(cadenas[a], cadenas[b]) > 0; break;
+                    case MAYOR_IGUAL_CADENA:    logicos[d] = compare(cadenas[a], cadenas[b]) >= 0; break;
+                    case IGUAL_CADENA:          logicos[d] = compare(cadenas[a], cadenas[b]) == 0; break;
+                    case DIFERENTE_CADENA:      logicos[d] = compare(cadenas[a], cadenas[b]) != 0; break;
+
+                    case Y_LOGICO:              logicos[d] = logicos[a] & logicos[b]; break;
+                    case O_LOGICO:              logicos[d] = logicos[a] | logicos[b]; break;
+                    case NO_LOGICO:             logicos[d] = !logicos[a]; break;
+                    case IGUAL_LOGICO:          logicos[d] = logicos[a] == logicos[b]; break;
+                    case DIFERENTE_LOGICO:      logicos[d] = logicos[a] != logicos[b]; break;
+
+                    default:
+                        throw new IllegalStateException("Operación interna desconocida: " + code[pc]);
+
+                }
+
+                pc += 4;
+
+            }
+
+        } catch (ArithmeticException ex) {
+            throw new IllegalStateException("Error de ejecución: división entre cero en la instrucción " + pc / 4, ex);
+        }
+
+    }
+
+    /**
+     * Traduce el código de pila del VCI a código de registros. Las cargas
+     * de variables y constantes no generan instrucciones: la pila de la
+     * traducción guarda el registro donde está cada valor, y cada
+     * operación escribe su resultado en un registro temporal
+     */
+    private void translate(CodigoIntermedio vci, int[] variableRegisters, int[] constantRegisters) {
+
+        int[] source = vci.getCode();
+        int[] addresses = new int[source.length + 1];
+
+        for(int pc = 0; pc < source.length; pc += CodigoIntermedio.hasOperand(CodigoIntermedio.opcode(source[pc])) ? 2 : 1){
+
+            addresses[pc] = size;
+            int opcode = CodigoIntermedio.opcode(source[pc]);
+            TipoDato tipo = CodigoIntermedio.tipo(source[pc]);
+            int operand = CodigoIntermedio.hasOperand(opcode) ? source[pc + 1] : 0;
+
+            if(opcode == CodigoIntermedio.TERMINAR){
+                emit(TERMINAR, 0, 0, 0);
+            } else if(opcode == CodigoIntermedio.SALTAR){
+                emit(SALTAR, operand, 0, 0);
+            } else if(opcode == CodigoIntermedio.SALTAR_SI_FALSO){
+                int condition = pop(TipoDato.LOGICO);
+                int last = size - 4;
+                if(condition == lastResult && lastResultType == TipoDato.LOGICO.ordinal() && isFusible(translated[last])){
+                    translated[last] += SALTAR_SI_NO;
+                    translated[last + 1] = operand;
+                    lastResult = NINGUNA;
+                } else {
+                    emit(SALTAR_SI_FALSO, operand, condition, 0);
+                }
+            } else if(opcode == CodigoIntermedio.CONVERTIR_REAL){
+                int value = pop(TipoDato.ENTERO);
+                emitResult(CONVERTIR_REAL, TipoDato.REAL, value, 0);
+            } else if(opcode == CodigoIntermedio.CARGAR_VARIABLE){
+                typed(tipo, pc);
+                push(variableRegisters[operand]);
+            } else if(opcode == CodigoIntermedio.CARGAR_CONSTANTE){
+                typed(tipo, pc);
+                push(constantRegisters[operand]);
+            } else if(opcode == CodigoIntermedio.ASIGNAR){
+                int value = pop(tipo);
+                int target = variableRegisters[operand];
+                // El resultado de la última operación se escribe directo en la variable
+                if(value == lastResult && lastResultType == tipo.ordinal()){
+                    translated[size - 3] = target;
+                    lastResult = NINGUNA;
+                } else {
+                    emit(typed(tipo, MOVER_ENTERO, MOVER_REAL, MOVER_CADENA, MOVER_LOGICO, pc), target, value, 0);
+                }
+            } else if(opcode == CodigoIntermedio.LEER){
+                if(operand < 0 || tipo == TipoDato.ERROR){
+                    emit(LEER_DESCARTAR, 0, 0, 0);
+                } else {
+                    emit(typed(tipo, LEER_ENTERO, LEER_REAL, LEER_CADENA, LEER_LOGICO, pc), variableRegisters[operand], 0, 0);
+                }
+            } else if(opcode == CodigoIntermedio.ESCRIBIR){
+                emit(typed(tipo, ESCRIBIR_ENTERO, ESCRIBIR_REAL, ESCRIBIR_CADENA, ESCRIBIR_LOGICO, pc), 0, pop(tipo), 0);
+            } else if(opcode == CodigoIntermedio.DESCARTAR){
+                pop(TipoDato.LOGICO);
+                lastResult = NINGUNA;
+            } else if(opcode == CodigoIntermedio.OPERACION_UNARIA){
+                if(operand == Sintaxis.NOT_OP && tipo == TipoDato.LOGICO){
+                    emitResult(NO_LOGICO, tipo, pop(tipo), 0);
+                } else if(operand == Sintaxis.RES_OP && tipo.isNumeric()){
+                    emitResult(tipo == TipoDato.ENTERO ? NEGATIVO_ENTERO : NEGATIVO_REAL, tipo, pop(tipo), 0);
+                } else if(operand != Sintaxis.SUM_OP || !tipo.isNumeric()){
+                    throw untyped(pc);
+                }
+                // El signo + no hace nada y el valor se queda en la pila
+            } else if(opcode == CodigoIntermedio.OPERACION){
+                int right = pop(tipo);
+                int left = pop(tipo);
+                int operation = binaryOperation(tipo, operand, pc);
+                emitResult(operation, Sintaxis.isRelationalOperator(operand) ? TipoDato.LOGICO : tipo, left, right);
+            } else {
+                throw new IllegalStateException("Instrucción desconocida en la dirección " + pc + ": " + opcode);
+            }
+
+        }
+        addresses[source.length] = size;
+
+        // Las direcciones del VCI se traducen a direcciones del código interno
+        for(int i = 0; i < size; i += 4){
+            if(translated[i] == SALTAR || translated[i] == SALTAR_SI_FALSO || translated[i] >= SALTAR_SI_NO){
+                translated[i + 1] = addresses[translated[i + 1]];
+            }
+        }
+
+    }
+
+    private void emit(int operation, int d, int a, int b) {
+
+        translated[size++] = operation;
+        translated[size++] = d;
+        translated[size++] = a;
+        translated[size++] = b;
+        lastResult = NINGUNA;
+
+    }
+
+    /**
+     * Emite una operación cuyo resultado va a un registro temporal, que
+     * queda en la pila de la traducción
+     */
+    private void emitResult(int operation, TipoDato tipo, int a, int b) {
+
+        int t = tipo.ordinal();
+        int result = firstTemporary[t] + temporaries[t]++;
+        maxTemporaries[t] = Math.max(maxTemporaries[t], temporaries[t]);
+
+        emit(operation, result, a, b);
+        push(result);
+        lastResult = result;
+        lastResultType = t;
+
+    }
+
+    private void push(int register) {
+
+        if(sp == stack.length){
+            stack = Arrays.copyOf(stack, sp * 2);
+        }
+        stack[sp++] = register;
+
+    }
+
+    /**
+     * Saca un registro de la pila de la traducción y, si es un temporal, lo
+     * libera. Los temporales de cada tipo se liberan en el orden inverso al
+     * que se tomaron, igual que los valores de la pila del VCI
+     */
+    private int pop(TipoDato tipo) {
+
+        int register = stack[--sp];
+        if(register >= firstTemporary[tipo.ordinal()]){
+            temporaries[tipo.ordinal()]--;
+        }
+        return register;
+
+    }
+
+    private void initialize(TipoDato tipo, int register, String value) {
+
+        switch(tipo){
+            case ENTERO: enteros[register] = Integer.parseInt(value); break;
+            case REAL: reales[register] = Double.parseDouble(value); break;
+            case CADENA: cadenas[register] = value.equals("null") ? null : unquote(value); break;
+            case LOGICO: logicos[register] = value.equals("verdadero") || value.equals("true"); break;
+            default: break;
+        }
+
+    }
+
+    private static boolean isFusible(int operation) {
+        return (operation >= MENOR_ENTERO && operation <= DIFERENTE_ENTERO) || (operation >= MENOR_REAL && operation <= DIFERENTE_REAL);
+    }
+
+    private static int jump(int target, long jumps, long maxJumps) {
+
+        if(jumps < 0){
+            throw tooManyJumps(maxJumps);
+        }
+        return target;
+
+    }
+
+    /**
+     * Compara dos cadenas, con las cadenas sin valor (null) antes que las demás
+     */
+    private static int compare(String left, String right) {
+
+        if(left == null || right == null){
+            return left == right ? 0 : left == null ? -1 : 1;
+        }
+        return left.compareTo(right);
+
+    }
+
+    private static IllegalStateException tooManyJumps(long maxJumps) {
+        return new IllegalStateException("Error de ejecución: el programa excedió el límite de " + maxJumps + " saltos");
+    }
+
+    private static String unquote(String lexema) {
+
+        if(lexema.length() >= 2 && lexema.charAt(0) == '"' && lexema.charAt(lexema.length() - 1) == '"'){
+            return lexema.substring(1, lexema.length() - 1);
+        }
+        return lexema;
+
+    }
+
+    private static void typed(TipoDato tipo, int pc) {
+        typed(tipo, 0, 0, 0, 0, pc);
+    }
+
+    private static int typed(TipoDato tipo, int entero, int real, int cadena, int logico, int pc) {
+
+        switch(tipo){
+            case ENTERO: return entero;
+            case REAL: return real;
+            case CADENA: return cadena;
+            case LOGICO: return logico;
+            default: throw untyped(pc);
+        }
+
+    }
+
+    private static int binaryOperation(TipoDato tipo, int operator, int pc) {
+
+        int[] operations;
+        switch(tipo){
+            case ENTERO: operations = OPERACIONES_ENTERO; break;
+            case REAL: operations = OPERACIONES_REAL; break;
+            case CADENA: operations = OPERACIONES_CADENA; break;
+            case LOGICO: operations = OPERACIONES_LOGICO; break;
+            default: throw untyped(pc);
+        }
+
+        for(int i = 0; i < OPERATORS.length; i++){
+            if(OPERATORS[i] == operator && operations[i] != NINGUNA){
+                return operations[i];
+            }
+        }
+        throw untyped(pc);
+
+    }
+
+    private static IllegalStateException untyped(int pc) {
+        return new IllegalStateException("No se puede ejecutar la instrucción en la dirección " + pc + ": opera con un valor sin tipo");
+    }
+
+}
@@ -0,0 +1,258 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Esta clase lee archivos de tokens con el formato
+ * "token , lexema , posicion , linea" directamente desde un buffer de bytes.
+ *
+ * Los números se convierten sin crear cadenas intermedias y el lexema se
+ * entrega al consumidor como un rango del buffer, por lo que no se genera
+ * basura por cada línea leída. Los dos últimos campos se leen desde el
+ * final de la línea, de modo que un lexema que es una coma (o que contiene
+ * comas) no requiere un caso especial.
+ */
+
+public class LectorTokens {
+
+    private static final int        INITIAL_BUFFER_SIZE = 1 << 16;
+
+    /*
+     * Recibe los tokens conforme se leen. El arreglo de bytes solo es
+     * válido durante la llamada, así que el lexema debe copiarse si se
+     * necesita conservarlo
+     */
+    public interface ConsumidorTokens {
+        void accept(int token, byte[] buffer, int lexemaOffset, int lexemaLength, int posicionTabla, int numLinea);
+    }
+
+    private final ReadableByteChannel   channel;
+    private final ConsumidorTokens      consumer;
+    private byte[]                      buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int                         fileLine = 0;
+
+    public LectorTokens(ReadableByteChannel channel, ConsumidorTokens consumer) {
+        this.channel = channel;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Lee todos los tokens de un archivo en una lista
+     *
+     * @param file El archivo de tokens
+     * @return La lista de tokens leídos
+     */
+    public static List<Token> readAll(File file) throws IOException {
+
+        List<Token> tokens = new ArrayList<Token>();
+        read(file, (token, buffer, offset, length, posicionTabla, numLinea) ->
+            tokens.add(new Token(token, decode(buffer, offset, length), posicionTabla, numLinea))
+        );
+        return tokens;
+
+    }
+
+    /**
+     * Lee los tokens de un archivo y los entrega a un consumidor
+     *
+     * @param file El archivo de tokens
+     * @param consumer El consumidor de los tokens
+     */
+    public static void read(File file, ConsumidorTokens consumer) throws IOException {
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            new LectorTokens(channel, consumer).read();
+        }
+
+    }
+
+    /**
+     * Convierte un lexema en cadena. Los lexemas ASCII, que son la gran
+     * mayoría, evitan la decodificación UTF-8
+     *
+     * @param buffer El buffer que contiene el lexema
+     * @param offset El inicio del lexema
+     * @param length La longitud del lexema
+     * @return El lexema como cadena
+     */
+    public static String decode(byte[] buffer, int offset, int length){
+
+        for(int i = offset; i < offset + length; i++){
+            if(buffer[i] < 0){
+                return new String(buffer, offset, length, StandardCharsets.UTF_8);
+            }
+        }
+        return new String(buffer, offset, length, StandardCharsets.ISO_8859_1);
+
+    }
+
+    /**
+     * Lee el canal hasta el final, entregando cada línea al consumidor
+     */
+    public void read() throws IOException {
+
+        int filled = 0;
+
+        while(true){
+
+            if(filled == buffer.length){
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, filled);
+                buffer = larger;
+            }
+
+            int count = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+            if(count < 0){
+                break;
+            }
+
+            int scanFrom = filled;
+            filled += count;
+
+            // Procesa todas las líneas completas del buffer
+            int lineStart = 0;
+            for(int i = scanFrom; i < filled; i++){
+                if(buffer[i] == '\n'){
+                    parseLine(lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+
+            // Conserva la línea incompleta al inicio del buffer
+            filled -= lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, filled);
+
+        }
+
+        if(filled > 0){
+            parseLine(0, filled);
+        }
+
+    }
+
+    /**
+     * Interpreta una línea del archivo de tokens
+     *
+     * @param start El inicio de la línea en el buffer
+     * @param end El final de la línea en el buffer, sin incluir el salto de línea
+     */
+    private void parseLine(int start, int end) throws IOException {
+
+        fileLine++;
+
+        end = skipSpacesBackward(start, end);
+        start = skipSpaces(start, end);
+        if(start == end){
+            return;
+        }
+
+        // token , ...
+        int cursor = start;
+        boolean negative = buffer[cursor] == '-';
+        if(negative){
+            cursor++;
+        }
+        int digitsStart = cursor;
+        int token = 0;
+        while(cursor < end && isDigit(buffer[cursor])){
+            token = token * 10 + (buffer[cursor++] - '0');
+        }
+        if(cursor == digitsStart){
+            throw malformed("se esperaba el código del token");
+        }
+        if(negative){
+            token = -token;
+        }
+        cursor = skipSpaces(cursor, end);
+        if(cursor == end || buffer[cursor] != ','){
+            throw malformed("se esperaba una coma después del token");
+        }
+        int lexemaStart = cursor + 1;
+
+        // ... , posicion , linea
+        int cursorBack = end;
+        int lineDigitsEnd = cursorBack;
+        int numLinea = 0;
+        int factor = 1;
+        while(cursorBack > lexemaStart && isDigit(buffer[cursorBack - 1])){
+            numLinea += (buffer[--cursorBack] - '0') * factor;
+            factor *= 10;
+        }
+        if(cursorBack == lineDigitsEnd){
+            throw malformed("se esperaba el número de línea");
+        }
+        if(cursorBack > lexemaStart && buffer[cursorBack - 1] == '-'){
+            cursorBack--;
+            numLinea = -numLinea;
+        }
+        cursorBack = skipSpacesBackward(lexemaStart, cursorBack);
+        if(cursorBack == lexemaStart || buffer[cursorBack - 1] != ','){
+            throw malformed("se esperaba una coma antes del número de línea");
+        }
+        cursorBack = skipSpacesBackward(lexemaStart, cursorBack - 1);
+
+        int positionDigitsEnd = cursorBack;
+        int posicionTabla = 0;
+        factor = 1;
+        while(cursorBack > lexemaStart && isDigit(buffer[cursorBack - 1])){
+            posicionTabla += (buffer[--cursorBack] - '0') * factor;
+            factor *= 10;
+        }
+        if(cursorBack == positionDigitsEnd){
+            throw malformed("se esperaba la posición en la tabla");
+        }
+        if(cursorBack > lexemaStart && buffer[cursorBack - 1] == '-'){
+            cursorBack--;
+            posicionTabla = -posicionTabla;
+        }
+        cursorBack = skipSpacesBackward(lexemaStart, cursorBack);
+        if(cursorBack == lexemaStart || buffer[cursorBack - 1] != ','){
+            throw malformed("se esperaba una coma antes de la posición en la tabla");
+        }
+        int lexemaEnd = cursorBack - 1;
+
+        // Lo que queda entre la primera coma y la antepenúltima es el lexema,
+        // incluso cuando el lexema es a su vez una coma
+        lexemaStart = skipSpaces(lexemaStart, lexemaEnd);
+        lexemaEnd = skipSpacesBackward(lexemaStart, lexemaEnd);
+        if(lexemaStart == lexemaEnd){
+            throw malformed("se esperaba el lexema");
+        }
+
+        consumer.accept(token, buffer, lexemaStart, lexemaEnd - lexemaStart, posicionTabla, numLinea);
+
+    }
+
+    private int skipSpaces(int from, int to){
+        while(from < to && isSpace(buffer[from])){
+            from++;
+        }
+        return from;
+    }
+
+    private int skipSpacesBackward(int from, int to){
+        while(to > from && isSpace(buffer[to - 1])){
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isSpace(byte b){
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isDigit(byte b){
+        return b >= '0' && b <= '9';
+    }
+
+    private IOException malformed(String detail){
+        return new IOException("Línea " + fileLine + " del archivo de tokens mal formada: " + detail);
+    }
+
+}
@@ -0,0 +1,399 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Esta clase reúne métricas del análisis: el tiempo y los bytes asignados
+ * por cada fase, un histograma de la duración de cada fase y contadores de
+ * tokens, identificadores, asignaciones y condiciones revisadas.
+ *
+ * Una misma instancia puede compartirse entre sesiones y entre hilos, por
+ * ejemplo durante un lote o en el servidor, y acumula todas sus
+ * ejecuciones. Las métricas se exportan como un reporte JSON y, mientras
+ * haya una grabación de JFR activa, como eventos "analizador.Fase" y
+ * "analizador.Archivo".
+ *
+ * Las métricas son opcionales: una sesión sin métricas solo compara una
+ * referencia con null al inicio de cada fase, sin tomar el tiempo.
+ *
+ * Los histogramas tienen una cubeta por potencia de dos: la cubeta i
+ * cuenta las fases que duraron menos de 2^i nanosegundos, y al menos
+ * 2^(i-1).
+ */
+
+public class MetricasAnalisis {
+
+    /*
+     * Las fases medidas. La lectura incluye las declaraciones cuando se
+     * analizan en flujo, que también se miden como su propia fase. El
+     * código es la generación del código intermedio y de los saltos de la
+     * tabla de direcciones, que se hace solo cuando se piden
+     */
+    public enum Fase {
+
+        LECTURA("lectura"),
+        SECCIONES("secciones"),
+        ARBOL("arbol"),
+        DECLARACIONES("declaraciones"),
+        CUERPO("cuerpo"),
+        CODIGO("codigo"),
+        ESCRITURA("escritura");
+
+        private final String nombre;
+
+        Fase(String nombre) {
+            this.nombre = nombre;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+    }
+
+    @Name("analizador.Fase")
+    @Label("Fase del análisis semántico")
+    @Category("Analizador semántico")
+    @StackTrace(false)
+    public static class EventoFase extends Event {
+
+        @Label("Fase")
+        public String fase;
+
+        @Label("Bytes asignados")
+        @DataAmount
+        public long bytes;
+
+    }
+
+    @Name("analizador.Archivo")
+    @Label("Archivo analizado")
+    @Category("Analizador semántico")
+    @StackTrace(false)
+    public static class EventoArchivo extends Event {
+
+        @Label("Tokens")
+        public int tokens;
+
+        @Label("Identificadores")
+        public int identificadores;
+
+        @Label("Asignaciones")
+        public int asignaciones;
+
+        @Label("Condiciones")
+        public int condiciones;
+
+    }
+
+    private static final int        BUCKETS = 48;
+    private static final Fase[]     FASES = Fase.values();
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final LongAdder[]       operations = adders(FASES.length);
+    private final LongAdder[]       nanos = adders(FASES.length);
+    private final LongAdder[]       bytes = adders(FASES.length);
+    private final AtomicLongArray   histograms = new AtomicLongArray(FASES.length * BUCKETS);
+
+    private final LongAdder         files = new LongAdder();
+    private final LongAdder         tokens = new LongAdder();
+    private final LongAdder         identifiers = new LongAdder();
+    private final LongAdder         assignments = new LongAdder();
+    private final LongAdder         conditions = new LongAdder();
+
+    /*
+     * La medición de una fase en curso. Se inicia con start() y se termina
+     * con stop() en el finally de la fase; si las métricas están
+     * desactivadas, start() devuelve null y stop() no hace nada.
+     *
+     * Los bytes asignados se miden en el hilo que inició la fase. Una fase
+     * que reparte trabajo en otros hilos suma lo que asignaron con
+     * addWorkerBytes()
+     */
+    public final class Medicion {
+
+        private final Fase          fase;
+        private final long          startNanos;
+        private final long          startBytes;
+        private long                workerBytes = 0;
+        private final EventoFase    event = new EventoFase();
+
+        private Medicion(Fase fase) {
+            this.fase = fase;
+            this.event.begin();
+            this.startBytes = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        private void stop() {
+
+            long elapsed = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes() - startBytes + workerBytes;
+            record(fase, elapsed, allocated);
+
+            if(event.shouldCommit()){
+                event.fase = fase.getNombre();
+                event.bytes = allocated;
+                event.commit();
+            }
+
+        }
+
+    }
+
+    /**
+     * Inicia la medición de una fase
+     *
+     * @param metrics Las métricas donde se registra, o null si están desactivadas
+     * @param fase La fase medida
+     * @return La medición, que registra la fase al terminarse con stop(), o null
+     */
+    public static Medicion start(MetricasAnalisis metrics, Fase fase) {
+        return metrics == null ? null : metrics.new Medicion(fase);
+    }
+
+    /**
+     * Termina la medición de una fase y la registra
+     *
+     * @param medicion La medición devuelta por start(), o null si las
+     *          métricas están desactivadas
+     */
+    public static void stop(Medicion medicion) {
+
+        if(medicion != null){
+            medicion.stop();
+        }
+
+    }
+
+    /**
+     * Suma a una fase en curso los bytes que asignaron otros hilos por ella
+     *
+     * @param medicion La medición devuelta por start(), o null si las
+     *          métricas están desactivadas
+     * @param bytes Los bytes asignados fuera del hilo que inició la fase
+     */
+    public static void addWorkerBytes(Medicion medicion, long bytes) {
+
+        if(medicion != null){
+            medicion.workerBytes += bytes;
+        }
+
+    }
+
+    /**
+     * Registra una fase medida por fuera de una Medicion
+     *
+     * @param fase La fase
+     * @param elapsedNanos Su duración en nanosegundos
+     * @param allocatedBytes Los bytes asignados durante la fase, o 0 si no se midieron
+     */
+    public void record(Fase fase, long elapsedNanos, long allocatedBytes) {
+
+        int f = fase.ordinal();
+        operations[f].increment();
+        nanos[f].add(elapsedNanos);
+        bytes[f].add(allocatedBytes);
+        histograms.incrementAndGet(f * BUCKETS + bucket(elapsedNanos));
+
+    }
+
+    /**
+     * Registra los contadores de un archivo analizado
+     */
+    public void countFile(int tokenCount, int identifierCount, int assignmentCount, int conditionCount) {
+
+        files.increment();
+        tokens.add(tokenCount);
+        identifiers.add(identifierCount);
+        assignments.add(assignmentCount);
+        conditions.add(conditionCount);
+
+        EventoArchivo event = new EventoArchivo();
+        if(event.shouldCommit()){
+            event.tokens = tokenCount;
+            event.identificadores = identifierCount;
+            event.asignaciones = assignmentCount;
+            event.condiciones = conditionCount;
+            event.commit();
+        }
+
+    }
+
+    public long getOperations(Fase fase) {
+        return operations[fase.ordinal()].sum();
+    }
+
+    public long getNanos(Fase fase) {
+        return nanos[fase.ordinal()].sum();
+    }
+
+    public long getAllocatedBytes(Fase fase) {
+        return bytes[fase.ordinal()].sum();
+    }
+
+    public long getFiles() {
+        return files.sum();
+    }
+
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    public long getIdentifiers() {
+        return identifiers.sum();
+    }
+
+    public long getAssignments() {
+        return assignments.sum();
+    }
+
+    public long getConditions() {
+        return conditions.sum();
+    }
+
+    /**
+     * Estima un percentil de la duración de una fase a partir de su
+     * histograma
+     *
+     * @param fase La fase
+     * @param percentile El percentil, entre 0 y 1
+     * @return El límite superior de la cubeta del percentil, en nanosegundos
+     */
+    public long percentile(Fase fase, double percentile) {
+
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            count += histograms.get(fase.ordinal() * BUCKETS + i);
+        }
+        if(count == 0){
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += histograms.get(fase.ordinal() * BUCKETS + i);
+            if(seen >= target){
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+
+    }
+
+    /**
+     * Formatea las métricas como un objeto JSON
+     *
+     * @return El reporte en formato JSON
+     */
+    public String toJson() {
+
+        StringBuilder json = new StringBuilder(1024);
+
+        json.append("{\"archivos\":").append(getFiles())
+            .append(",\"tokens\":").append(getTokens())
+            .append(",\"identificadores\":").append(getIdentifiers())
+            .append(",\"asignaciones\":").append(getAssignments())
+            .append(",\"condiciones\":").append(getConditions())
+            .append(",\"fases\":{");
+
+        for(Fase fase : FASES){
+
+            if(fase.ordinal() > 0){
+                json.append(',');
+            }
+            json.append('"').append(fase.getNombre()).append("\":{")
+                .append("\"operaciones\":").append(getOperations(fase))
+                .append(",\"nanos\":").append(getNanos(fase))
+                .append(",\"bytes\":").append(getAllocatedBytes(fase))
+                .append(",\"p50Nanos\":").append(percentile(fase, 0.50))
+                .append(",\"p99Nanos\":").append(percentile(fase, 0.99))
+                .append(",\"histograma\":[");
+
+            // Se omiten las cubetas vacías del final
+            int last = -1;
+            for(int i = 0; i < BUCKETS; i++){
+                if(histograms.get(fase.ordinal() * BUCKETS + i) != 0){
+                    last = i;
+                }
+            }
+            for(int i = 0; i <= last; i++){
+                if(i > 0){
+                    json.append(',');
+                }
+                json.append(histograms.get(fase.ordinal() * BUCKETS + i));
+            }
+
+            json.append("]}");
+
+        }
+
+        return json.append("}}").toString();
+
+    }
+
+    /**
+     * Escribe el reporte JSON en un archivo
+     *
+     * @param file El archivo de destino
+     */
+    public void writeJson(File file) throws IOException {
+
+        try(Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)){
+            out.write(toJson());
+            out.write(System.lineSeparator());
+        }
+
+    }
+
+    private static int bucket(long elapsedNanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, elapsedNanos)));
+    }
+
+    /**
+     * @return Los bytes asignados hasta ahora por el hilo actual, o 0 si la
+     *          JVM no los mide
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static LongAdder[] adders(int count) {
+
+        LongAdder[] adders = new LongAdder[count];
+        for(int i = 0; i < count; i++){
+            adders[i] = new LongAdder();
+        }
+        return adders;
+
+    }
+
+    /**
+     * Obtiene el contador de bytes asignados por hilo, si la JVM lo ofrece
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()){
+            return (com.sun.management.ThreadMXBean) threads;
+        }
+        return null;
+
+    }
+
+}
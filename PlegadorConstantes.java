@@ -0,0 +1,538 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Esta clase busca las expresiones constantes del cuerpo de un programa ya
+ * revisado: las que solo usan constantes, como "10 * ( 89 - 100 )" o
+ * "verdadero == falso". Su valor se calcula con el tipo que anotó
+ * VerificadorTipos, con la misma aritmética de Interprete.
+ *
+ * Las condiciones constantes de si, mientras y hasta se reportan como
+ * avisos, que no impiden que el análisis sea exitoso.
+ *
+ * Además, fold() reescribe la tabla de tokens:
+ * - Cada expresión constante se reemplaza por un solo token de constante
+ * - Un si con condición constante se reemplaza por la rama que se ejecuta
+ * - Un mientras con condición falsa se elimina
+ * - Un repetir con condición de hasta verdadera se reemplaza por su
+ *   estatuto, que se ejecuta una sola vez
+ *
+ * Los tokens conservados mantienen su línea y su posición en la tabla de
+ * símbolos. Los mientras con condición verdadera y los repetir con hasta
+ * falso no terminan, así que solo se reporta el aviso.
+ */
+
+public class PlegadorConstantes {
+
+    private final ArbolPrograma tree;
+    private final TablaTokens   tokens;
+
+    // El lexema del valor de cada nodo de expresión constante, o null
+    private final String[]      values;
+
+    // Reemplazos de la pasada actual: rangos [from, to) de la tabla de
+    // tokens, en orden, y sus tokens nuevos
+    private final List<int[]>       ranges = new ArrayList<int[]>();
+    private final List<List<Token>> replacements = new ArrayList<List<Token>>();
+
+    private PlegadorConstantes(ArbolPrograma tree) {
+
+        this.tree = tree;
+        this.tokens = tree.getTokens();
+        this.values = new String[tree.size()];
+
+        for(int node = 0; node < tree.size(); node++){
+            if(values[node] == null){
+                evaluate(node);
+            }
+        }
+
+    }
+
+    /**
+     * Reporta las condiciones constantes del cuerpo de un programa sin
+     * errores semánticos
+     *
+     * @param tree El árbol del programa, con los tipos ya anotados
+     * @return Un aviso por cada estatuto con condición constante
+     */
+    public static Diagnosticos findConstantConditions(ArbolPrograma tree) {
+
+        PlegadorConstantes folder = new PlegadorConstantes(tree);
+        Diagnosticos warnings = new Diagnosticos();
+
+        for(int node = 0; node < tree.size(); node++){
+
+            int clase = tree.getClase(node);
+            if(clase != ArbolPrograma.SI && clase != ArbolPrograma.MIENTRAS && clase != ArbolPrograma.REPETIR){
+                continue;
+            }
+
+            int condition = conditionOf(tree, node);
+            Boolean value = folder.conditionValue(condition);
+            if(value == null){
+                continue;
+            }
+
+            String effect;
+            if(clase == ArbolPrograma.SI){
+                effect = value
+                    ? (tree.getChild(node, 2) == ArbolPrograma.NINGUNO ? "el estatuto siempre se ejecuta" : "la rama sino nunca se ejecuta")
+                    : "la rama entonces nunca se ejecuta";
+            } else if(clase == ArbolPrograma.MIENTRAS){
+                effect = value ? "el ciclo nunca termina" : "el ciclo nunca se ejecuta";
+            } else {
+                effect = value ? "el ciclo se ejecuta una sola vez" : "el ciclo nunca termina";
+            }
+
+            warnings.add(
+                Diagnostico.Tipo.CONDICION_CONSTANTE, folder.tokens, tree.getTokenIndex(condition),
+                "Aviso: La condición siempre es " + (value ? "verdadera" : "falsa") + ", " + effect
+            );
+
+        }
+
+        return warnings;
+
+    }
+
+    /**
+     * Hace una pasada de plegado sobre la tabla de tokens del árbol. Las
+     * ramas conservadas de un estatuto eliminado no se pliegan en la misma
+     * pasada, así que se repite con el árbol reconstruido hasta que ya no
+     * haya cambios
+     *
+     * @param tree El árbol de un programa sin errores semánticos, con los tipos ya anotados
+     * @return Verdadero si la tabla de tokens cambió y el árbol ya no es válido
+     */
+    public static boolean fold(ArbolPrograma tree) {
+
+        PlegadorConstantes folder = new PlegadorConstantes(tree);
+        int body = tree.getBody();
+        folder.rewriteStatement(body, folder.tokens.size());
+
+        // Los reemplazos se aplican del último al primero para que los
+        // índices de los anteriores sigan siendo válidos
+        for(int i = folder.ranges.size() - 1; i >= 0; i--){
+            int[] range = folder.ranges.get(i);
+            folder.tokens.replace(range[0], range[1], folder.replacements.get(i));
+        }
+
+        return !folder.ranges.isEmpty();
+
+    }
+
+    /**
+     * Reescribe un estatuto
+     *
+     * @param node El nodo del estatuto
+     * @param end El índice siguiente al último token del estatuto
+     */
+    private void rewriteStatement(int node, int end) {
+
+        if(node == ArbolPrograma.NINGUNO){
+            return;
+        }
+
+        switch(tree.getClase(node)){
+
+            case ArbolPrograma.CUERPO:
+            case ArbolPrograma.BLOQUE: {
+                // Cada estatuto termina donde empieza el siguiente; el último
+                // termina en el "fin" del bloque
+                int blockEnd = end;
+                if(tree.getClase(node) == ArbolPrograma.BLOQUE){
+                    while(blockEnd - 1 > tree.getTokenIndex(node) && tokens.getToken(blockEnd - 1) == Sintaxis.PUNTOCOMA){
+                        blockEnd--;
+                    }
+                    if(blockEnd - 1 > tree.getTokenIndex(node) && tokens.getToken(blockEnd - 1) == Sintaxis.FIN){
+                        blockEnd--;
+                    }
+                }
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; ){
+                    int next = tree.getNextSibling(child);
+                    rewriteStatement(child, next == ArbolPrograma.NINGUNO ? blockEnd : first(next));
+                    child = next;
+                }
+                break;
+            }
+
+            case ArbolPrograma.ASIGNACION:
+            case ArbolPrograma.ESCRIBIR:
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                    foldExpression(child);
+                }
+                break;
+
+            case ArbolPrograma.CONDICION:
+                foldExpression(tree.getFirstChild(node));
+                break;
+
+            case ArbolPrograma.SI: {
+                int condition = tree.getChild(node, 0);
+                int then = tree.getChild(node, 1);
+                int otherwise = tree.getChild(node, 2);
+                int thenEnd = otherwise == ArbolPrograma.NINGUNO ? end : findSino(then, otherwise);
+
+                Boolean value = conditionValue(condition);
+                if(value == null){
+                    foldExpression(tree.getFirstChild(condition));
+                    rewriteStatement(then, thenEnd);
+                    rewriteStatement(otherwise, end);
+                } else if(value){
+                    keep(first(node), end, then, thenEnd);
+                } else {
+                    keep(first(node), end, otherwise, end);
+                }
+                break;
+            }
+
+            case ArbolPrograma.MIENTRAS: {
+                int condition = tree.getChild(node, 0);
+                if(Boolean.FALSE.equals(conditionValue(condition))){
+                    keep(first(node), end, ArbolPrograma.NINGUNO, end);
+                } else {
+                    foldExpression(tree.getFirstChild(condition));
+                    rewriteStatement(tree.getChild(node, 1), end);
+                }
+                break;
+            }
+
+            case ArbolPrograma.REPETIR: {
+                int condition = conditionOf(tree, node);
+                int statement = tree.getChild(node, 0) == condition ? ArbolPrograma.NINGUNO : tree.getChild(node, 0);
+                int statementEnd = condition == ArbolPrograma.NINGUNO ? end : tree.getTokenIndex(condition);
+
+                if(Boolean.TRUE.equals(conditionValue(condition))){
+                    keep(first(node), end, statement, statementEnd);
+                } else {
+                    rewriteStatement(statement, statementEnd);
+                    if(condition != ArbolPrograma.NINGUNO){
+                        foldExpression(tree.getFirstChild(condition));
+                    }
+                }
+                break;
+            }
+
+            default:
+                break;
+
+        }
+
+    }
+
+    /**
+     * Reemplaza el rango de un estatuto por los tokens de uno de sus hijos,
+     * o lo elimina si el hijo es NINGUNO
+     */
+    private void keep(int from, int to, int child, int childEnd) {
+
+        List<Token> kept = new ArrayList<Token>();
+        if(child != ArbolPrograma.NINGUNO){
+            for(int index = first(child); index < childEnd; index++){
+                kept.add(tokens.toToken(index));
+            }
+        }
+        replace(from, to, kept);
+
+    }
+
+    /**
+     * Reemplaza la expresión constante más grande que contenga cada rama
+     * por un solo token de constante
+     */
+    private void foldExpression(int node) {
+
+        if(node == ArbolPrograma.NINGUNO || tree.getClase(node) == ArbolPrograma.CONSTANTE){
+            return;
+        }
+
+        if(values[node] == null){
+            for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                foldExpression(child);
+            }
+            return;
+        }
+
+        // El rango de la expresión incluye los paréntesis que abre o cierra
+        int from = first(node);
+        int to = last(node) + 1;
+        int open = 0;
+        for(int index = from; index < to; index++){
+            if(tokens.getToken(index) == Sintaxis.PAR_ABRIR){
+                open++;
+            } else if(tokens.getToken(index) == Sintaxis.PAR_CERRAR){
+                open--;
+            }
+        }
+        for(; open > 0 && to < tokens.size(); to++){
+            if(tokens.getToken(to) == Sintaxis.PAR_CERRAR){
+                open--;
+            }
+        }
+        for(; open < 0 && from > 0; from--){
+            if(tokens.getToken(from - 1) == Sintaxis.PAR_ABRIR){
+                open++;
+            }
+        }
+
+        List<Token> constant = new ArrayList<Token>(1);
+        constant.add(new Token(constantToken(tree.getTipoDato(node), values[node]), values[node], -1, tokens.getNumLinea(from)));
+        replace(from, to, constant);
+
+    }
+
+    private void replace(int from, int to, List<Token> replacement) {
+
+        ranges.add(new int[]{ from, to });
+        replacements.add(replacement);
+
+    }
+
+    /**
+     * Busca la condición de un estatuto de control por su clase. La
+     * posición de la condición de un repetir depende de si tiene estatuto:
+     * un repetir vacío, o uno cuyo estatuto quedó fuera de un rango
+     * revisado, la tiene como primer hijo
+     *
+     * @return El nodo CONDICION, o NINGUNO si el estatuto no tiene
+     */
+    private static int conditionOf(ArbolPrograma tree, int node) {
+
+        for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+            if(tree.getClase(child) == ArbolPrograma.CONDICION){
+                return child;
+            }
+        }
+        return ArbolPrograma.NINGUNO;
+
+    }
+
+    /**
+     * @return El valor de la condición de un estatuto, o null si no es constante
+     */
+    private Boolean conditionValue(int condition) {
+
+        if(condition == ArbolPrograma.NINGUNO || tree.getClase(condition) != ArbolPrograma.CONDICION){
+            return null;
+        }
+
+        int expression = tree.getFirstChild(condition);
+        if(expression == ArbolPrograma.NINGUNO || values[expression] == null || tree.getTipoDato(expression) != TipoDato.LOGICO){
+            return null;
+        }
+        return values[expression].equals("verdadero");
+
+    }
+
+    /**
+     * Busca el "sino" entre las dos ramas de un si
+     *
+     * @return El índice del "sino", donde termina la rama entonces
+     */
+    private int findSino(int then, int otherwise) {
+
+        int index = first(otherwise) - 1;
+        while(index > first(then) && tokens.getToken(index) != Sintaxis.SINO){
+            index--;
+        }
+        return index;
+
+    }
+
+    private int first(int node) {
+
+        int first = tree.getTokenIndex(node);
+        for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+            first = Math.min(first, first(child));
+        }
+        return first;
+
+    }
+
+    private int last(int node) {
+
+        int last = tree.getTokenIndex(node);
+        for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+            last = Math.max(last, last(child));
+        }
+        return last;
+
+    }
+
+    /**
+     * Calcula el valor de una expresión si es constante
+     *
+     * @return El lexema del valor, o null si la expresión no es constante
+     */
+    private String evaluate(int node) {
+
+        String value = null;
+
+        switch(tree.getClase(node)){
+
+            case ArbolPrograma.CONSTANTE:
+                value = tokens.getLexema(tree.getTokenIndex(node));
+                break;
+
+            case ArbolPrograma.UNARIA: {
+                String operand = evaluate(tree.getFirstChild(node));
+                if(operand != null){
+                    value = unary(tree.getToken(node), tree.getTipoDato(node), operand);
+                }
+                break;
+            }
+
+            case ArbolPrograma.BINARIA: {
+                int left = tree.getFirstChild(node);
+                int right = tree.getNextSibling(left);
+                String leftValue = evaluate(left);
+                String rightValue = evaluate(right);
+                if(leftValue != null && rightValue != null){
+                    value = binary(tree.getToken(node), tree.getTipoDato(left), leftValue, tree.getTipoDato(right), rightValue);
+                }
+                break;
+            }
+
+            default:
+                break;
+
+        }
+
+        values[node] = value;
+        return value;
+
+    }
+
+    private static String unary(int operator, TipoDato tipo, String operand) {
+
+        if(operator == Sintaxis.NOT_OP && tipo == TipoDato.LOGICO){
+            return format(!isTrue(operand));
+        }
+        if(operator == Sintaxis.SUM_OP && tipo.isNumeric()){
+            return operand;
+        }
+        if(operator == Sintaxis.RES_OP && tipo == TipoDato.ENTERO){
+            Integer value = parseEntero(operand);
+            return value == null ? null : Integer.toString(-value);
+        }
+        if(operator == Sintaxis.RES_OP && tipo == TipoDato.REAL){
+            return format(-Double.parseDouble(operand));
+        }
+        return null;
+
+    }
+
+    private static String binary(int operator, TipoDato leftType, String left, TipoDato rightType, String right) {
+
+        if(leftType == TipoDato.LOGICO && rightType == TipoDato.LOGICO){
+            boolean a = isTrue(left);
+            boolean b = isTrue(right);
+            if(operator == Sintaxis.AND_OP) return format(a && b);
+            if(operator == Sintaxis.OR_OP) return format(a || b);
+            if(operator == Sintaxis.IGUAL_OP) return format(a == b);
+            if(operator == Sintaxis.DIF_OP) return format(a != b);
+            return null;
+        }
+
+        if(leftType == TipoDato.CADENA && rightType == TipoDato.CADENA){
+            String a = unquote(left);
+            String b = unquote(right);
+            if(operator == Sintaxis.SUM_OP){
+                return "\"" + a + b + "\"";
+            }
+            return Sintaxis.isRelationalOperator(operator) ? compare(operator, a.compareTo(b)) : null;
+        }
+
+        if(leftType == TipoDato.ENTERO && rightType == TipoDato.ENTERO){
+            Integer a = parseEntero(left);
+            Integer b = parseEntero(right);
+            if(a == null || b == null){
+                return null;
+            }
+            if(operator == Sintaxis.SUM_OP) return Integer.toString(a + b);
+            if(operator == Sintaxis.RES_OP) return Integer.toString(a - b);
+            if(operator == Sintaxis.MUL_OP) return Integer.toString(a * b);
+            // La división entre cero se deja para la ejecución
+            if(operator == Sintaxis.DIV_OP) return b == 0 ? null : Integer.toString(a / b);
+            if(operator == Sintaxis.MOD_OP) return b == 0 ? null : Integer.toString(a % b);
+            return Sintaxis.isRelationalOperator(operator) ? compare(operator, Integer.compare(a, b)) : null;
+        }
+
+        if(leftType.isNumeric() && rightType.isNumeric()){
+            double a = Double.parseDouble(left);
+            double b = Double.parseDouble(right);
+            if(operator == Sintaxis.SUM_OP) return format(a + b);
+            if(operator == Sintaxis.RES_OP) return format(a - b);
+            if(operator == Sintaxis.MUL_OP) return format(a * b);
+            if(operator == Sintaxis.DIV_OP) return format(a / b);
+            if(operator == Sintaxis.MENOR_OP) return format(a < b);
+            if(operator == Sintaxis.MENIG_OP) return format(a <= b);
+            if(operator == Sintaxis.MAYOR_OP) return format(a > b);
+            if(operator == Sintaxis.MAYIG_OP) return format(a >= b);
+            if(operator == Sintaxis.IGUAL_OP) return format(a == b);
+            if(operator == Sintaxis.DIF_OP) return format(a != b);
+        }
+
+        return null;
+
+    }
+
+    private static String compare(int operator, int comparison) {
+
+        if(operator == Sintaxis.MENOR_OP) return format(comparison < 0);
+        if(operator == Sintaxis.MENIG_OP) return format(comparison <= 0);
+        if(operator == Sintaxis.MAYOR_OP) return format(comparison > 0);
+        if(operator == Sintaxis.MAYIG_OP) return format(comparison >= 0);
+        if(operator == Sintaxis.IGUAL_OP) return format(comparison == 0);
+        return format(comparison != 0);
+
+    }
+
+    private static int constantToken(TipoDato tipo, String value) {
+
+        switch(tipo){
+            case ENTERO: return Sintaxis.INT_CONST;
+            case REAL: return Sintaxis.REAL_CONST;
+            case CADENA: return Sintaxis.STRING_CONST;
+            default: return isTrue(value) ? Sintaxis.TRUE_CONST : Sintaxis.FALSE_CONST;
+        }
+
+    }
+
+    private static String format(boolean value) {
+        return value ? "verdadero" : "falso";
+    }
+
+    /**
+     * @return El lexema de un real, o null si el resultado no es finito y
+     *          no puede escribirse como constante
+     */
+    private static String format(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : null;
+    }
+
+    private static boolean isTrue(String value) {
+        return value.equals("verdadero");
+    }
+
+    private static Integer parseEntero(String value) {
+
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+    }
+
+    private static String unquote(String lexema) {
+
+        if(lexema.length() >= 2 && lexema.charAt(0) == '"' && lexema.charAt(lexema.length() - 1) == '"'){
+            return lexema.substring(1, lexema.length() - 1);
+        }
+        return lexema;
+
+    }
+
+}
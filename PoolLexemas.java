@@ -0,0 +1,273 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Esta clase guarda una sola copia de cada lexema distinto de un programa
+ * y le asigna un identificador entero denso (0, 1, 2, ...).
+ *
+ * Los lexemas se internan directamente desde los bytes del archivo de
+ * tokens: los bytes se guardan en un arreglo contiguo y la búsqueda usa
+ * una tabla hash de direccionamiento abierto, por lo que solo se crea una
+ * cadena la primera vez que aparece cada lexema.
+ *
+ * Si el pool tiene un RegistroLexemas, los nombres de identificador nuevos
+ * se registran también ahí y el pool toma la cadena compartida del
+ * registro. Las constantes son propias de cada programa y no se registran.
+ * Solo se comparte la cadena: los lexemas del pool se identifican
+ * únicamente por su identificador denso.
+ */
+
+public class PoolLexemas {
+
+    private byte[]      bytes = new byte[1 << 12];
+    private int         bytesUsed = 0;
+    private int[]       offsets = new int[65];
+    private int[]       hashes = new int[64];
+    private String[]    lexemas = new String[64];
+    private int         size = 0;
+
+    // Tabla hash de direccionamiento abierto: cada casilla guarda id + 1, o 0 si está vacía
+    private int[]       slots = new int[128];
+
+    private final RegistroLexemas registry;
+
+    /**
+     * Crea un pool que comparte sus cadenas con el registro global
+     */
+    public PoolLexemas(){
+        this(RegistroLexemas.getGlobal());
+    }
+
+    /**
+     * @param registry El registro con que se comparten las cadenas, o null
+     *                 para que el pool guarde sus propias copias
+     */
+    public PoolLexemas(RegistroLexemas registry){
+        this.registry = registry;
+    }
+
+    /**
+     * Interna un lexema dado como un rango de bytes UTF-8, sin compartirlo
+     * con el registro
+     *
+     * @param buffer El buffer que contiene el lexema
+     * @param offset El inicio del lexema
+     * @param length La longitud del lexema
+     * @return El identificador del lexema
+     */
+    public int intern(byte[] buffer, int offset, int length){
+        return intern(buffer, offset, length, false);
+    }
+
+    /**
+     * Interna un lexema dado como un rango de bytes UTF-8
+     *
+     * @param buffer El buffer que contiene el lexema
+     * @param offset El inicio del lexema
+     * @param length La longitud del lexema
+     * @param shared Verdadero si el lexema es un nombre de identificador,
+     *               cuya cadena se comparte con el registro
+     * @return El identificador del lexema
+     */
+    public int intern(byte[] buffer, int offset, int length, boolean shared){
+
+        int hash = hash(buffer, offset, length);
+        int slot = findSlot(buffer, offset, length, hash);
+
+        if(slots[slot] != 0){
+            return slots[slot] - 1;
+        }
+
+        int id = add(buffer, offset, length, hash, shared);
+        slots[slot] = id + 1;
+        if(size * 2 > slots.length){
+            rehash();
+        }
+        return id;
+
+    }
+
+    /**
+     * Busca un lexema sin internarlo
+     *
+     * @param lexema El lexema
+     * @return El identificador del lexema, o -1 si no está en el pool
+     */
+    public int find(String lexema){
+
+        byte[] encoded = lexema.getBytes(StandardCharsets.UTF_8);
+        return slots[findSlot(encoded, 0, encoded.length, hash(encoded, 0, encoded.length))] - 1;
+
+    }
+
+    /**
+     * Interna un lexema dado como cadena, sin compartirlo con el registro
+     *
+     * @param lexema El lexema
+     * @return El identificador del lexema
+     */
+    public int intern(String lexema){
+        return intern(lexema, false);
+    }
+
+    /**
+     * Interna un lexema dado como cadena
+     *
+     * @param lexema El lexema
+     * @param shared Verdadero si el lexema es un nombre de identificador
+     * @return El identificador del lexema
+     */
+    public int intern(String lexema, boolean shared){
+
+        byte[] encoded = lexema.getBytes(StandardCharsets.UTF_8);
+        return intern(encoded, 0, encoded.length, shared);
+
+    }
+
+    /**
+     * Obtiene el lexema con un identificador dado
+     *
+     * @param id El identificador del lexema
+     * @return El lexema
+     */
+    public String get(int id){
+        return lexemas[id];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Descarta los lexemas agregados después de los primeros size. Los
+     * identificadores de los lexemas que se conservan no cambian, y los
+     * arreglos del pool se reducen a la medida de lo que queda
+     *
+     * @param newSize La cantidad de lexemas que se conservan
+     */
+    public void truncate(int newSize){
+
+        if(newSize >= size){
+            return;
+        }
+
+        int capacity = Math.max(64, newSize * 2);
+        size = newSize;
+        bytesUsed = offsets[newSize];
+
+        bytes = Arrays.copyOf(bytes, Math.max(1 << 12, bytesUsed * 2));
+        offsets = Arrays.copyOf(offsets, capacity + 1);
+        hashes = Arrays.copyOf(hashes, capacity);
+        lexemas = Arrays.copyOf(lexemas, capacity);
+
+        slots = new int[Integer.highestOneBit(capacity) * 2];
+        int mask = slots.length - 1;
+        for(int id = 0; id < size; id++){
+            int slot = hashes[id] & mask;
+            while(slots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+
+    }
+
+    /**
+     * Devuelve el arreglo con los bytes UTF-8 de todos los lexemas. Los bytes
+     * de un lexema están en [getByteOffset(id), getByteOffset(id) + getByteLength(id))
+     *
+     * @return El arreglo de bytes del pool, que no debe modificarse
+     */
+    public byte[] getBytes(){
+        return bytes;
+    }
+
+    public int getByteOffset(int id){
+        return offsets[id];
+    }
+
+    public int getByteLength(int id){
+        return offsets[id + 1] - offsets[id];
+    }
+
+    private int add(byte[] buffer, int offset, int length, int hash, boolean shared){
+
+        if(size == lexemas.length){
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            lexemas = Arrays.copyOf(lexemas, size * 2);
+        }
+        if(bytesUsed + length > bytes.length){
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesUsed + length));
+        }
+
+        System.arraycopy(buffer, offset, bytes, bytesUsed, length);
+        offsets[size] = bytesUsed;
+        bytesUsed += length;
+        offsets[size + 1] = bytesUsed;
+
+        hashes[size] = hash;
+        String lexema = shared && registry != null ? registry.intern(buffer, offset, length, hash) : null;
+        lexemas[size] = lexema != null ? lexema : LectorTokens.decode(buffer, offset, length);
+
+        return size++;
+
+    }
+
+    /**
+     * Busca la casilla de un lexema: la que guarda su identificador, o la
+     * casilla vacía donde debe agregarse
+     */
+    private int findSlot(byte[] buffer, int offset, int length, int hash){
+
+        int mask = slots.length - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            int entry = slots[slot];
+            if(entry == 0 || (hashes[entry - 1] == hash && equals(entry - 1, buffer, offset, length))){
+                return slot;
+            }
+        }
+
+    }
+
+    private boolean equals(int id, byte[] buffer, int offset, int length){
+
+        int start = offsets[id];
+        if(offsets[id + 1] - start != length){
+            return false;
+        }
+        for(int i = 0; i < length; i++){
+            if(bytes[start + i] != buffer[offset + i]){
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+    private void rehash(){
+
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for(int id = 0; id < size; id++){
+            int slot = hashes[id] & mask;
+            while(slots[slot] != 0){
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+
+    }
+
+    static int hash(byte[] buffer, int offset, int length){
+
+        int hash = 0;
+        for(int i = offset; i < offset + length; i++){
+            hash = 31 * hash + buffer[i];
+        }
+        // Mezcla los bits altos para que la máscara use todo el hash
+        return hash ^ (hash >>> 16);
+
+    }
+
+}
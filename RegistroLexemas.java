@@ -0,0 +1,307 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Esta clase guarda una sola copia de los nombres de identificador para
+ * todas las sesiones de análisis de la JVM. Los programas de un mismo
+ * corpus repiten casi los mismos identificadores (uno&, dos&, cinco#, ...),
+ * así que un servidor o un lote que analiza muchos programas comparte sus
+ * cadenas en lugar de crearlas de nuevo en cada sesión. Las constantes y
+ * los demás lexemas no se registran (ver PoolLexemas).
+ *
+ * El registro se divide en fragmentos según los bits altos del hash
+ * mezclado del lexema. Cada fragmento tiene una tabla hash de
+ * direccionamiento abierto con sus entradas publicadas en un
+ * AtomicReferenceArray:
+ * - Las búsquedas no usan candados: leen la tabla actual y comparan los
+ *   bytes de las entradas, que son inmutables
+ * - Las altas toman solo el candado de su fragmento, vuelven a buscar y
+ *   publican la entrada. Al crecer, la tabla nueva se llena completa
+ *   antes de reemplazar a la anterior
+ *
+ *
+ * La memoria está acotada: los lexemas de más de MAX_LEXEMA_BYTES bytes no
+ * se registran, e intern() devuelve null para que la sesión guarde su
+ * propia copia. Cuando un fragmento llega a su límite se vacía y empieza
+ * una generación nueva, de modo que los identificadores que se siguen
+ * usando vuelven a registrarse y los que ya nadie usa se descartan.
+ *
+ * Las sesiones solo comparten las cadenas: el PoolLexemas de cada
+ * programa toma la cadena registrada, y sus tablas siguen indexadas por
+ * el identificador denso del pool. Por eso vaciar un fragmento es seguro:
+ * las cadenas que ya se entregaron siguen siendo válidas.
+ */
+
+public class RegistroLexemas {
+
+    public static final int     DEFAULT_MAX_LEXEMAS = 1 << 16;
+    public static final int     MAX_LEXEMA_BYTES = 32;
+
+    private static final int    SHARD_BITS = 6;
+    private static final int    SHARDS = 1 << SHARD_BITS;
+
+    private static final RegistroLexemas GLOBAL = new RegistroLexemas(DEFAULT_MAX_LEXEMAS);
+
+    /*
+     * Un lexema registrado. Sus campos son finales, así que una entrada leída
+     * de la tabla siempre se ve completa
+     */
+    private static final class Entrada {
+
+        final byte[]    bytes;
+        final int       hash;
+        final String    lexema;
+
+        Entrada(byte[] bytes, int hash, String lexema) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.lexema = lexema;
+        }
+
+    }
+
+    /*
+     * Un fragmento del registro. Las tablas se leen sin candado; size, la
+     * generación y los reemplazos de las tablas solo cambian con el
+     * candado del fragmento. entries guarda las entradas en orden de alta,
+     * para llenar la tabla hash nueva al crecer
+     */
+    private static final class Fragmento {
+
+        volatile AtomicReferenceArray<Entrada> slots = new AtomicReferenceArray<Entrada>(16);
+        volatile AtomicReferenceArray<Entrada> entries = new AtomicReferenceArray<Entrada>(8);
+        volatile int size = 0;
+        volatile int generation = 0;
+
+        /**
+         * Vacía el fragmento. Las búsquedas que todavía leen las tablas
+         * anteriores siguen viendo entradas completas
+         */
+        void clear() {
+            slots = new AtomicReferenceArray<Entrada>(16);
+            entries = new AtomicReferenceArray<Entrada>(8);
+            size = 0;
+            generation++;
+        }
+
+    }
+
+    private final Fragmento[]   shards = new Fragmento[SHARDS];
+    private final int           maxPerShard;
+
+    /**
+     * @param maxLexemas La cantidad máxima aproximada de lexemas del registro
+     */
+    public RegistroLexemas(int maxLexemas) {
+
+        this.maxPerShard = Math.max(1, maxLexemas / SHARDS);
+        for(int i = 0; i < SHARDS; i++){
+            shards[i] = new Fragmento();
+        }
+
+    }
+
+    /**
+     * @return El registro compartido por todas las sesiones de la JVM
+     */
+    public static RegistroLexemas getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * Registra un lexema dado como un rango de bytes UTF-8
+     *
+     * @param buffer El buffer que contiene el lexema
+     * @param offset El inicio del lexema
+     * @param length La longitud del lexema
+     * @return La cadena compartida del lexema, o null si el lexema es muy
+     *          largo para registrarse
+     */
+    public String intern(byte[] buffer, int offset, int length) {
+        return intern(buffer, offset, length, PoolLexemas.hash(buffer, offset, length));
+    }
+
+    /**
+     * Registra un lexema dado como cadena
+     *
+     * @param lexema El lexema
+     * @return La cadena compartida del lexema, o null si no se registró
+     */
+    public String intern(String lexema) {
+
+        byte[] encoded = lexema.getBytes(StandardCharsets.UTF_8);
+        return intern(encoded, 0, encoded.length);
+
+    }
+
+    /**
+     * Registra un lexema cuyo hash ya calculó PoolLexemas
+     */
+    String intern(byte[] buffer, int offset, int length, int hash) {
+
+        if(length > MAX_LEXEMA_BYTES){
+            return null;
+        }
+
+        Fragmento shard = shards[shard(hash)];
+
+        // Camino de lectura, sin candado: casi todos los lexemas de un
+        // corpus ya están registrados
+        Entrada existing = find(shard.slots, buffer, offset, length, hash);
+        if(existing != null){
+            return existing.lexema;
+        }
+
+        synchronized(shard){
+
+            // Otro hilo pudo registrarlo mientras se esperaba el candado
+            existing = find(shard.slots, buffer, offset, length, hash);
+            if(existing != null){
+                return existing.lexema;
+            }
+
+            if(shard.size >= maxPerShard){
+                shard.clear();
+            }
+            int index = shard.size;
+
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, offset, bytes, 0, length);
+            Entrada entrada = new Entrada(bytes, hash, LectorTokens.decode(buffer, offset, length));
+
+            AtomicReferenceArray<Entrada> entries = shard.entries;
+            if(index == entries.length()){
+                entries = copy(entries, entries.length() * 2);
+                shard.entries = entries;
+            }
+            entries.set(index, entrada);
+
+            AtomicReferenceArray<Entrada> slots = shard.slots;
+            if((index + 1) * 2 > slots.length()){
+                slots = rehash(entries, index, slots.length() * 2);
+            }
+            insert(slots, entrada);
+            shard.slots = slots;
+            shard.size = index + 1;
+
+            return entrada.lexema;
+
+        }
+
+    }
+
+    /**
+     * Busca un lexema sin registrarlo
+     *
+     * @param lexema El lexema
+     * @return La cadena compartida del lexema, o null si no está registrado
+     */
+    public String find(String lexema) {
+
+        byte[] encoded = lexema.getBytes(StandardCharsets.UTF_8);
+        int hash = PoolLexemas.hash(encoded, 0, encoded.length);
+        Entrada entrada = find(shards[shard(hash)].slots, encoded, 0, encoded.length, hash);
+        return entrada == null ? null : entrada.lexema;
+
+    }
+
+    /**
+     * @return La cantidad de lexemas registrados
+     */
+    public int size() {
+
+        int size = 0;
+        for(Fragmento shard : shards){
+            size += shard.size;
+        }
+        return size;
+
+    }
+
+    public int getMaxLexemas() {
+        return maxPerShard * SHARDS;
+    }
+
+    /**
+     * @return Cuántas veces se ha vaciado algún fragmento por llegar a su límite
+     */
+    public int getClears() {
+
+        int clears = 0;
+        for(Fragmento shard : shards){
+            clears += shard.generation;
+        }
+        return clears;
+
+    }
+
+    /**
+     * El fragmento de un hash. Los hashes de lexemas cortos son pequeños y
+     * tienen vacíos los bits altos, así que primero se mezclan
+     */
+    private static int shard(int hash) {
+        return (hash * 0x9E3779B9) >>> (32 - SHARD_BITS);
+    }
+
+    private static Entrada find(AtomicReferenceArray<Entrada> slots, byte[] buffer, int offset, int length, int hash) {
+
+        int mask = slots.length() - 1;
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            Entrada entrada = slots.get(slot);
+            if(entrada == null || (entrada.hash == hash && equals(entrada.bytes, buffer, offset, length))){
+                return entrada;
+            }
+        }
+
+    }
+
+    private static void insert(AtomicReferenceArray<Entrada> slots, Entrada entrada) {
+
+        int mask = slots.length() - 1;
+        int slot = entrada.hash & mask;
+        while(slots.get(slot) != null){
+            slot = (slot + 1) & mask;
+        }
+        slots.set(slot, entrada);
+
+    }
+
+    /**
+     * Construye una tabla hash nueva con las primeras count entradas. La
+     * tabla no es visible para las búsquedas hasta que se publica
+     */
+    private static AtomicReferenceArray<Entrada> rehash(AtomicReferenceArray<Entrada> entries, int count, int capacity) {
+
+        AtomicReferenceArray<Entrada> slots = new AtomicReferenceArray<Entrada>(capacity);
+        for(int i = 0; i < count; i++){
+            insert(slots, entries.get(i));
+        }
+        return slots;
+
+    }
+
+    private static AtomicReferenceArray<Entrada> copy(AtomicReferenceArray<Entrada> array, int capacity) {
+
+        AtomicReferenceArray<Entrada> copy = new AtomicReferenceArray<Entrada>(capacity);
+        for(int i = 0; i < array.length(); i++){
+            copy.set(i, array.get(i));
+        }
+        return copy;
+
+    }
+
+    private static boolean equals(byte[] bytes, byte[] buffer, int offset, int length) {
+
+        if(bytes.length != length){
+            return false;
+        }
+        for(int i = 0; i < length; i++){
+            if(bytes[i] != buffer[offset + i]){
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+}
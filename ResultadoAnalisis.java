@@ -0,0 +1,185 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * Esta clase contiene el resultado de una sesión de análisis semántico:
+ * las tablas de símbolos, direcciones y tokens generadas, junto con los
+ * diagnósticos de los errores encontrados.
+ *
+ * El resultado es una vista de las tablas de la sesión: AnalisisIncremental
+ * y AnalizadorSemantico.optimize() lo modifican en su lugar, así que los
+ * formatos se generan de nuevo en cada llamada. Los resultados que
+ * comparte CacheResultados son copias congeladas con freeze(): ya no se
+ * modifican, traen su JSON generado una sola vez y pueden leerse desde
+ * varios hilos sin sincronización
+ */
+
+public class ResultadoAnalisis {
+
+    private final TablaSimbolos symbols;
+    private final TablaTokens tokens;
+    private final Diagnosticos diagnostics;
+    private final AnalizadorSemantico session;
+
+    // El JSON de un resultado congelado, en UTF-8, o null si se genera en cada llamada
+    private final byte[] json;
+
+    public ResultadoAnalisis(
+        TablaSimbolos symbols,
+        TablaTokens tokens,
+        Diagnosticos diagnostics
+    ) {
+        this(symbols, tokens, diagnostics, null);
+    }
+
+    /**
+     * @param session La sesión que produjo el resultado, que genera los
+     *          saltos de la tabla de direcciones cuando se piden, o null si
+     *          la tabla ya los tiene
+     */
+    public ResultadoAnalisis(
+        TablaSimbolos symbols,
+        TablaTokens tokens,
+        Diagnosticos diagnostics,
+        AnalizadorSemantico session
+    ) {
+        this(symbols, tokens, diagnostics, session, null);
+    }
+
+    private ResultadoAnalisis(
+        TablaSimbolos symbols,
+        TablaTokens tokens,
+        Diagnosticos diagnostics,
+        AnalizadorSemantico session,
+        byte[] json
+    ) {
+        this.symbols = symbols;
+        this.tokens = tokens;
+        this.diagnostics = diagnostics;
+        this.session = session;
+        this.json = json;
+    }
+
+    public TablaSimbolos getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Completa la tabla de direcciones con los saltos del código
+     * intermedio. Los saltos se generan solo cuando se va a escribir la
+     * tabla, no durante el análisis
+     */
+    public void resolveJumps() {
+
+        if(session != null){
+            session.recordJumps();
+        }
+
+    }
+
+    /**
+     * Copia el resultado ya con sus saltos y sin la sesión que lo produjo,
+     * para guardarlo sin retener el árbol del programa, y genera su JSON una
+     * sola vez. Las tablas del resultado congelado ya no deben modificarse
+     * 
+     * @return El resultado congelado
+     */
+    public ResultadoAnalisis freeze() {
+
+        if(json != null){
+            return this;
+        }
+        resolveJumps();
+        return new ResultadoAnalisis(
+            symbols, tokens, diagnostics, null, buildJson().getBytes(StandardCharsets.UTF_8)
+        );
+
+    }
+
+    /**
+     * Formatea la tabla de símbolos. Las filas se generan en cada llamada
+     * 
+     * @return Las filas de la tabla de símbolos
+     */
+    public List<String> getSymbolsTable() {
+        return symbols.buildTextSymbolsTable();
+    }
+
+    /**
+     * Formatea la tabla de direcciones. Las filas se generan en cada llamada
+     * 
+     * @return Las filas de la tabla de direcciones
+     */
+    public List<String> getAddressesTable() {
+        resolveJumps();
+        return symbols.buildTextAddressesTable();
+    }
+
+    /**
+     * Formatea la tabla de tokens. Las filas se generan en cada llamada
+     * 
+     * @return Las filas de la tabla de tokens
+     */
+    public List<String> getTokensTable() {
+        return AnalizadorSemantico.buildTextTokensTable(tokens);
+    }
+
+    public TablaTokens getTokens() {
+        return tokens;
+    }
+
+    public Diagnosticos getDiagnostics() {
+        return diagnostics;
+    }
+
+    public boolean isSuccessful() {
+        return diagnostics.isEmpty();
+    }
+
+    /**
+     * Formatea el resultado completo como un objeto JSON con los
+     * diagnósticos y las filas de las tres tablas. El texto se genera en
+     * cada llamada, salvo en un resultado congelado
+     * 
+     * @return El resultado en formato JSON
+     */
+    public String toJson() {
+        return json != null ? new String(json, StandardCharsets.UTF_8) : buildJson();
+    }
+
+    /**
+     * Devuelve el JSON del resultado en UTF-8. Un resultado congelado
+     * entrega siempre los mismos bytes, sin volver a generarlos
+     * 
+     * @return Los bytes del JSON, que no deben modificarse
+     */
+    public byte[] toJsonBytes() {
+        return json != null ? json : buildJson().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String buildJson() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"exito\":").append(isSuccessful());
+        sb.append(",\"diagnosticos\":").append(diagnostics.toJson());
+        appendJsonRows(sb, "simbolos", getSymbolsTable());
+        appendJsonRows(sb, "direcciones", getAddressesTable());
+        appendJsonRows(sb, "tokens", getTokensTable());
+        return sb.append('}').toString();
+
+    }
+
+    private static void appendJsonRows(StringBuilder sb, String name, List<String> rows) {
+
+        sb.append(",\"").append(name).append("\":[");
+        for(int i = 0; i < rows.size(); i++){
+            if(i > 0){
+                sb.append(',');
+            }
+            sb.append(Diagnostico.jsonString(rows.get(i)));
+        }
+        sb.append(']');
+
+    }
+
+}
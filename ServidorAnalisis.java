@@ -0,0 +1,342 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Esta clase mantiene el analizador semántico residente y atiende
+ * solicitudes por un socket local, TCP en la interfaz de loopback o de
+ * dominio Unix. Así cada análisis evita el arranque de la JVM y aprovecha
+ * el código ya compilado por el JIT.
+ *
+ * Cada conexión se atiende en su propio hilo y puede enviar varias
+ * solicitudes, una tras otra. El protocolo es de texto en UTF-8:
+ *
+ *   Solicitud:  ANALIZAR <bytes>\n seguido del contenido de un archivo de
+ *               tokens de esa longitud
+ *               PING\n
+ *               ESTADISTICAS\n
+ *   Respuesta:  OK <bytes>\n seguido del resultado en formato JSON (vacío
+ *               para PING), con los diagnósticos y las tres tablas. Para
+ *               ESTADISTICAS, los contadores de solicitudes y de la caché
+ *               ERROR <bytes>\n seguido de la descripción del error, si la
+ *               solicitud o los tokens están mal formados
+ *
+ * Un programa con errores semánticos es una respuesta OK cuyo campo
+ * "exito" es falso. Los resultados se guardan en una CacheResultados, de
+ * modo que un archivo repetido se responde sin analizarlo de nuevo. Con
+ * --metricas, ESTADISTICAS incluye además las métricas de los análisis.
+ *
+ * Uso: ServidorAnalisis [puerto | --unix ruta] [--cache-mb megabytes] [--cache-disco directorio] [--metricas]
+ */
+
+public class ServidorAnalisis {
+
+    public static final int     DEFAULT_PORT = 7070;
+    public static final int     MAX_REQUEST_BYTES = 1 << 28;
+    private static final int    MAX_HEADER_BYTES = 256;
+
+    private final ServerSocketChannel   server;
+    private final Path                  unixPath;
+    private final ExecutorService       connections;
+    private final CacheResultados       cache;
+    private final AtomicLong            requestCount = new AtomicLong();
+    private volatile MetricasAnalisis   metrics;
+
+    private ServidorAnalisis(ServerSocketChannel server, Path unixPath, CacheResultados cache) {
+
+        this.server = server;
+        this.unixPath = unixPath;
+        this.cache = cache;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "analisis-conexion-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    /**
+     * Abre un servidor TCP en la interfaz de loopback
+     *
+     * @param port El puerto, o 0 para elegir uno libre
+     * @param cache La caché de resultados, o null para analizar siempre
+     * @return El servidor, listo para atender con serve()
+     */
+    public static ServidorAnalisis openTcp(int port, CacheResultados cache) throws IOException {
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return new ServidorAnalisis(server, null, cache);
+
+    }
+
+    /**
+     * Abre un servidor en un socket de dominio Unix. Si el archivo del
+     * socket ya existe se reemplaza
+     *
+     * @param path La ruta del socket
+     * @param cache La caché de resultados, o null para analizar siempre
+     * @return El servidor, listo para atender con serve()
+     */
+    public static ServidorAnalisis openUnix(Path path, CacheResultados cache) throws IOException {
+
+        Files.deleteIfExists(path);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(path));
+        return new ServidorAnalisis(server, path, cache);
+
+    }
+
+    public static void main(String[] args) {
+
+        try {
+
+            int port = DEFAULT_PORT;
+            Path unixPath = null;
+            long cacheBytes = CacheResultados.DEFAULT_MAX_BYTES;
+            File cacheDir = null;
+            boolean measured = false;
+
+            for(int i = 0; i < args.length; i++){
+                if(args[i].equals("--unix") && i + 1 < args.length){
+                    unixPath = Paths.get(args[++i]);
+                } else if(args[i].equals("--cache-mb") && i + 1 < args.length){
+                    cacheBytes = Long.parseLong(args[++i]) << 20;
+                } else if(args[i].equals("--cache-disco") && i + 1 < args.length){
+                    cacheDir = new File(args[++i]);
+                } else if(args[i].equals("--metricas")){
+                    measured = true;
+                } else {
+                    port = Integer.parseInt(args[i]);
+                }
+            }
+
+            CacheResultados cache = new CacheResultados(cacheBytes, cacheDir);
+            ServidorAnalisis server = unixPath != null ? openUnix(unixPath, cache) : openTcp(port, cache);
+            if(measured){
+                server.setMetrics(new MetricasAnalisis());
+            }
+
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.out.println("Servidor de análisis semántico escuchando en " + server.getAddress());
+            server.serve();
+
+        } catch (Exception e) {
+            System.err.println("Error en el servidor de análisis: " + e.getMessage());
+            System.exit(2);
+        }
+
+    }
+
+    /**
+     * Acepta conexiones hasta que el servidor se cierra
+     */
+    public void serve() throws IOException {
+
+        while(true){
+
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+
+            connections.execute(() -> handle(channel));
+
+        }
+
+    }
+
+    /**
+     * Deja de aceptar conexiones. Las conexiones abiertas terminan con la JVM
+     */
+    public void close() {
+
+        try {
+            server.close();
+            if(unixPath != null){
+                Files.deleteIfExists(unixPath);
+            }
+        } catch (IOException e) {
+            // El servidor se está cerrando, no hay a quién reportarlo
+        }
+        connections.shutdown();
+
+    }
+
+    public String getAddress() throws IOException {
+        return unixPath != null ? unixPath.toString() : server.getLocalAddress().toString();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public CacheResultados getCache() {
+        return cache;
+    }
+
+    /**
+     * Activa la medición de los análisis que atienda el servidor
+     *
+     * @param metrics Las métricas, o null para no medir los análisis
+     */
+    public void setMetrics(MetricasAnalisis metrics) {
+        this.metrics = metrics;
+    }
+
+    public MetricasAnalisis getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Formatea los contadores del servidor como un objeto JSON
+     *
+     * @return Los contadores en formato JSON
+     */
+    public String getStatistics() {
+        MetricasAnalisis metrics = this.metrics;
+        return "{\"solicitudes\":" + requestCount.get()
+            + ",\"cache\":" + (cache == null ? "null" : cache.toJson())
+            + ",\"metricas\":" + (metrics == null ? "null" : metrics.toJson()) + "}";
+    }
+
+    /**
+     * Atiende las solicitudes de una conexión hasta que el cliente la cierra
+     */
+    private void handle(SocketChannel channel) {
+
+        try(SocketChannel connection = channel){
+
+            InputStream in = new BufferedInputStream(Channels.newInputStream(connection), 1 << 16);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(connection), 1 << 16);
+
+            String header;
+            while((header = readHeader(in)) != null){
+
+                requestCount.incrementAndGet();
+
+                if(header.equals("PING")){
+                    writeResponse(out, "OK", new byte[0]);
+                    continue;
+                }
+
+                if(header.equals("ESTADISTICAS")){
+                    writeResponse(out, "OK", getStatistics().getBytes(StandardCharsets.UTF_8));
+                    continue;
+                }
+
+                if(!header.startsWith("ANALIZAR ")){
+                    writeResponse(out, "ERROR", ("Solicitud desconocida: " + header).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+
+                int length;
+                try {
+                    length = Integer.parseInt(header.substring("ANALIZAR ".length()).trim());
+                } catch (NumberFormatException e) {
+                    length = -1;
+                }
+                if(length < 0 || length > MAX_REQUEST_BYTES){
+                    writeResponse(out, "ERROR", ("Longitud no válida: " + header).getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+
+                byte[] body = in.readNBytes(length);
+                if(body.length < length){
+                    return;
+                }
+
+                try {
+                    writeResponse(out, "OK", analyze(body).toJsonBytes());
+                } catch (IOException e) {
+                    writeResponse(out, "ERROR", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+                }
+
+            }
+
+        } catch (IOException e) {
+            // El cliente cerró la conexión a medio mensaje
+        }
+
+    }
+
+    /**
+     * Analiza el contenido de un archivo de tokens recibido en memoria,
+     * o toma el resultado de la caché si ya se había analizado
+     *
+     * @param body Los bytes del archivo de tokens
+     * @return El resultado del análisis
+     */
+    public ResultadoAnalisis analyze(byte[] body) throws IOException {
+
+        if(cache != null){
+            return cache.analyze(body, metrics);
+        }
+        return AnalizadorSemantico.read(body, metrics).analyze();
+
+    }
+
+    /**
+     * Lee la línea de encabezado de una solicitud
+     *
+     * @return El encabezado sin el salto de línea, o null si el cliente
+     *          cerró la conexión
+     */
+    private static String readHeader(InputStream in) throws IOException {
+
+        byte[] header = new byte[MAX_HEADER_BYTES];
+        int length = 0;
+
+        while(true){
+            int b = in.read();
+            if(b < 0){
+                return null;
+            }
+            if(b == '\n'){
+                break;
+            }
+            if(length == header.length){
+                throw new IOException("Encabezado demasiado largo");
+            }
+            header[length++] = (byte) b;
+        }
+
+        if(length > 0 && header[length - 1] == '\r'){
+            length--;
+        }
+        return new String(header, 0, length, StandardCharsets.UTF_8);
+
+    }
+
+    private static void writeResponse(OutputStream out, String status, byte[] body) throws IOException {
+
+        out.write((status + " " + body.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+
+    }
+
+}
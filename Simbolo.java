@@ -0,0 +1,70 @@
+/*
+ * Esta clase representa una entrada de la tabla de símbolos: un
+ * identificador declarado, con su tipo, su valor por defecto, el ámbito
+ * en el que se declaró y su posición (slot) en la tabla. El lexema se
+ * guarda también como su identificador en el PoolLexemas del programa
+ */
+
+public class Simbolo {
+
+    private final int       lexemaId;
+    private final String    lexema;
+    private final int       token;
+    private final String    tipo;
+    private final String    valorPorDefecto;
+    private final Ambito    ambito;
+    private final int       slot;
+    private final int       numLinea;
+
+    public Simbolo(int lexemaId, String lexema, int token, String tipo, String valorPorDefecto, Ambito ambito, int slot, int numLinea) {
+        this.lexemaId = lexemaId;
+        this.lexema = lexema;
+        this.token = token;
+        this.tipo = tipo;
+        this.valorPorDefecto = valorPorDefecto;
+        this.ambito = ambito;
+        this.slot = slot;
+        this.numLinea = numLinea;
+    }
+
+    /**
+     * @return El identificador del lexema en el PoolLexemas del programa
+     */
+    public int getLexemaId() {
+        return lexemaId;
+    }
+
+    public String getLexema() {
+        return lexema;
+    }
+
+    public int getToken() {
+        return token;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public String getValorPorDefecto() {
+        return valorPorDefecto;
+    }
+
+    public Ambito getAmbito() {
+        return ambito;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getNumLinea() {
+        return numLinea;
+    }
+
+    @Override
+    public String toString() {
+        return token + " , " + lexema + " , " + valorPorDefecto + " , " + ambito.getNombre();
+    }
+
+}
@@ -150,4 +150,100 @@ public class Sintaxis {
         )
     );
 
+    // Categorías de tokens, como bits de una máscara
+    public static final int CATEGORY_KEYWORD = 1;
+    public static final int CATEGORY_ARITHMETIC = 1 << 1;
+    public static final int CATEGORY_RELATIONAL = 1 << 2;
+    public static final int CATEGORY_LOGICAL = 1 << 3;
+    public static final int CATEGORY_IDENTIFIER = 1 << 4;
+    public static final int CATEGORY_CONSTANT = 1 << 5;
+    public static final int CATEGORY_CHAR = 1 << 6;
+
+    // Tabla de clasificación indexada por el negativo del código del token.
+    // Todos los códigos conocidos están entre -1 y -127; un código fuera de
+    // ese rango no pertenece a ninguna categoría. La consulta no requiere
+    // boxing
+    private static final int    MAX_CATEGORY_INDEX = 0x7F;
+    private static final int[]  categories = buildCategories();
+
+    private static int[] buildCategories(){
+
+        int[] table = new int[MAX_CATEGORY_INDEX + 1];
+        addCategory(table, keywords, CATEGORY_KEYWORD);
+        addCategory(table, arithmeticOperators, CATEGORY_ARITHMETIC);
+        addCategory(table, relationalOperators, CATEGORY_RELATIONAL);
+        addCategory(table, logicalOperators, CATEGORY_LOGICAL);
+        addCategory(table, identifiers, CATEGORY_IDENTIFIER);
+        addCategory(table, constants, CATEGORY_CONSTANT);
+        addCategory(table, chars, CATEGORY_CHAR);
+        return table;
+
+    }
+
+    private static void addCategory(int[] table, Set<Integer> tokens, int category){
+        for(int token : tokens){
+            table[-token] |= category;
+        }
+    }
+
+    /**
+     * Devuelve las categorías a las que pertenece un token
+     * 
+     * @param token El código del token
+     * @return La máscara de categorías del token, o 0 si el código no es
+     *          de ningún token conocido
+     */
+    public static int getCategories(int token){
+
+        int index = -token;
+        if(index < 0 || index > MAX_CATEGORY_INDEX){
+            return 0;
+        }
+        return categories[index];
+
+    }
+
+    /**
+     * Revisa si un token pertenece a alguna de las categorías dadas
+     * 
+     * @param token El código del token
+     * @param categoryMask Una o más categorías combinadas con |
+     * @return Verdadero si el token pertenece a alguna de las categorías
+     */
+    public static boolean isInCategory(int token, int categoryMask){
+        return (getCategories(token) & categoryMask) != 0;
+    }
+
+    public static boolean isKeyword(int token){
+        return isInCategory(token, CATEGORY_KEYWORD);
+    }
+
+    public static boolean isArithmeticOperator(int token){
+        return isInCategory(token, CATEGORY_ARITHMETIC);
+    }
+
+    public static boolean isRelationalOperator(int token){
+        return isInCategory(token, CATEGORY_RELATIONAL);
+    }
+
+    public static boolean isLogicalOperator(int token){
+        return isInCategory(token, CATEGORY_LOGICAL);
+    }
+
+    public static boolean isLogicalOrRelationalOperator(int token){
+        return isInCategory(token, CATEGORY_LOGICAL | CATEGORY_RELATIONAL);
+    }
+
+    public static boolean isIdentifier(int token){
+        return isInCategory(token, CATEGORY_IDENTIFIER);
+    }
+
+    public static boolean isConstant(int token){
+        return isInCategory(token, CATEGORY_CONSTANT);
+    }
+
+    public static boolean isChar(int token){
+        return isInCategory(token, CATEGORY_CHAR);
+    }
+
 }
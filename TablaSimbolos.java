@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Esta clase es la tabla de símbolos de una sesión de análisis. Los
+ * símbolos se guardan en ámbitos encadenados a su padre: el ámbito global
+ * contiene el identificador del programa y el ámbito del programa contiene
+ * sus variables.
+ *
+ * Los identificadores se declaran y se buscan por el identificador entero
+ * de su lexema, que la tabla comparte con la tabla de tokens del programa
+ * a través de un mismo PoolLexemas.
+ *
+ * La tabla de direcciones tiene, después de los identificadores, una fila
+ * por cada salto del código intermedio de un programa sin errores: la
+ * palabra reservada del estatuto que lo genera y la dirección del VCI a la
+ * que salta, ya completada.
+ *
+ * Las filas de texto de las tablas de símbolos y direcciones solamente se
+ * generan cuando se escriben, no durante el análisis.
+ */
+
+public class TablaSimbolos {
+
+    private final PoolLexemas   pool;
+    private final Ambito        global = new Ambito("global", null);
+    private Ambito              current = global;
+    private int                 nextSlot = 0;
+    private final List<Simbolo> variables = new ArrayList<Simbolo>();
+    private final List<Simbolo> addresses = new ArrayList<Simbolo>();
+
+    // Las filas de los saltos: token, lexema, línea y dirección en el VCI
+    private int[]               jumpTokens = new int[0];
+    private String[]            jumpLexemas = new String[0];
+    private int[]               jumpLines = new int[0];
+    private int[]               jumpAddresses = new int[0];
+    private int                 jumpCount = 0;
+
+    public TablaSimbolos() {
+        this(new PoolLexemas());
+    }
+
+    /**
+     * @param pool El pool de los lexemas de los identificadores, normalmente
+     *          el de la tabla de tokens del programa
+     */
+    public TablaSimbolos(PoolLexemas pool) {
+        this.pool = pool;
+    }
+
+    public PoolLexemas getPool() {
+        return pool;
+    }
+
+    /**
+     * Abre un ámbito nuevo dentro del ámbito actual
+     * 
+     * @param nombre El nombre del ámbito
+     * @return El ámbito abierto
+     */
+    public Ambito enterScope(String nombre) {
+        current = new Ambito(nombre, current);
+        return current;
+    }
+
+    /**
+     * Cierra el ámbito actual y regresa a su ámbito padre
+     */
+    public void exitScope() {
+        if(current != global){
+            current = current.getPadre();
+        }
+    }
+
+    public Ambito getCurrentScope() {
+        return current;
+    }
+
+    /**
+     * Declara el identificador del programa en el ámbito actual y lo
+     * agrega a la tabla de direcciones
+     * 
+     * @param lexemaId El identificador del lexema en el pool de la tabla
+     * @param token El token del identificador
+     * @param numLinea La línea de la declaración
+     * @return El símbolo declarado, o null si ya estaba declarado
+     */
+    public Simbolo declareProgram(int lexemaId, int token, int numLinea) {
+
+        if(current.lookupLocal(lexemaId) != null){
+            return null;
+        }
+
+        Simbolo simbolo = new Simbolo(lexemaId, pool.get(lexemaId), token, "null", "null", current, nextSlot++, numLinea);
+        current.add(simbolo);
+        addresses.add(simbolo);
+        return simbolo;
+
+    }
+
+    /**
+     * Declara una variable en el ámbito actual y la agrega a la tabla de símbolos
+     * 
+     * @param lexemaId El identificador del lexema en el pool de la tabla
+     * @param token El token del identificador, que determina su tipo
+     * @param numLinea La línea de la declaración
+     * @return El símbolo declarado, o null si ya estaba declarado
+     */
+    public Simbolo declareVariable(int lexemaId, int token, int numLinea) {
+
+        if(current.lookupLocal(lexemaId) != null){
+            return null;
+        }
+
+        Simbolo simbolo = new Simbolo(
+            lexemaId,
+            pool.get(lexemaId),
+            token,
+            AnalizadorSemantico.getAllowedDataType(token),
+            AnalizadorSemantico.getIdentifierDefaultValue(token),
+            current,
+            nextSlot++,
+            numLinea
+        );
+        current.add(simbolo);
+        variables.add(simbolo);
+        return simbolo;
+
+    }
+
+    /**
+     * Agrega un símbolo ya resuelto, con su ámbito y su posición. Se usa
+     * para reconstruir una tabla guardada, por lo que no revisa si el
+     * identificador ya estaba declarado
+     * 
+     * @param simbolo El símbolo a agregar
+     * @param address Verdadero si el símbolo va en la tabla de direcciones,
+     *          falso si va en la tabla de símbolos
+     */
+    public void restore(Simbolo simbolo, boolean address) {
+
+        simbolo.getAmbito().add(simbolo);
+        (address ? addresses : variables).add(simbolo);
+        nextSlot = Math.max(nextSlot, simbolo.getSlot() + 1);
+
+    }
+
+    /**
+     * Busca un identificador desde el ámbito actual
+     * 
+     * @param lexemaId El identificador del lexema en el pool de la tabla
+     * @return El símbolo encontrado, o null si no está declarado
+     */
+    public Simbolo lookup(int lexemaId) {
+        return current.lookup(lexemaId);
+    }
+
+    /**
+     * Busca un identificador por su lexema desde el ámbito actual
+     * 
+     * @param lexema El lexema del identificador
+     * @return El símbolo encontrado, o null si no está declarado
+     */
+    public Simbolo lookup(String lexema) {
+
+        int lexemaId = pool.find(lexema);
+        return lexemaId < 0 ? null : current.lookup(lexemaId);
+
+    }
+
+    /**
+     * Devuelve las variables declaradas, en el orden de sus posiciones
+     * 
+     * @return Las variables de la tabla de símbolos
+     */
+    public List<Simbolo> getVariables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    /**
+     * Devuelve los identificadores de la tabla de direcciones
+     * 
+     * @return Las entradas de la tabla de direcciones
+     */
+    public List<Simbolo> getAddresses() {
+        return Collections.unmodifiableList(addresses);
+    }
+
+    /**
+     * Agrega una fila de salto a la tabla de direcciones
+     * 
+     * @param token El token de la palabra reservada que genera el salto
+     * @param lexema El lexema de la palabra reservada
+     * @param numLinea La línea de la palabra reservada
+     * @param vci La dirección del VCI a la que salta
+     */
+    public void addJump(int token, String lexema, int numLinea, int vci) {
+
+        if(jumpCount == jumpTokens.length){
+            int capacity = Math.max(8, jumpCount * 2);
+            jumpTokens = Arrays.copyOf(jumpTokens, capacity);
+            jumpLexemas = Arrays.copyOf(jumpLexemas, capacity);
+            jumpLines = Arrays.copyOf(jumpLines, capacity);
+            jumpAddresses = Arrays.copyOf(jumpAddresses, capacity);
+        }
+
+        jumpTokens[jumpCount] = token;
+        jumpLexemas[jumpCount] = lexema;
+        jumpLines[jumpCount] = numLinea;
+        jumpAddresses[jumpCount] = vci;
+        jumpCount++;
+
+    }
+
+    /**
+     * Reemplaza las filas de salto por las del código intermedio dado
+     * 
+     * @param vci El código intermedio del programa, o null si el programa
+     *          tiene errores y no tiene saltos
+     */
+    public void setJumps(CodigoIntermedio vci) {
+
+        jumpCount = 0;
+        if(vci == null){
+            return;
+        }
+        for(int row = 0; row < vci.getAddressCount(); row++){
+            addJump(vci.getAddressToken(row), vci.getAddressLexema(row), vci.getAddressLine(row), vci.getAddress(row));
+        }
+
+    }
+
+    public int getJumpCount() {
+        return jumpCount;
+    }
+
+    public int getJumpToken(int row) {
+        return jumpTokens[row];
+    }
+
+    public String getJumpLexema(int row) {
+        return jumpLexemas[row];
+    }
+
+    public int getJumpLine(int row) {
+        return jumpLines[row];
+    }
+
+    public int getJumpAddress(int row) {
+        return jumpAddresses[row];
+    }
+
+    /**
+     * Formatea la tabla de símbolos en una lista de cadenas
+     * 
+     * @return Las filas de la tabla de símbolos
+     */
+    public List<String> buildTextSymbolsTable() {
+
+        List<String> table = new ArrayList<String>(variables.size());
+        for(Simbolo simbolo : variables){
+            table.add(simbolo.toString());
+        }
+        return table;
+
+    }
+
+    /**
+     * Formatea la tabla de direcciones en una lista de cadenas
+     * 
+     * @return Las filas de la tabla de direcciones
+     */
+    public List<String> buildTextAddressesTable() {
+
+        List<String> table = new ArrayList<String>(addresses.size() + jumpCount);
+        for(Simbolo simbolo : addresses){
+            table.add(simbolo.getToken() + " , " + simbolo.getLexema() + " , " + simbolo.getNumLinea() + " , " + 0);
+        }
+        for(int row = 0; row < jumpCount; row++){
+            table.add(jumpTokens[row] + " , " + jumpLexemas[row] + " , " + jumpLines[row] + " , " + jumpAddresses[row]);
+        }
+        return table;
+
+    }
+
+}
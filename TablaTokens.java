@@ -0,0 +1,299 @@
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Esta clase guarda los tokens de un programa en columnas paralelas de
+ * enteros (código de token, posición en la tabla, línea e identificador
+ * del lexema) en lugar de un objeto Token por cada token. Los lexemas se
+ * guardan una sola vez en un PoolLexemas.
+ *
+ * Las secciones del programa no se copian: la sección de variables es el
+ * rango [0, inicio del cuerpo) y la sección de cuerpo el rango
+ * [inicio del cuerpo, size()).
+ */
+
+public class TablaTokens implements LectorTokens.ConsumidorTokens {
+
+    private int[]               tokens;
+    private int[]               posiciones;
+    private int[]               lineas;
+    private int[]               lexemas;
+    private int                 size = 0;
+    private final PoolLexemas   pool;
+
+    public TablaTokens() {
+        this(1024);
+    }
+
+    public TablaTokens(int capacity) {
+        this(capacity, new PoolLexemas());
+    }
+
+    public TablaTokens(int capacity, PoolLexemas pool) {
+        capacity = Math.max(capacity, 16);
+        this.tokens = new int[capacity];
+        this.posiciones = new int[capacity];
+        this.lineas = new int[capacity];
+        this.lexemas = new int[capacity];
+        this.pool = pool;
+    }
+
+    /**
+     * Lee un archivo de tokens en una tabla nueva
+     *
+     * @param file El archivo de tokens
+     * @return La tabla con los tokens leídos
+     */
+    public static TablaTokens read(File file) throws IOException {
+
+        TablaTokens table = new TablaTokens((int) Math.min(Integer.MAX_VALUE - 8, file.length() / 20 + 16));
+        LectorTokens.read(file, table);
+        return table;
+
+    }
+
+    /**
+     * Lee el contenido de un archivo de tokens ya cargado en memoria
+     *
+     * @param content Los bytes del archivo de tokens
+     * @return La tabla con los tokens leídos
+     */
+    public static TablaTokens read(byte[] content) throws IOException {
+
+        TablaTokens table = new TablaTokens(content.length / 20 + 16);
+        new LectorTokens(Channels.newChannel(new ByteArrayInputStream(content)), table).read();
+        return table;
+
+    }
+
+    /**
+     * Construye una tabla a partir de una lista de tokens
+     *
+     * @param tokenList La lista de tokens
+     * @return La tabla con una copia de los tokens
+     */
+    public static TablaTokens fromList(List<Token> tokenList) {
+
+        TablaTokens table = new TablaTokens(tokenList.size());
+        for(Token token : tokenList){
+            table.add(token.getToken(), token.getLexema(), token.getPosicionTabla(), token.getNumLinea());
+        }
+        return table;
+
+    }
+
+    /**
+     * Copia la tabla. El pool de lexemas se comparte, ya que los lexemas
+     * internados no cambian
+     *
+     * @return Una tabla nueva con los mismos tokens
+     */
+    public TablaTokens copy() {
+
+        TablaTokens table = new TablaTokens(size, pool);
+        System.arraycopy(tokens, 0, table.tokens, 0, size);
+        System.arraycopy(posiciones, 0, table.posiciones, 0, size);
+        System.arraycopy(lineas, 0, table.lineas, 0, size);
+        System.arraycopy(lexemas, 0, table.lexemas, 0, size);
+        table.size = size;
+        return table;
+
+    }
+
+    @Override
+    public void accept(int token, byte[] buffer, int lexemaOffset, int lexemaLength, int posicionTabla, int numLinea) {
+        add(token, pool.intern(buffer, lexemaOffset, lexemaLength, Sintaxis.isIdentifier(token)), posicionTabla, numLinea);
+    }
+
+    public void add(int token, String lexema, int posicionTabla, int numLinea) {
+        add(token, pool.intern(lexema, Sintaxis.isIdentifier(token)), posicionTabla, numLinea);
+    }
+
+    public void add(int token, int lexemaId, int posicionTabla, int numLinea) {
+
+        if(size == tokens.length){
+            int capacity = size + (size >> 1);
+            tokens = Arrays.copyOf(tokens, capacity);
+            posiciones = Arrays.copyOf(posiciones, capacity);
+            lineas = Arrays.copyOf(lineas, capacity);
+            lexemas = Arrays.copyOf(lexemas, capacity);
+        }
+
+        tokens[size] = token;
+        lexemas[size] = lexemaId;
+        posiciones[size] = posicionTabla;
+        lineas[size] = numLinea;
+        size++;
+
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getToken(int index) {
+        return tokens[index];
+    }
+
+    public String getLexema(int index) {
+        return pool.get(lexemas[index]);
+    }
+
+    public int getLexemaId(int index) {
+        return lexemas[index];
+    }
+
+    public int getPosicionTabla(int index) {
+        return posiciones[index];
+    }
+
+    public int getNumLinea(int index) {
+        return lineas[index];
+    }
+
+    public void setPosicionTabla(int index, int posicionTabla) {
+        posiciones[index] = posicionTabla;
+    }
+
+    /**
+     * Revisa si un token es un identificador. Se decide por el código del
+     * token y no por la posición -2 que asigna el analizador léxico, ya que
+     * la posición cambia cuando el identificador se resuelve
+     *
+     * @param index El índice del token
+     * @return Verdadero si el token es un identificador
+     */
+    public boolean isIdentificador(int index) {
+        return Sintaxis.isIdentifier(tokens[index]);
+    }
+
+    /**
+     * Reemplaza un rango de tokens por otros, recorriendo los tokens
+     * siguientes
+     *
+     * @param from El índice del primer token reemplazado
+     * @param to El índice siguiente al último token reemplazado
+     * @param replacement Los tokens nuevos
+     */
+    public void replace(int from, int to, List<Token> replacement) {
+
+        int delta = replacement.size() - (to - from);
+        int newSize = size + delta;
+
+        if(newSize > tokens.length){
+            int capacity = Math.max(newSize, size + (size >> 1));
+            tokens = Arrays.copyOf(tokens, capacity);
+            posiciones = Arrays.copyOf(posiciones, capacity);
+            lineas = Arrays.copyOf(lineas, capacity);
+            lexemas = Arrays.copyOf(lexemas, capacity);
+        }
+
+        int tail = size - to;
+        System.arraycopy(tokens, to, tokens, to + delta, tail);
+        System.arraycopy(posiciones, to, posiciones, to + delta, tail);
+        System.arraycopy(lineas, to, lineas, to + delta, tail);
+        System.arraycopy(lexemas, to, lexemas, to + delta, tail);
+
+        for(int i = 0; i < replacement.size(); i++){
+            Token token = replacement.get(i);
+            tokens[from + i] = token.getToken();
+            posiciones[from + i] = token.getPosicionTabla();
+            lineas[from + i] = token.getNumLinea();
+            lexemas[from + i] = pool.intern(token.getLexema(), Sintaxis.isIdentifier(token.getToken()));
+        }
+
+        size = newSize;
+
+    }
+
+    /**
+     * Desplaza los números de línea de los tokens a partir de un índice
+     *
+     * @param from El índice del primer token desplazado
+     * @param delta La cantidad de líneas a sumar
+     */
+    public void shiftLines(int from, int delta) {
+
+        if(delta == 0){
+            return;
+        }
+        for(int i = from; i < size; i++){
+            lineas[i] += delta;
+        }
+
+    }
+
+    /**
+     * Busca el primer token cuya línea es mayor o igual a una línea dada.
+     * Las líneas de los tokens no decrecen, así que la búsqueda es binaria
+     *
+     * @param numLinea La línea buscada
+     * @return El índice del primer token en o después de la línea
+     */
+    public int findFirstTokenAtLine(int numLinea) {
+
+        int low = 0;
+        int high = size;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(lineas[middle] < numLinea){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+
+    }
+
+    public PoolLexemas getPool() {
+        return pool;
+    }
+
+    /**
+     * Busca el inicio de la sección de cuerpo, marcado por el primer "inicio"
+     *
+     * @return El índice del primer token del cuerpo, o size() si no hay cuerpo
+     */
+    public int findBodyStart() {
+
+        for(int i = 0; i < size; i++){
+            if(tokens[i] == Sintaxis.INICIO){
+                return i;
+            }
+        }
+        return size;
+
+    }
+
+    /**
+     * Construye un objeto Token a partir de una fila de la tabla
+     *
+     * @param index El índice del token
+     * @return Una copia del token
+     */
+    public Token toToken(int index) {
+        return new Token(tokens[index], getLexema(index), posiciones[index], lineas[index]);
+    }
+
+    /**
+     * Construye una lista de objetos Token a partir de la tabla
+     *
+     * @return Una copia de los tokens como lista
+     */
+    public List<Token> toList() {
+
+        List<Token> tokenList = new ArrayList<Token>(size);
+        for(int i = 0; i < size; i++){
+            tokenList.add(toToken(i));
+        }
+        return tokenList;
+
+    }
+
+}
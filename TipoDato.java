@@ -0,0 +1,62 @@
+/*
+ * Tipos de dato del lenguaje. ERROR es el tipo de una expresión que ya
+ * tiene un error reportado, y es compatible con todo para no reportar
+ * errores en cascada
+ */
+
+public enum TipoDato {
+
+    ENTERO("entero"),
+    REAL("real"),
+    CADENA("cadena"),
+    LOGICO("logico"),
+    ERROR("null");
+
+    private final String nombre;
+
+    TipoDato(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean isNumeric() {
+        return this == ENTERO || this == REAL;
+    }
+
+    /**
+     * Devuelve el tipo de dato de un identificador o constante
+     * 
+     * @param token El código del token
+     * @return El tipo del token, o ERROR si el token no tiene tipo
+     */
+    public static TipoDato fromToken(int token) {
+
+        if(token == Sintaxis.INT_ID || token == Sintaxis.INT_CONST){
+            return ENTERO;
+        } else if(token == Sintaxis.REAL_ID || token == Sintaxis.REAL_CONST){
+            return REAL;
+        } else if(token == Sintaxis.STRING_ID || token == Sintaxis.STRING_CONST){
+            return CADENA;
+        } else if(token == Sintaxis.BOOLEANO_ID || token == Sintaxis.TRUE_CONST || token == Sintaxis.FALSE_CONST){
+            return LOGICO;
+        } else {
+            return ERROR;
+        }
+
+    }
+
+    /**
+     * Revisa si un valor de este tipo puede asignarse a una variable de
+     * otro tipo. Los enteros se promueven a real
+     * 
+     * @param target El tipo de la variable
+     * @return Verdadero si la asignación es válida
+     */
+    public boolean isAssignableTo(TipoDato target) {
+        return this == target || this == ERROR || target == ERROR || (this == ENTERO && target == REAL);
+    }
+
+}
@@ -0,0 +1,267 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/*
+ * Esta clase analiza un lote de archivos de tokens como una tubería de
+ * cuatro etapas, cada una en su propio hilo:
+ *
+ *   lectura -> árbol -> cuerpo -> escritura
+ *
+ * La sección de variables se analiza en la etapa de lectura, conforme se
+ * leen los tokens (ver DeclaracionesEnFlujo).
+ * Las etapas se comunican por colas acotadas: una etapa que se adelanta
+ * se bloquea hasta que la siguiente libera espacio, de modo que la memoria
+ * usada no depende del tamaño del lote. Mientras un archivo se analiza,
+ * el siguiente ya se está leyendo y las tablas del anterior se están
+ * escribiendo; las tres tablas de cada archivo se escriben en paralelo.
+ *
+ * La etapa de lectura consulta la caché de resultados: un archivo repetido
+ * pasa directamente a la etapa de escritura.
+ */
+
+public class TuberiaAnalisis {
+
+    public static final int     DEFAULT_QUEUE_CAPACITY = 4;
+
+    /*
+     * Un archivo en su paso por la tubería
+     */
+    private static final class Trabajo {
+
+        final Path          input;
+        long                start;
+        String              key;
+        AnalizadorSemantico session;
+        ResultadoAnalisis   result;
+        Exception           error;
+
+        Trabajo(Path input) {
+            this.input = input;
+        }
+
+    }
+
+    /*
+     * El trabajo de una etapa sobre un archivo
+     */
+    private interface Etapa {
+        void process(Trabajo job) throws Exception;
+    }
+
+    // Marca el final del lote en cada cola
+    private static final Trabajo END = new Trabajo(null);
+
+    private final List<Path>            inputs;
+    private final Function<Path, File>  tablesDirs;
+    private final CacheResultados       cache;
+    private final int                   capacity;
+    private MetricasAnalisis            metrics;
+
+    /**
+     * @param inputs Los archivos de tokens del lote
+     * @param tablesDirs Da el directorio de tablas de cada archivo
+     * @param cache La caché de resultados, compartida con otros lotes
+     * @param capacity La capacidad de cada cola entre etapas
+     */
+    public TuberiaAnalisis(List<Path> inputs, Function<Path, File> tablesDirs, CacheResultados cache, int capacity) {
+        this.inputs = inputs;
+        this.tablesDirs = tablesDirs;
+        this.cache = cache;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Activa la medición de las fases de cada archivo
+     *
+     * @param metrics Las métricas, o null para no medir la tubería
+     */
+    public void setMetrics(MetricasAnalisis metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Procesa todos los archivos del lote
+     *
+     * @return El resumen de la ejecución
+     */
+    public AnalisisPorLotes.Resumen run() throws InterruptedException {
+
+        BlockingQueue<Trabajo> read = new ArrayBlockingQueue<Trabajo>(capacity);
+        BlockingQueue<Trabajo> built = new ArrayBlockingQueue<Trabajo>(capacity);
+        BlockingQueue<Trabajo> analyzed = new ArrayBlockingQueue<Trabajo>(capacity);
+        ExecutorService writers = Executors.newFixedThreadPool(3);
+
+        AnalisisPorLotes.Resumen summary = new AnalisisPorLotes.Resumen();
+        long[] latencies = new long[inputs.size()];
+        long start = System.nanoTime();
+
+        Thread[] stages = {
+            new Thread(() -> readAll(read), "tuberia-lectura"),
+            stage("tuberia-arbol", read, built, this::buildTree),
+            stage("tuberia-cuerpo", built, analyzed, this::analyzeBody)
+        };
+        for(Thread stage : stages){
+            stage.start();
+        }
+
+        // La etapa de escritura corre en el hilo que llamó a run()
+        boolean finished = false;
+        try {
+            for(Trabajo job = analyzed.take(); job != END; job = analyzed.take()){
+
+                if(job.error == null){
+                    try {
+                        write(job, writers);
+                    } catch (Exception e) {
+                        job.error = e;
+                    }
+                }
+
+                if(job.error != null){
+                    summary.failed++;
+                    System.err.println(job.input + ": " + job.error);
+                    continue;
+                }
+
+                latencies[summary.completed++] = System.nanoTime() - job.start;
+                if(!job.result.isSuccessful()){
+                    summary.rejected++;
+                }
+
+            }
+            finished = true;
+        } finally {
+            writers.shutdown();
+            for(Thread stage : stages){
+                // Si la escritura se interrumpió, las etapas pueden estar
+                // bloqueadas en una cola llena
+                if(!finished){
+                    stage.interrupt();
+                }
+                stage.join();
+            }
+        }
+
+        summary.files = inputs.size();
+        summary.elapsedNanos = System.nanoTime() - start;
+        summary.cache = cache.toString();
+
+        Arrays.sort(latencies, 0, summary.completed);
+        summary.p50Nanos = AnalisisPorLotes.percentile(latencies, summary.completed, 0.50);
+        summary.p99Nanos = AnalisisPorLotes.percentile(latencies, summary.completed, 0.99);
+
+        return summary;
+
+    }
+
+    /**
+     * Etapa de lectura: lee cada archivo y lo busca en la caché. Si no está,
+     * convierte sus tokens en una tabla y analiza sus declaraciones
+     */
+    private void readAll(BlockingQueue<Trabajo> out) {
+
+        try {
+
+            for(Path input : inputs){
+
+                Trabajo job = new Trabajo(input);
+                job.start = System.nanoTime();
+
+                try {
+                    byte[] content = Files.readAllBytes(input);
+                    job.key = CacheResultados.hash(content);
+                    job.result = cache.lookup(job.key);
+                    if(job.result == null){
+                        job.session = AnalizadorSemantico.read(content, metrics);
+                    }
+                } catch (Exception e) {
+                    job.error = e;
+                }
+
+                out.put(job);
+
+            }
+
+            out.put(END);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Crea el hilo de una etapa intermedia. Los archivos que ya tienen
+     * resultado o que fallaron pasan sin procesarse
+     */
+    private static Thread stage(String name, BlockingQueue<Trabajo> in, BlockingQueue<Trabajo> out, Etapa etapa) {
+
+        return new Thread(() -> {
+            try {
+                for(Trabajo job = in.take(); job != END; job = in.take()){
+                    if(job.error == null && job.result == null){
+                        try {
+                            etapa.process(job);
+                        } catch (Exception e) {
+                            job.error = e;
+                        }
+                    }
+                    out.put(job);
+                }
+                out.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, name);
+
+    }
+
+    private void buildTree(Trabajo job) {
+        job.session.buildTree();
+    }
+
+    private void analyzeBody(Trabajo job) throws IOException {
+
+        job.session.analyzeBody();
+        job.result = job.session.buildResult();
+        job.session = null;
+        cache.store(job.key, job.result);
+
+    }
+
+    /**
+     * Etapa de escritura: reporta los diagnósticos y borra las tablas de
+     * una corrida anterior, o escribe las tres tablas en paralelo
+     */
+    private void write(Trabajo job, ExecutorService writers) throws IOException {
+
+        if(!job.result.isSuccessful()){
+            for(Diagnostico diagnostic : job.result.getDiagnostics().getDiagnosticos()){
+                System.err.println(job.input + ": " + diagnostic);
+            }
+            EscritorTablas.deleteTables(tablesDirs.apply(job.input));
+            return;
+        }
+
+        File tablesDir = tablesDirs.apply(job.input);
+        tablesDir.mkdirs();
+        job.result.resolveJumps();
+        MetricasAnalisis.Medicion medicion = MetricasAnalisis.start(metrics, MetricasAnalisis.Fase.ESCRITURA);
+        try {
+            EscritorTablas.writeText(job.result, tablesDir, writers);
+        } finally {
+            MetricasAnalisis.stop(medicion);
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Esta clase revisa la sección de cuerpo de un programa en paralelo.
+ *
+ * El cuerpo se parte en trozos que terminan en un punto y coma. Las
+ * revisiones de un identificador nunca cruzan un punto y coma (ver
+ * AnalisisIncremental), así que cada trozo se revisa por separado, con
+ * su propio árbol y su propio colector de diagnósticos, contra el ámbito
+ * del programa, que ya no cambia después de las declaraciones.
+ *
+ * Los trozos se reparten con fork/join. Un trozo solo actualiza las
+ * posiciones de sus propios tokens, salvo el final de un estatuto que
+ * pasa del corte, al que dos trozos le escriben la misma posición. Los
+ * diagnósticos se unen en el orden de los trozos, por lo que el resultado
+ * es el mismo que el de la revisión secuencial sin importar cómo se
+ * repartan.
+ *
+ * Los bytes que asignan los hilos del pool se cuentan por trozo, para
+ * sumarlos a la fase del cuerpo en MetricasAnalisis; lo que asigna el
+ * hilo que llamó a run() ya lo mide la fase.
+ */
+
+public class VerificacionParalela {
+
+    // Un trozo más pequeño no compensa el costo de la tarea
+    public static final int     MIN_CHUNK_TOKENS = 1 << 13;
+
+    private final TablaTokens   tokens;
+    private final Ambito        scope;
+    private final int[]         bounds;
+    private final Diagnosticos[] diagnostics;
+    private final int[]         identifiersResolved;
+    private final int[]         assignmentsChecked;
+    private final int[]         conditionsChecked;
+    private final long[]        workerBytes;
+    private Thread              caller;
+
+    /*
+     * Revisa los trozos [lo, hi), dividiéndolos a la mitad hasta quedar
+     * con uno solo
+     */
+    private final class Tarea extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+
+        Tarea(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+
+            if(hi - lo == 1){
+                checkChunk(lo);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Tarea(lo, mid), new Tarea(mid, hi));
+
+        }
+
+    }
+
+    /**
+     * @param tokens La tabla de tokens del programa
+     * @param scope El ámbito del programa, con las variables ya declaradas
+     * @param from El índice del primer token del cuerpo
+     * @param to El índice siguiente al último token del cuerpo
+     * @param chunks La cantidad de trozos deseada
+     */
+    public VerificacionParalela(TablaTokens tokens, Ambito scope, int from, int to, int chunks) {
+
+        this.tokens = tokens;
+        this.scope = scope;
+        this.bounds = split(tokens, from, to, chunks);
+
+        int count = bounds.length - 1;
+        this.diagnostics = new Diagnosticos[count];
+        this.identifiersResolved = new int[count];
+        this.assignmentsChecked = new int[count];
+        this.conditionsChecked = new int[count];
+        this.workerBytes = new long[count];
+
+    }
+
+    /*
+     * Anota los tipos de los estatutos [lo, hi) del cuerpo de un árbol
+     * completo, dividiéndolos a la mitad mientras abarquen suficientes
+     * tokens. Cada estatuto solo escribe en sus propios nodos y tokens
+     */
+    private static final class Anotacion extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArbolPrograma tree;
+        private final Ambito        scope;
+        private final int[]         statements;
+        private final int           lo;
+        private final int           hi;
+        private final Thread        caller;
+
+        Anotacion(ArbolPrograma tree, Ambito scope, int[] statements, int lo, int hi, Thread caller) {
+            this.tree = tree;
+            this.scope = scope;
+            this.statements = statements;
+            this.lo = lo;
+            this.hi = hi;
+            this.caller = caller;
+        }
+
+        /**
+         * @return Los bytes que asignaron los hilos del pool
+         */
+        @Override
+        protected Long compute() {
+
+            int span = tree.getTokenIndex(statements[hi - 1]) - tree.getTokenIndex(statements[lo]);
+            if(hi - lo == 1 || span < MIN_CHUNK_TOKENS){
+                boolean worker = Thread.currentThread() != caller;
+                long startBytes = worker ? MetricasAnalisis.allocatedBytes() : 0;
+                VerificadorTipos checker = new VerificadorTipos(tree, scope);
+                Diagnosticos ignored = new Diagnosticos();
+                for(int i = lo; i < hi; i++){
+                    checker.check(statements[i], ignored);
+                }
+                return worker ? MetricasAnalisis.allocatedBytes() - startBytes : 0L;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            Anotacion left = new Anotacion(tree, scope, statements, lo, mid, caller);
+            Anotacion right = new Anotacion(tree, scope, statements, mid, hi, caller);
+            invokeAll(left, right);
+            return left.join() + right.join();
+
+        }
+
+    }
+
+    /**
+     * Anota con sus tipos un árbol completo de un cuerpo que ya se revisó,
+     * repartiendo sus estatutos en el pool. Los diagnósticos se descartan,
+     * ya que son los mismos que dio la revisión por trozos
+     *
+     * @param tree El árbol completo del programa
+     * @param scope El ámbito del programa, con las variables ya declaradas
+     * @param pool El pool donde se anotan los estatutos
+     * @return Los bytes que asignaron los hilos del pool, sin contar el
+     *          hilo que llamó
+     */
+    public static long annotate(ArbolPrograma tree, Ambito scope, ForkJoinPool pool) {
+
+        int body = tree.getBody();
+        if(body == ArbolPrograma.NINGUNO){
+            return 0;
+        }
+
+        int[] statements = new int[16];
+        int count = 0;
+        for(int child = tree.getFirstChild(body); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+            if(count == statements.length){
+                statements = Arrays.copyOf(statements, count * 2);
+            }
+            statements[count++] = child;
+        }
+
+        if(count == 0){
+            return 0;
+        }
+        return pool.invoke(new Anotacion(tree, scope, statements, 0, count, Thread.currentThread()));
+
+    }
+
+    /**
+     * Revisa todos los trozos y espera a que terminen
+     *
+     * @param pool El pool donde se revisan los trozos
+     */
+    public void run(ForkJoinPool pool) {
+
+        caller = Thread.currentThread();
+        if(bounds.length == 2){
+            checkChunk(0);
+        } else {
+            pool.invoke(new Tarea(0, bounds.length - 1));
+        }
+
+    }
+
+    /**
+     * Agrega los diagnósticos de todos los trozos, en orden. El último
+     * estatuto de un trozo se lee completo aunque pase del corte, como un
+     * repetir cuyo "hasta" sigue al punto y coma del corte; el trozo
+     * siguiente revisa esos tokens por su cuenta, así que solo se toman
+     * los diagnósticos de los tokens propios de cada trozo
+     *
+     * @param target El colector de diagnósticos de la sesión
+     */
+    public void mergeInto(Diagnosticos target) {
+
+        for(int chunk = 0; chunk < diagnostics.length; chunk++){
+            int end = chunk == diagnostics.length - 1 ? Integer.MAX_VALUE : bounds[chunk + 1];
+            for(Diagnostico diagnostic : diagnostics[chunk].getDiagnosticos()){
+                if(diagnostic.getIndiceToken() < end){
+                    target.add(diagnostic);
+                }
+            }
+        }
+
+    }
+
+    public int getChunkCount() {
+        return bounds.length - 1;
+    }
+
+    public int getIdentifiersResolved() {
+        return Arrays.stream(identifiersResolved).sum();
+    }
+
+    public int getAssignmentsChecked() {
+        return Arrays.stream(assignmentsChecked).sum();
+    }
+
+    public int getConditionsChecked() {
+        return Arrays.stream(conditionsChecked).sum();
+    }
+
+    /**
+     * @return Los bytes que asignaron los hilos del pool al revisar sus
+     *          trozos, sin contar el hilo que llamó a run()
+     */
+    public long getWorkerAllocatedBytes() {
+        return Arrays.stream(workerBytes).sum();
+    }
+
+    private void checkChunk(int chunk) {
+
+        boolean worker = Thread.currentThread() != caller;
+        long startBytes = worker ? MetricasAnalisis.allocatedBytes() : 0;
+
+        Diagnosticos chunkDiagnostics = new Diagnosticos();
+        ArbolPrograma range = ConstructorArbol.buildRange(tokens, bounds[chunk], bounds[chunk + 1]);
+
+        VerificadorTipos checker = new VerificadorTipos(range, scope);
+        checker.check(range.getRoot(), chunkDiagnostics);
+
+        diagnostics[chunk] = chunkDiagnostics;
+        identifiersResolved[chunk] = checker.getIdentifiersResolved();
+        assignmentsChecked[chunk] = checker.getAssignmentsChecked();
+        conditionsChecked[chunk] = checker.getConditionsChecked();
+        workerBytes[chunk] = worker ? MetricasAnalisis.allocatedBytes() - startBytes : 0;
+
+    }
+
+    /**
+     * Parte un rango de tokens en trozos que terminan después de un punto
+     * y coma, de tamaño parecido
+     *
+     * @return Los límites de los trozos: el trozo i es [bounds[i], bounds[i + 1])
+     */
+    private static int[] split(TablaTokens tokens, int from, int to, int chunks) {
+
+        int target = Math.max(MIN_CHUNK_TOKENS, (to - from) / Math.max(1, chunks));
+
+        int[] bounds = new int[Math.max(2, (to - from) / target + 2)];
+        int count = 0;
+        bounds[count++] = from;
+
+        int cut = from + target;
+        while(cut < to){
+            while(cut < to && tokens.getToken(cut - 1) != Sintaxis.PUNTOCOMA){
+                cut++;
+            }
+            if(cut >= to){
+                break;
+            }
+            if(count == bounds.length - 1){
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[count++] = cut;
+            cut += target;
+        }
+
+        bounds[count++] = to;
+        return Arrays.copyOf(bounds, count);
+
+    }
+
+}
@@ -0,0 +1,315 @@
+/*
+ * Esta clase revisa los tipos de los estatutos del cuerpo de un programa
+ * recorriendo su ArbolPrograma.
+ *
+ * El tipo de cada expresión se calcula sobre el lattice entero, real,
+ * cadena y logico, y se anota en el árbol. Los errores se reportan en el
+ * operador o el token que los causa. Los diagnósticos de cada estatuto se
+ * ordenan por índice de token, como si se hubieran encontrado leyendo los
+ * tokens de izquierda a derecha.
+ */
+
+public class VerificadorTipos {
+
+    private final ArbolPrograma tree;
+    private final TablaTokens   tokens;
+    private final Ambito        scope;
+    private Diagnosticos        diagnostics;
+
+    // Contadores de lo revisado, para MetricasAnalisis
+    private int                 identifiersResolved = 0;
+    private int                 assignmentsChecked = 0;
+    private int                 conditionsChecked = 0;
+
+    public VerificadorTipos(ArbolPrograma tree, Ambito scope) {
+        this.tree = tree;
+        this.tokens = tree.getTokens();
+        this.scope = scope;
+    }
+
+    /**
+     * Revisa un estatuto y, si tiene, los estatutos que contiene
+     *
+     * @param node El nodo del estatuto, un CUERPO o un BLOQUE
+     * @param diagnostics El colector donde se registran los errores
+     */
+    public void check(int node, Diagnosticos diagnostics) {
+
+        this.diagnostics = diagnostics;
+        checkStatement(node);
+
+    }
+
+    public int getIdentifiersResolved() {
+        return identifiersResolved;
+    }
+
+    public int getAssignmentsChecked() {
+        return assignmentsChecked;
+    }
+
+    public int getConditionsChecked() {
+        return conditionsChecked;
+    }
+
+    private void checkStatement(int node) {
+
+        int mark = diagnostics.size();
+
+        switch(tree.getClase(node)){
+
+            case ArbolPrograma.CUERPO:
+            case ArbolPrograma.BLOQUE:
+            case ArbolPrograma.SI:
+            case ArbolPrograma.MIENTRAS:
+            case ArbolPrograma.REPETIR:
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                    checkStatement(child);
+                }
+                return;
+
+            case ArbolPrograma.ASIGNACION:
+                checkAssignment(node);
+                break;
+
+            case ArbolPrograma.CONDICION:
+                checkCondition(node);
+                break;
+
+            case ArbolPrograma.LEER:
+            case ArbolPrograma.ESCRIBIR:
+                for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                    typeOf(child);
+                }
+                break;
+
+            default:
+                typeOf(node);
+                break;
+
+        }
+
+        diagnostics.sortFrom(mark);
+
+    }
+
+    /**
+     * Revisa una asignación "identificador = expresión ;"
+     */
+    private void checkAssignment(int node) {
+
+        int index = tree.getTokenIndex(node);
+        TipoDato target = identifierType(index);
+        assignmentsChecked++;
+
+        TipoDato value = typeOf(tree.getFirstChild(node));
+
+        if(!value.isAssignableTo(target)){
+            diagnostics.add(
+                Diagnostico.Tipo.ASIGNACION_INVALIDA, tokens, index,
+                "Error semántico: No se puede asignar una expresión de tipo " + value.getNombre()
+                    + " a la variable " + tokens.getLexema(index) + " de tipo " + target.getNombre()
+            );
+        }
+
+    }
+
+    /**
+     * Revisa la condición de un estatuto si, mientras o hasta, que debe
+     * ser una expresión de tipo logico
+     */
+    private void checkCondition(int node) {
+
+        TipoDato condition = typeOf(tree.getFirstChild(node));
+        conditionsChecked++;
+
+        if(condition != TipoDato.LOGICO && condition != TipoDato.ERROR){
+            diagnostics.add(
+                Diagnostico.Tipo.CONDICION_INVALIDA, tokens, tree.getTokenIndex(node),
+                "Error semántico: La condición debe ser de tipo logico, pero es de tipo " + condition.getNombre()
+            );
+        }
+
+    }
+
+    /**
+     * Calcula el tipo de una expresión y lo anota en el árbol
+     *
+     * @param node El nodo de la expresión
+     * @return El tipo de la expresión, o ERROR si tiene un error
+     */
+    private TipoDato typeOf(int node) {
+
+        if(node == ArbolPrograma.NINGUNO){
+            return TipoDato.ERROR;
+        }
+
+        TipoDato tipo;
+
+        switch(tree.getClase(node)){
+
+            case ArbolPrograma.CONSTANTE:
+                tipo = TipoDato.fromToken(tree.getToken(node));
+                break;
+
+            case ArbolPrograma.IDENTIFICADOR:
+                tipo = identifierType(tree.getTokenIndex(node));
+                break;
+
+            case ArbolPrograma.UNARIA:
+                tipo = unaryType(node, typeOf(tree.getFirstChild(node)));
+                break;
+
+            case ArbolPrograma.BINARIA: {
+                int left = tree.getFirstChild(node);
+                TipoDato leftType = typeOf(left);
+                TipoDato rightType = typeOf(tree.getNextSibling(left));
+                tipo = binaryType(node, leftType, rightType);
+                break;
+            }
+
+            default:
+                reportMalformed(node);
+                tipo = TipoDato.ERROR;
+                break;
+
+        }
+
+        tree.setTipoDato(node, tipo);
+        return tipo;
+
+    }
+
+    private TipoDato unaryType(int node, TipoDato operand) {
+
+        if(operand == TipoDato.ERROR){
+            return TipoDato.ERROR;
+        }
+
+        boolean valid = tree.getToken(node) == Sintaxis.NOT_OP
+            ? operand == TipoDato.LOGICO
+            : operand.isNumeric();
+
+        return valid ? operand : invalidOperation(node, operand, null);
+
+    }
+
+    private TipoDato binaryType(int node, TipoDato left, TipoDato right) {
+
+        if(left == TipoDato.ERROR || right == TipoDato.ERROR){
+            return TipoDato.ERROR;
+        }
+
+        int operator = tree.getToken(node);
+
+        if(operator == Sintaxis.AND_OP || operator == Sintaxis.OR_OP){
+            return left == TipoDato.LOGICO && right == TipoDato.LOGICO
+                ? TipoDato.LOGICO
+                : invalidOperation(node, left, right);
+        }
+
+        if(Sintaxis.isRelationalOperator(operator)){
+            boolean equality = operator == Sintaxis.IGUAL_OP || operator == Sintaxis.DIF_OP;
+            boolean comparable = (left.isNumeric() && right.isNumeric())
+                || (left == right && (equality || left == TipoDato.CADENA));
+            return comparable ? TipoDato.LOGICO : invalidOperation(node, left, right);
+        }
+
+        if(operator == Sintaxis.MOD_OP){
+            return left == TipoDato.ENTERO && right == TipoDato.ENTERO
+                ? TipoDato.ENTERO
+                : invalidOperation(node, left, right);
+        }
+
+        if(left.isNumeric() && right.isNumeric()){
+            return left == TipoDato.REAL || right == TipoDato.REAL ? TipoDato.REAL : TipoDato.ENTERO;
+        }
+
+        if(operator == Sintaxis.SUM_OP && left == TipoDato.CADENA && right == TipoDato.CADENA){
+            return TipoDato.CADENA;
+        }
+
+        return invalidOperation(node, left, right);
+
+    }
+
+    /**
+     * Calcula el tipo de un identificador del cuerpo a partir del símbolo
+     * declarado. Un identificador que no es una variable, como el nombre
+     * del programa, no puede usarse en un estatuto
+     *
+     * @param index El índice del identificador
+     * @return El tipo de la variable, o ERROR si no está declarada o no es
+     *          una variable
+     */
+    private TipoDato identifierType(int index) {
+
+        Simbolo symbol = resolveIdentifier(index);
+        if(symbol == null){
+            return TipoDato.ERROR;
+        }
+
+        TipoDato tipo = TipoDato.fromToken(symbol.getToken());
+        if(tipo == TipoDato.ERROR){
+            diagnostics.add(
+                Diagnostico.Tipo.IDENTIFICADOR_NO_ES_VARIABLE, tokens, index,
+                "Error semántico: El identificador " + tokens.getLexema(index) + " no es una variable"
+            );
+        }
+        return tipo;
+
+    }
+
+    /**
+     * Busca un identificador del cuerpo y actualiza su posición en la tabla
+     * de tokens con la posición en la tabla de símbolos
+     *
+     * @param index El índice del identificador
+     * @return El símbolo del identificador, o null si no está declarado
+     */
+    private Simbolo resolveIdentifier(int index) {
+
+        Simbolo symbol = scope.lookup(tokens.getLexemaId(index));
+        identifiersResolved++;
+
+        if(symbol == null){
+            diagnostics.add(
+                Diagnostico.Tipo.IDENTIFICADOR_NO_DECLARADO, tokens, index,
+                "Error semántico: El identificador " + tokens.getLexema(index) + " no ha sido declarado"
+            );
+            return null;
+        }
+
+        tokens.setPosicionTabla(index, symbol.getSlot());
+        return symbol;
+
+    }
+
+    private void reportMalformed(int node) {
+
+        int index = tree.getTokenIndex(node);
+        diagnostics.add(
+            Diagnostico.Tipo.EXPRESION_MAL_FORMADA, tokens, index,
+            "Error semántico: Expresión mal formada, no se esperaba " + tokens.getLexema(index)
+        );
+
+        // Los identificadores de la expresión se resuelven de todos modos
+        for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+            resolveIdentifier(tree.getTokenIndex(child));
+        }
+
+    }
+
+    private TipoDato invalidOperation(int node, TipoDato left, TipoDato right) {
+
+        int operator = tree.getTokenIndex(node);
+        diagnostics.add(
+            Diagnostico.Tipo.OPERACION_INVALIDA, tokens, operator,
+            "Error semántico: El operador " + tokens.getLexema(operator) + " no se puede aplicar a "
+                + (right == null ? left.getNombre() : left.getNombre() + " y " + right.getNombre())
+        );
+        return TipoDato.ERROR;
+
+    }
+
+}
@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Mide por separado cada etapa del análisis semántico sobre programas
+ * sintéticos de distintos tamaños: lectura del archivo de tokens,
+ * separación de secciones, construcción del árbol del programa, análisis
+ * de declaraciones, análisis del cuerpo y escritura de tablas. Para cada
+ * etapa reporta el tiempo por operación, los tokens por segundo y los
+ * bytes asignados por operación.
+ *
+ * Uso: BenchmarkAnalizador [tamaños separados por comas] [iteraciones]
+ */
+
+public class BenchmarkAnalizador {
+
+    /*
+     * Una etapa del análisis. prepare() se ejecuta fuera de la medición
+     */
+    private interface Etapa {
+        default void prepare() throws IOException {}
+        void run() throws IOException;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+
+        long[] sizes = Arrays.stream((args.length > 0 ? args[0] : "1000,10000,100000,1000000").split(","))
+            .mapToLong(Long::parseLong)
+            .toArray();
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        File workDir = Files.createTempDirectory("benchmark-analizador").toFile();
+
+        System.out.printf("%-24s %12s %12s %14s %16s%n", "Etapa", "Tokens", "ms/op", "Mtokens/s", "bytes/op");
+
+        for(long size : sizes){
+
+            File tokensFile = new File(workDir, "tokens-" + size + ".txt");
+            GeneradorProgramas.generate(size, 42, tokensFile);
+
+            TablaTokens table = TablaTokens.read(tokensFile);
+            int tokenCount = table.size();
+            File tablesDir = new File(workDir, "tables-" + size);
+
+            AnalizadorSemantico[] session = new AnalizadorSemantico[1];
+            ResultadoAnalisis[] result = new ResultadoAnalisis[1];
+
+            measure("lectura", tokenCount, iterations, new Etapa() {
+                public void run() throws IOException {
+                    TablaTokens.read(tokensFile);
+                }
+            });
+
+            // Lectura con la sección de variables analizada en el mismo paso
+            measure("lectura + declaraciones", tokenCount, iterations, new Etapa() {
+                public void run() throws IOException {
+                    AnalizadorSemantico.read(tokensFile);
+                }
+            });
+
+            measure("splitSections", tokenCount, iterations, new Etapa() {
+                public void prepare() {
+                    session[0] = new AnalizadorSemantico(table.copy());
+                }
+                public void run() {
+                    session[0].splitSections();
+                }
+            });
+
+            measure("árbol", tokenCount, iterations, new Etapa() {
+                public void prepare() {
+                    session[0] = new AnalizadorSemantico(table.copy());
+                    session[0].splitSections();
+                }
+                public void run() {
+                    session[0].buildTree();
+                }
+            });
+
+            measure("declaraciones", tokenCount, iterations, new Etapa() {
+                public void prepare() {
+                    session[0] = new AnalizadorSemantico(table.copy());
+                    session[0].splitSections();
+                    session[0].buildTree();
+                }
+                public void run() {
+                    session[0].analyzeDeclarations();
+                }
+            });
+
+            measure("cuerpo", tokenCount, iterations, new Etapa() {
+                public void prepare() {
+                    session[0] = new AnalizadorSemantico(table.copy());
+                    session[0].splitSections();
+                    session[0].buildTree();
+                    session[0].analyzeDeclarations();
+                }
+                public void run() {
+                    session[0].analyzeBody();
+                }
+            });
+
+            // El árbol de cada trozo se construye dentro de la revisión,
+            // así que se compara con árbol + cuerpo
+            measure("cuerpo paralelo (" + ForkJoinPool.commonPool().getParallelism() + ")", tokenCount, iterations, new Etapa() {
+                public void prepare() {
+                    session[0] = new AnalizadorSemantico(table.copy());
+                    session[0].splitSections();
+                    session[0].analyzeDeclarations();
+                }
+                public void run() {
+                    session[0].analyzeBody(ForkJoinPool.commonPool());
+                }
+            });
+
+            measure("escritura de tablas", tokenCount, iterations, new Etapa() {
+                public void prepare() {
+                    if(result[0] == null){
+                        result[0] = new AnalizadorSemantico(table.copy()).analyze();
+                        if(!result[0].isSuccessful()){
+                            throw new IllegalStateException(result[0].getDiagnostics().toText());
+                        }
+                    }
+                }
+                public void run() throws IOException {
+                    AnalizadorSemantico.writeTables(result[0], tablesDir);
+                }
+            });
+
+        }
+
+    }
+
+    /**
+     * Mide una etapa: la ejecuta varias veces para calentar el JIT y luego
+     * reporta la mediana de las mediciones
+     */
+    private static void measure(String name, int tokenCount, int iterations, Etapa stage) throws IOException {
+
+        for(int i = 0; i < iterations; i++){
+            stage.prepare();
+            stage.run();
+        }
+
+        long[] nanos = new long[iterations];
+        long[] bytes = new long[iterations];
+        long threadId = Thread.currentThread().getId();
+
+        for(int i = 0; i < iterations; i++){
+
+            stage.prepare();
+
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            stage.run();
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        }
+
+        Arrays.sort(nanos);
+        Arrays.sort(bytes);
+        long medianNanos = nanos[iterations / 2];
+
+        System.out.printf(
+            "%-24s %12d %12.3f %14.2f %16d%n",
+            name, tokenCount, medianNanos / 1e6,
+            tokenCount / (medianNanos / 1e3), bytes[iterations / 2]
+        );
+
+    }
+
+}
@@ -0,0 +1,98 @@
+import java.util.Random;
+
+/*
+ * Compara la clasificación de tokens con los conjuntos HashSet<Integer>
+ * de Sintaxis contra la tabla de categorías indexada por código de token.
+ *
+ * Uso: BenchmarkClasificacion [tokens] [iteraciones]
+ */
+
+public class BenchmarkClasificacion {
+
+    private static final int[] TOKEN_CODES = {
+        -1, -2, -3, -4, -5, -6, -7, -8, -9, -10, -11, -12, -13, -14, -15, -16, -17,
+        -21, -22, -23, -24, -25, -26, -31, -32, -33, -34, -35, -36, -41, -42, -43,
+        -51, -52, -53, -54, -55, -61, -62, -63, -64, -65, -73, -74, -75, -76, -77
+    };
+
+    public static void main(String[] args) {
+
+        int tokenCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        int[] tokens = new int[tokenCount];
+        Random random = new Random(42);
+        for(int i = 0; i < tokens.length; i++){
+            tokens[i] = TOKEN_CODES[random.nextInt(TOKEN_CODES.length)];
+        }
+
+        // Calentamiento para que ambos caminos estén compilados por el JIT
+        for(int i = 0; i < iterations; i++){
+            countWithHashSet(tokens);
+            countWithCategories(tokens);
+        }
+
+        long hashSetNanos = Long.MAX_VALUE;
+        long categoriesNanos = Long.MAX_VALUE;
+        long hashSetCount = 0;
+        long categoriesCount = 0;
+
+        for(int i = 0; i < iterations; i++){
+
+            long start = System.nanoTime();
+            hashSetCount += countWithHashSet(tokens);
+            hashSetNanos = Math.min(hashSetNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            categoriesCount += countWithCategories(tokens);
+            categoriesNanos = Math.min(categoriesNanos, System.nanoTime() - start);
+
+        }
+
+        if(hashSetCount != categoriesCount){
+            throw new IllegalStateException("Las clasificaciones no coinciden");
+        }
+
+        System.out.printf("HashSet<Integer>:       %.3f ns/token%n", (double) hashSetNanos / tokens.length);
+        System.out.printf("Tabla de categorías:    %.3f ns/token%n", (double) categoriesNanos / tokens.length);
+        System.out.printf("Aceleración:            %.1fx%n", (double) hashSetNanos / categoriesNanos);
+
+    }
+
+    private static int countWithHashSet(int[] tokens){
+
+        int count = 0;
+        for(int token : tokens){
+            if(Sintaxis.logicalAndRelationalOperators.contains(token)){
+                count++;
+            }
+            if(Sintaxis.identifiers.contains(token)){
+                count++;
+            }
+            if(Sintaxis.constants.contains(token)){
+                count++;
+            }
+        }
+        return count;
+
+    }
+
+    private static int countWithCategories(int[] tokens){
+
+        int count = 0;
+        for(int token : tokens){
+            if(Sintaxis.isLogicalOrRelationalOperator(token)){
+                count++;
+            }
+            if(Sintaxis.isIdentifier(token)){
+                count++;
+            }
+            if(Sintaxis.isConstant(token)){
+                count++;
+            }
+        }
+        return count;
+
+    }
+
+}
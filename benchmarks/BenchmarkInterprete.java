@@ -0,0 +1,374 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Compara el costo de ejecutar un programa analizado con Interprete, sobre
+ * el VCI y con variables en arreglos primitivos por tipo, contra un
+ * intérprete que recorre el ArbolPrograma con los valores en objetos,
+ * como lo haría una herramienta de calificación sencilla.
+ *
+ * El programa es un ciclo que mezcla operaciones enteras, reales, lógicas
+ * y de cadenas, y cada caso de prueba lo ejecuta con un valor distinto de
+ * entrada. Las salidas de ambos intérpretes deben coincidir.
+ *
+ * Uso: BenchmarkInterprete [iteraciones del ciclo] [casos de prueba] [repeticiones]
+ */
+
+public class BenchmarkInterprete {
+
+    public static void main(String[] args) throws IOException {
+
+        int loopCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int cases = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        File tokensFile = File.createTempFile("benchmark-interprete", ".txt");
+        tokensFile.deleteOnExit();
+        writeProgram(tokensFile);
+
+        AnalizadorSemantico session = AnalizadorSemantico.read(tokensFile);
+        ResultadoAnalisis result = session.analyze();
+        if(!result.isSuccessful()){
+            throw new IllegalStateException(result.getDiagnostics().toText());
+        }
+
+        Interprete interprete = new Interprete(GeneradorVCI.generate(session));
+        RecorridoArbol recorrido = new RecorridoArbol(session.getTree(), session.getSymbols());
+
+        // Las salidas deben coincidir antes de medir
+        String expected = runInterprete(interprete, loopCount);
+        if(!expected.equals(runRecorrido(recorrido, loopCount))){
+            throw new IllegalStateException("Las salidas de los intérpretes no coinciden");
+        }
+
+        long vciNanos = Long.MAX_VALUE;
+        long treeNanos = Long.MAX_VALUE;
+
+        for(int r = 0; r < repetitions + 1; r++){
+
+            long start = System.nanoTime();
+            for(int c = 0; c < cases; c++){
+                runInterprete(interprete, loopCount + c);
+            }
+            long vci = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int c = 0; c < cases; c++){
+                runRecorrido(recorrido, loopCount + c);
+            }
+            long tree = System.nanoTime() - start;
+
+            // La primera repetición solo calienta el JIT
+            if(r > 0){
+                vciNanos = Math.min(vciNanos, vci);
+                treeNanos = Math.min(treeNanos, tree);
+            }
+
+        }
+
+        System.out.printf("Recorrido del árbol:    %.3f ms/caso%n", treeNanos / 1e6 / cases);
+        System.out.printf("Interprete (VCI):       %.3f ms/caso%n", vciNanos / 1e6 / cases);
+        System.out.printf("Aceleración:            %.1fx%n", (double) treeNanos / vciNanos);
+
+    }
+
+    private static String runInterprete(Interprete interprete, int n) throws IOException {
+
+        StringWriter out = new StringWriter();
+        interprete.run(input(n), Interprete.Salida.of(out));
+        return out.toString();
+
+    }
+
+    private static String runRecorrido(RecorridoArbol recorrido, int n) throws IOException {
+
+        StringWriter out = new StringWriter();
+        recorrido.run(input(n), Interprete.Salida.of(out));
+        return out.toString();
+
+    }
+
+    private static Interprete.Entrada input(int n) {
+        return new Interprete.Entrada() {
+            public int readEntero() { return n; }
+            public double readReal() { return n; }
+            public String readCadena() { return Integer.toString(n); }
+            public boolean readLogico() { return n % 2 == 0; }
+        };
+    }
+
+    /*
+     * programa bench@ ;
+     * variables i& , n& , s& , p& : entero ; x% : real ; t$ : cadena ; par# : logico ;
+     * inicio
+     *   leer ( n& ) ;
+     *   i& = 0 ; s& = 0 ; x% = 0.0 ; t$ = "" ;
+     *   mientras ( i& < n& ) hacer inicio
+     *     p& = i& * 3 % 7 ;
+     *     si ( p& > 3 ) entonces inicio s& = s& + p& ; fin sino inicio s& = s& - 1 ; fin
+     *     x% = x% + i& / 2.5 ;
+     *     par# = ( i& % 2 ) == 0 ;
+     *     si ( par# y no ( s& < 0 ) ) entonces inicio t$ = "par" ; fin
+     *     i& = i& + 1 ;
+     *   fin
+     *   escribir ( s& ) ; escribir ( x% ) ; escribir ( t$ ) ;
+     * fin
+     */
+    private static void writeProgram(File file) throws IOException {
+
+        Object[] program = {
+            Sintaxis.PROGRAMA, "programa", Sintaxis.GENERAL_ID, "bench@", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.VAR, "variables",
+            Sintaxis.INT_ID, "i&", Sintaxis.COMA, ",", Sintaxis.INT_ID, "n&", Sintaxis.COMA, ",",
+            Sintaxis.INT_ID, "s&", Sintaxis.COMA, ",", Sintaxis.INT_ID, "p&", -77, ":", Sintaxis.INT_PR, "entero", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.REAL_ID, "x%", -77, ":", Sintaxis.REAL_PR, "real", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.STRING_ID, "t$", -77, ":", Sintaxis.STRING_PR, "cadena", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.BOOLEANO_ID, "par#", -77, ":", Sintaxis.BOOLEANO_PR, "logico", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.INICIO, "inicio",
+            Sintaxis.LEER, "leer", Sintaxis.PAR_ABRIR, "(", Sintaxis.INT_ID, "n&", Sintaxis.PAR_CERRAR, ")", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.INT_ID, "i&", Sintaxis.ASIGN_OP, "=", Sintaxis.INT_CONST, "0", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.INT_ID, "s&", Sintaxis.ASIGN_OP, "=", Sintaxis.INT_CONST, "0", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.REAL_ID, "x%", Sintaxis.ASIGN_OP, "=", Sintaxis.REAL_CONST, "0.0", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.STRING_ID, "t$", Sintaxis.ASIGN_OP, "=", Sintaxis.STRING_CONST, "\"\"", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.MIENTRAS, "mientras", Sintaxis.PAR_ABRIR, "(", Sintaxis.INT_ID, "i&", Sintaxis.MENOR_OP, "<",
+                Sintaxis.INT_ID, "n&", Sintaxis.PAR_CERRAR, ")", Sintaxis.HACER, "hacer", Sintaxis.INICIO, "inicio",
+            Sintaxis.INT_ID, "p&", Sintaxis.ASIGN_OP, "=", Sintaxis.INT_ID, "i&", Sintaxis.MUL_OP, "*",
+                Sintaxis.INT_CONST, "3", Sintaxis.MOD_OP, "%", Sintaxis.INT_CONST, "7", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.IF, "si", Sintaxis.PAR_ABRIR, "(", Sintaxis.INT_ID, "p&", Sintaxis.MAYOR_OP, ">",
+                Sintaxis.INT_CONST, "3", Sintaxis.PAR_CERRAR, ")", Sintaxis.ENTONCES, "entonces",
+                Sintaxis.INICIO, "inicio", Sintaxis.INT_ID, "s&", Sintaxis.ASIGN_OP, "=", Sintaxis.INT_ID, "s&",
+                Sintaxis.SUM_OP, "+", Sintaxis.INT_ID, "p&", Sintaxis.PUNTOCOMA, ";", Sintaxis.FIN, "fin",
+                Sintaxis.SINO, "sino", Sintaxis.INICIO, "inicio", Sintaxis.INT_ID, "s&", Sintaxis.ASIGN_OP, "=",
+                Sintaxis.INT_ID, "s&", Sintaxis.RES_OP, "-", Sintaxis.INT_CONST, "1", Sintaxis.PUNTOCOMA, ";", Sintaxis.FIN, "fin",
+            Sintaxis.REAL_ID, "x%", Sintaxis.ASIGN_OP, "=", Sintaxis.REAL_ID, "x%", Sintaxis.SUM_OP, "+",
+                Sintaxis.INT_ID, "i&", Sintaxis.DIV_OP, "/", Sintaxis.REAL_CONST, "2.5", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.BOOLEANO_ID, "par#", Sintaxis.ASIGN_OP, "=", Sintaxis.PAR_ABRIR, "(", Sintaxis.INT_ID, "i&",
+                Sintaxis.MOD_OP, "%", Sintaxis.INT_CONST, "2", Sintaxis.PAR_CERRAR, ")", Sintaxis.IGUAL_OP, "==",
+                Sintaxis.INT_CONST, "0", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.IF, "si", Sintaxis.PAR_ABRIR, "(", Sintaxis.BOOLEANO_ID, "par#", Sintaxis.AND_OP, "y",
+                Sintaxis.NOT_OP, "no", Sintaxis.PAR_ABRIR, "(", Sintaxis.INT_ID, "s&", Sintaxis.MENOR_OP, "<",
+                Sintaxis.INT_CONST, "0", Sintaxis.PAR_CERRAR, ")", Sintaxis.PAR_CERRAR, ")", Sintaxis.ENTONCES, "entonces",
+                Sintaxis.INICIO, "inicio", Sintaxis.STRING_ID, "t$", Sintaxis.ASIGN_OP, "=",
+                Sintaxis.STRING_CONST, "\"par\"", Sintaxis.PUNTOCOMA, ";", Sintaxis.FIN, "fin",
+            Sintaxis.INT_ID, "i&", Sintaxis.ASIGN_OP, "=", Sintaxis.INT_ID, "i&", Sintaxis.SUM_OP, "+",
+                Sintaxis.INT_CONST, "1", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.FIN, "fin",
+            Sintaxis.ESCRIBIR, "escribir", Sintaxis.PAR_ABRIR, "(", Sintaxis.INT_ID, "s&", Sintaxis.PAR_CERRAR, ")", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.ESCRIBIR, "escribir", Sintaxis.PAR_ABRIR, "(", Sintaxis.REAL_ID, "x%", Sintaxis.PAR_CERRAR, ")", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.ESCRIBIR, "escribir", Sintaxis.PAR_ABRIR, "(", Sintaxis.STRING_ID, "t$", Sintaxis.PAR_CERRAR, ")", Sintaxis.PUNTOCOMA, ";",
+            Sintaxis.FIN, "fin"
+        };
+
+        try(Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))){
+            int line = 1;
+            for(int i = 0; i < program.length; i += 2){
+                int token = (Integer) program[i];
+                out.write(token + " , " + program[i + 1] + " , " + (Sintaxis.isIdentifier(token) ? -2 : -1) + " , " + line + "\n");
+                if(token == Sintaxis.PUNTOCOMA || token == Sintaxis.INICIO || token == Sintaxis.FIN){
+                    line++;
+                }
+            }
+        }
+
+    }
+
+    /*
+     * Un intérprete que recorre el árbol del programa, con las variables
+     * en un Object[] indexado por su posición
+     */
+    private static final class RecorridoArbol {
+
+        private final ArbolPrograma tree;
+        private final TablaTokens   tokens;
+        private final Object[]      defaults;
+
+        RecorridoArbol(ArbolPrograma tree, TablaSimbolos symbols) {
+
+            this.tree = tree;
+            this.tokens = tree.getTokens();
+            this.defaults = new Object[symbols.getAddresses().size() + symbols.getVariables().size()];
+            for(Simbolo simbolo : symbols.getVariables()){
+                defaults[simbolo.getSlot()] = parse(TipoDato.fromToken(simbolo.getToken()), simbolo.getValorPorDefecto());
+            }
+
+        }
+
+        void run(Interprete.Entrada in, Interprete.Salida out) throws IOException {
+            execute(tree.getBody(), defaults.clone(), in, out);
+        }
+
+        private void execute(int node, Object[] slots, Interprete.Entrada in, Interprete.Salida out) throws IOException {
+
+            if(node == ArbolPrograma.NINGUNO){
+                return;
+            }
+
+            switch(tree.getClase(node)){
+
+                case ArbolPrograma.CUERPO:
+                case ArbolPrograma.BLOQUE:
+                    for(int child = tree.getFirstChild(node); child != ArbolPrograma.NINGUNO; child = tree.getNextSibling(child)){
+                        execute(child, slots, in, out);
+                    }
+                    break;
+
+                case ArbolPrograma.ASIGNACION: {
+                    int index = tree.getTokenIndex(node);
+                    Object value = evaluate(tree.getFirstChild(node), slots);
+                    if(TipoDato.fromToken(tokens.getToken(index)) == TipoDato.REAL && value instanceof Integer){
+                        value = ((Integer) value).doubleValue();
+                    }
+                    slots[tokens.getPosicionTabla(index)] = value;
+                    break;
+                }
+
+                case ArbolPrograma.SI:
+                    if((Boolean) evaluate(tree.getFirstChild(tree.getChild(node, 0)), slots)){
+                        execute(tree.getChild(node, 1), slots, in, out);
+                    } else {
+                        execute(tree.getChild(node, 2), slots, in, out);
+                    }
+                    break;
+
+                case ArbolPrograma.MIENTRAS:
+                    while((Boolean) evaluate(tree.getFirstChild(tree.getChild(node, 0)), slots)){
+                        execute(tree.getChild(node, 1), slots, in, out);
+                    }
+                    break;
+
+                case ArbolPrograma.LEER: {
+                    int index = tree.getTokenIndex(tree.getFirstChild(node));
+                    TipoDato tipo = TipoDato.fromToken(tokens.getToken(index));
+                    slots[tokens.getPosicionTabla(index)] = tipo == TipoDato.ENTERO ? (Object) in.readEntero()
+                        : tipo == TipoDato.REAL ? (Object) in.readReal()
+                        : tipo == TipoDato.LOGICO ? (Object) in.readLogico()
+                        : in.readCadena();
+                    break;
+                }
+
+                case ArbolPrograma.ESCRIBIR: {
+                    Object value = evaluate(tree.getFirstChild(node), slots);
+                    if(value instanceof Integer){
+                        out.writeEntero((Integer) value);
+                    } else if(value instanceof Double){
+                        out.writeReal((Double) value);
+                    } else if(value instanceof Boolean){
+                        out.writeLogico((Boolean) value);
+                    } else {
+                        out.writeCadena((String) value);
+                    }
+                    break;
+                }
+
+                default:
+                    throw new IllegalStateException("Estatuto no soportado por el recorrido: " + tree.getClase(node));
+
+            }
+
+        }
+
+        private Object evaluate(int node, Object[] slots) {
+
+            switch(tree.getClase(node)){
+
+                case ArbolPrograma.CONSTANTE:
+                    return parse(tree.getTipoDato(node), tokens.getLexema(tree.getTokenIndex(node)));
+
+                case ArbolPrograma.IDENTIFICADOR:
+                    return slots[tokens.getPosicionTabla(tree.getTokenIndex(node))];
+
+                case ArbolPrograma.UNARIA: {
+                    Object value = evaluate(tree.getFirstChild(node), slots);
+                    if(tree.getToken(node) == Sintaxis.NOT_OP){
+                        return !(Boolean) value;
+                    }
+                    if(tree.getToken(node) == Sintaxis.RES_OP){
+                        return value instanceof Integer ? (Object) (-(Integer) value) : (Object) (-(Double) value);
+                    }
+                    return value;
+                }
+
+                case ArbolPrograma.BINARIA: {
+                    int left = tree.getFirstChild(node);
+                    return operate(tree.getToken(node), evaluate(left, slots), evaluate(tree.getNextSibling(left), slots));
+                }
+
+                default:
+                    throw new IllegalStateException("Expresión no soportada por el recorrido: " + tree.getClase(node));
+
+            }
+
+        }
+
+        private static Object operate(int operator, Object left, Object right) {
+
+            if(operator == Sintaxis.AND_OP){
+                return (Boolean) left && (Boolean) right;
+            }
+            if(operator == Sintaxis.OR_OP){
+                return (Boolean) left || (Boolean) right;
+            }
+
+            if(left instanceof String || right instanceof String){
+                if(operator == Sintaxis.SUM_OP){
+                    return (String) left + (String) right;
+                }
+                return compare(operator, ((String) left).compareTo((String) right));
+            }
+
+            if(left instanceof Boolean){
+                return operator == Sintaxis.IGUAL_OP ? left.equals(right) : !left.equals(right);
+            }
+
+            if(left instanceof Integer && right instanceof Integer){
+                int a = (Integer) left;
+                int b = (Integer) right;
+                if(operator == Sintaxis.SUM_OP) return a + b;
+                if(operator == Sintaxis.RES_OP) return a - b;
+                if(operator == Sintaxis.MUL_OP) return a * b;
+                if(operator == Sintaxis.DIV_OP) return a / b;
+                if(operator == Sintaxis.MOD_OP) return a % b;
+                return compare(operator, Integer.compare(a, b));
+            }
+
+            double a = ((Number) left).doubleValue();
+            double b = ((Number) right).doubleValue();
+            if(operator == Sintaxis.SUM_OP) return a + b;
+            if(operator == Sintaxis.RES_OP) return a - b;
+            if(operator == Sintaxis.MUL_OP) return a * b;
+            if(operator == Sintaxis.DIV_OP) return a / b;
+            return compare(operator, Double.compare(a, b));
+
+        }
+
+        private static Boolean compare(int operator, int comparison) {
+
+            if(operator == Sintaxis.MENOR_OP) return comparison < 0;
+            if(operator == Sintaxis.MENIG_OP) return comparison <= 0;
+            if(operator == Sintaxis.MAYOR_OP) return comparison > 0;
+            if(operator == Sintaxis.MAYIG_OP) return comparison >= 0;
+            if(operator == Sintaxis.IGUAL_OP) return comparison == 0;
+            return comparison != 0;
+
+        }
+
+        private static Object parse(TipoDato tipo, String value) {
+
+            switch(tipo){
+                case ENTERO: return Integer.parseInt(value);
+                case REAL: return Double.parseDouble(value);
+                case LOGICO: return value.equals("verdadero") || value.equals("true");
+                default: return value.length() >= 2 && value.startsWith("\"") ? value.substring(1, value.length() - 1) : value;
+            }
+
+        }
+
+    }
+
+}
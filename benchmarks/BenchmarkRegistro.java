@@ -0,0 +1,178 @@
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Mide la contención de un registro de lexemas compartido por muchos
+ * hilos, como el de un servidor o un lote que analiza varios programas a
+ * la vez. Cada hilo interna lexemas tomados de un vocabulario común, casi
+ * todos ya registrados, con 1 a 64 hilos.
+ *
+ * Se comparan:
+ * - Un HashMap<String, Integer> protegido por un solo candado
+ * - Un ConcurrentHashMap<String, Integer> con computeIfAbsent
+ * - RegistroLexemas, que busca sin candados y registra con el candado de
+ *   un fragmento
+ *
+ * Los mapas reciben el lexema como cadena decodificada de los bytes del
+ * archivo de tokens, que es como llegaría desde LectorTokens; el registro
+ * recibe los bytes directamente.
+ *
+ * Uso: BenchmarkRegistro [operaciones por hilo] [vocabulario] [repeticiones]
+ */
+
+public class BenchmarkRegistro {
+
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+    private static final String[] SUFFIXES = { "&", "%", "$", "#", "@" };
+
+    /*
+     * Un registro a medir: interna un lexema y devuelve lo que guarda para
+     * él, o null si lo rechazó
+     */
+    private interface Registro {
+        Object intern(byte[] buffer, int offset, int length);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int vocabularySize = args.length > 1 ? Integer.parseInt(args[1]) : 4_096;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        // El vocabulario de un corpus: pocos lexemas muy frecuentes y muchos
+        // raros, como bytes UTF-8 igual que en un archivo de tokens
+        byte[][] vocabulary = new byte[vocabularySize][];
+        for(int i = 0; i < vocabularySize; i++){
+            vocabulary[i] = ("var" + i + SUFFIXES[i % SUFFIXES.length]).getBytes(StandardCharsets.UTF_8);
+        }
+
+        System.out.printf("%-8s %20s %20s %20s%n", "Hilos", "HashMap + candado", "ConcurrentHashMap", "RegistroLexemas");
+
+        for(int threads : THREADS){
+
+            int[][] sequences = new int[threads][];
+            for(int t = 0; t < threads; t++){
+                sequences[t] = sequence(operations, vocabularySize, new Random(42 + t));
+            }
+
+            long lockedNanos = Long.MAX_VALUE;
+            long concurrentNanos = Long.MAX_VALUE;
+            long registryNanos = Long.MAX_VALUE;
+
+            for(int r = 0; r < repetitions; r++){
+                lockedNanos = Math.min(lockedNanos, run(lockedMap(), vocabulary, sequences));
+                concurrentNanos = Math.min(concurrentNanos, run(concurrentMap(), vocabulary, sequences));
+                registryNanos = Math.min(registryNanos, run(registry(), vocabulary, sequences));
+            }
+
+            double total = (double) operations * threads;
+            System.out.printf(
+                "%-8d %14.1f Mop/s %14.1f Mop/s %14.1f Mop/s%n", threads,
+                total * 1e3 / lockedNanos, total * 1e3 / concurrentNanos, total * 1e3 / registryNanos
+            );
+
+        }
+
+    }
+
+    /**
+     * Ejecuta las secuencias de lexemas, una por hilo, sobre un registro nuevo
+     *
+     * @return El tiempo en nanosegundos desde que arrancan todos los hilos hasta que termina el último
+     */
+    private static long run(Registro registro, byte[][] vocabulary, int[][] sequences) throws InterruptedException {
+
+        CountDownLatch ready = new CountDownLatch(sequences.length);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[sequences.length];
+        AtomicInteger rejected = new AtomicInteger();
+
+        for(int t = 0; t < workers.length; t++){
+            int[] sequence = sequences[t];
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int misses = 0;
+                for(int word : sequence){
+                    byte[] lexema = vocabulary[word];
+                    if(registro.intern(lexema, 0, lexema.length) == null){
+                        misses++;
+                    }
+                }
+                rejected.addAndGet(misses);
+            });
+            workers[t].start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        for(Thread worker : workers){
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        if(rejected.get() > 0){
+            throw new IllegalStateException("El registro rechazó " + rejected.get() + " lexemas del vocabulario");
+        }
+        return elapsed;
+
+    }
+
+    /**
+     * Una secuencia de lexemas con distribución Zipf aproximada
+     */
+    private static int[] sequence(int operations, int vocabularySize, Random random) {
+
+        int[] sequence = new int[operations];
+        double logSize = Math.log(vocabularySize);
+        for(int i = 0; i < operations; i++){
+            sequence[i] = Math.min(vocabularySize - 1, (int) Math.exp(random.nextDouble() * logSize) - 1);
+        }
+        return sequence;
+
+    }
+
+    private static Registro lockedMap() {
+
+        Map<String, Integer> map = new HashMap<String, Integer>();
+        return (buffer, offset, length) -> {
+            String lexema = new String(buffer, offset, length, StandardCharsets.UTF_8);
+            synchronized(map){
+                Integer id = map.get(lexema);
+                if(id == null){
+                    id = map.size();
+                    map.put(lexema, id);
+                }
+                return id;
+            }
+        };
+
+    }
+
+    private static Registro concurrentMap() {
+
+        ConcurrentHashMap<String, Integer> map = new ConcurrentHashMap<String, Integer>();
+        AtomicInteger next = new AtomicInteger();
+        return (buffer, offset, length) ->
+            map.computeIfAbsent(new String(buffer, offset, length, StandardCharsets.UTF_8), key -> next.getAndIncrement());
+
+    }
+
+    private static Registro registry() {
+
+        RegistroLexemas registry = new RegistroLexemas(RegistroLexemas.DEFAULT_MAX_LEXEMAS);
+        return registry::intern;
+
+    }
+
+}
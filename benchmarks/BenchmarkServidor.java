@@ -0,0 +1,97 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Mide la latencia de las solicitudes a un ServidorAnalisis residente con
+ * varios clientes concurrentes, cada uno con su propia conexión. El
+ * servidor se inicia en el mismo proceso sobre un puerto libre, primero
+ * sin caché de resultados y después con ella, y todos los clientes envían
+ * el mismo programa.
+ *
+ * Uso: BenchmarkServidor [tokens por programa] [clientes] [solicitudes por cliente]
+ */
+
+public class BenchmarkServidor {
+
+    public static void main(String[] args) throws Exception {
+
+        long tokenCount = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        File tokensFile = File.createTempFile("benchmark-servidor", ".txt");
+        tokensFile.deleteOnExit();
+        GeneradorProgramas.generate(tokenCount, 42, tokensFile);
+        byte[] program = Files.readAllBytes(tokensFile.toPath());
+
+        measure("sin caché", null, program, tokenCount, clients, requests);
+        measure("con caché", new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, null), program, tokenCount, clients, requests);
+
+    }
+
+    private static void measure(
+        String name, CacheResultados cache, byte[] program, long tokenCount, int clients, int requests
+    ) throws Exception {
+
+        ServidorAnalisis server = ServidorAnalisis.openTcp(0, cache);
+        int port = Integer.parseInt(server.getAddress().replaceAll(".*:", ""));
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        // Calentamiento del JIT con una sola conexión
+        try(ClienteAnalisis client = ClienteAnalisis.connectTcp(port)){
+            for(int i = 0; i < requests; i++){
+                client.analyze(program);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+        long start = System.nanoTime();
+
+        for(int c = 0; c < clients; c++){
+            futures.add(pool.submit(() -> {
+                long[] latencies = new long[requests];
+                try(ClienteAnalisis client = ClienteAnalisis.connectTcp(port)){
+                    for(int i = 0; i < requests; i++){
+                        long requestStart = System.nanoTime();
+                        client.analyze(program);
+                        latencies[i] = System.nanoTime() - requestStart;
+                    }
+                }
+                return latencies;
+            }));
+        }
+
+        long[] all = new long[clients * requests];
+        for(int c = 0; c < clients; c++){
+            System.arraycopy(futures.get(c).get(), 0, all, c * requests, requests);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        server.close();
+
+        Arrays.sort(all);
+        System.out.printf(
+            "%s, %d tokens, %d clientes: %.0f solicitudes/s, p50 %.3f ms, p99 %.3f ms%n",
+            name, tokenCount, clients, all.length / seconds,
+            all[all.length / 2] / 1e6, all[(int) (all.length * 0.99)] / 1e6
+        );
+
+    }
+
+}
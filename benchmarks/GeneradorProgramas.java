@@ -0,0 +1,331 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/*
+ * Esta clase genera programas sintéticos válidos en el formato de
+ * tokens.txt, con el tamaño aproximado que se le pida. Los programas
+ * combinan declaraciones de los cuatro tipos de dato, asignaciones,
+ * estatutos si/sino, mientras y repetir-hasta anidados, y leer/escribir.
+ *
+ * Uso: GeneradorProgramas <tokens> <archivo de salida> [semilla]
+ */
+
+public class GeneradorProgramas {
+
+    private static final int MAX_DEPTH = 3;
+
+    private final Writer    out;
+    private final Random    random;
+    private final int       variablesPerType;
+    private int             line = 1;
+    private long            written = 0;
+
+    public GeneradorProgramas(Writer out, long seed, int variablesPerType) {
+        this.out = out;
+        this.random = new Random(seed);
+        this.variablesPerType = variablesPerType;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if(args.length < 2){
+            System.err.println("Uso: GeneradorProgramas <tokens> <archivo de salida> [semilla]");
+            System.exit(2);
+        }
+
+        long tokenCount = Long.parseLong(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        generate(tokenCount, seed, new File(args[1]));
+
+    }
+
+    /**
+     * Genera un programa válido con aproximadamente la cantidad de tokens dada
+     *
+     * @param tokenCount La cantidad de tokens deseada
+     * @param seed La semilla del generador de números aleatorios
+     * @param file El archivo de salida
+     * @return La cantidad de tokens escritos
+     */
+    public static long generate(long tokenCount, long seed, File file) throws IOException {
+
+        // Unas cuantas variables por tipo, más para programas grandes
+        int variablesPerType = (int) Math.max(2, Math.min(1000, tokenCount / 2000));
+
+        try(Writer out = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16
+        )){
+            GeneradorProgramas generator = new GeneradorProgramas(out, seed, variablesPerType);
+            generator.writeProgram(tokenCount);
+            return generator.written;
+        }
+
+    }
+
+    private void writeProgram(long tokenCount) throws IOException {
+
+        token(Sintaxis.PROGRAMA, "programa", -1);
+        token(Sintaxis.GENERAL_ID, "sintetico@", -2);
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+        token(Sintaxis.VAR, "variables", -1);
+        newLine();
+
+        declare(Sintaxis.INT_ID, "e", "&", Sintaxis.INT_PR, "entero");
+        declare(Sintaxis.REAL_ID, "r", "%", Sintaxis.REAL_PR, "real");
+        declare(Sintaxis.STRING_ID, "c", "$", Sintaxis.STRING_PR, "cadena");
+        declare(Sintaxis.BOOLEANO_ID, "l", "#", Sintaxis.BOOLEANO_PR, "logico");
+
+        token(Sintaxis.INICIO, "inicio", -1);
+        newLine();
+
+        while(written < tokenCount - 1){
+            statement(0);
+        }
+
+        token(Sintaxis.FIN, "fin", -1);
+
+    }
+
+    private void declare(int idToken, String prefix, String suffix, int typeToken, String typeName) throws IOException {
+
+        for(int i = 0; i < variablesPerType; i++){
+            if(i > 0){
+                token(Sintaxis.COMA, ",", -1);
+            }
+            token(idToken, prefix + i + suffix, -2);
+        }
+        token(-77, ":", -1);
+        token(typeToken, typeName, -1);
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void statement(int depth) throws IOException {
+
+        int kind = random.nextInt(depth < MAX_DEPTH ? 10 : 7);
+
+        switch(kind){
+            case 0:
+            case 1:
+                intAssignment();
+                break;
+            case 2:
+                realAssignment();
+                break;
+            case 3:
+                stringAssignment();
+                break;
+            case 4:
+                booleanAssignment();
+                break;
+            case 5:
+                write();
+                break;
+            case 6:
+                read();
+                break;
+            case 7:
+                ifStatement(depth);
+                break;
+            case 8:
+                whileStatement(depth);
+                break;
+            default:
+                repeatStatement(depth);
+                break;
+        }
+
+    }
+
+    private void intAssignment() throws IOException {
+
+        variable(Sintaxis.INT_ID, "e", "&");
+        token(Sintaxis.ASIGN_OP, "=", -1);
+        intExpression(2);
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void realAssignment() throws IOException {
+
+        variable(Sintaxis.REAL_ID, "r", "%");
+        token(Sintaxis.ASIGN_OP, "=", -1);
+        variable(Sintaxis.REAL_ID, "r", "%");
+        token(Sintaxis.MUL_OP, "*", -1);
+        token(Sintaxis.REAL_CONST, random.nextInt(100) + "." + random.nextInt(10), -1);
+        token(Sintaxis.SUM_OP, "+", -1);
+        intOperand();
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void stringAssignment() throws IOException {
+
+        variable(Sintaxis.STRING_ID, "c", "$");
+        token(Sintaxis.ASIGN_OP, "=", -1);
+        if(random.nextBoolean()){
+            token(Sintaxis.STRING_CONST, "\"texto " + random.nextInt(100) + "\"", -1);
+        } else {
+            variable(Sintaxis.STRING_ID, "c", "$");
+        }
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void booleanAssignment() throws IOException {
+
+        variable(Sintaxis.BOOLEANO_ID, "l", "#");
+        token(Sintaxis.ASIGN_OP, "=", -1);
+        if(random.nextBoolean()){
+            intExpression(1);
+            token(Sintaxis.MAYIG_OP, ">=", -1);
+            intOperand();
+        } else {
+            boolean value = random.nextBoolean();
+            token(value ? Sintaxis.TRUE_CONST : Sintaxis.FALSE_CONST, value ? "verdadero" : "falso", -1);
+        }
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void write() throws IOException {
+
+        token(Sintaxis.ESCRIBIR, "escribir", -1);
+        token(Sintaxis.PAR_ABRIR, "(", -1);
+        variable(Sintaxis.INT_ID, "e", "&");
+        token(Sintaxis.PAR_CERRAR, ")", -1);
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void read() throws IOException {
+
+        token(Sintaxis.LEER, "leer", -1);
+        token(Sintaxis.PAR_ABRIR, "(", -1);
+        variable(Sintaxis.INT_ID, "e", "&");
+        token(Sintaxis.PAR_CERRAR, ")", -1);
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void ifStatement(int depth) throws IOException {
+
+        token(Sintaxis.IF, "si", -1);
+        condition();
+        token(Sintaxis.ENTONCES, "entonces", -1);
+        newLine();
+        block(depth);
+        if(random.nextBoolean()){
+            token(Sintaxis.SINO, "sino", -1);
+            newLine();
+            block(depth);
+        }
+
+    }
+
+    private void whileStatement(int depth) throws IOException {
+
+        token(Sintaxis.MIENTRAS, "mientras", -1);
+        condition();
+        token(Sintaxis.HACER, "hacer", -1);
+        newLine();
+        block(depth);
+
+    }
+
+    private void repeatStatement(int depth) throws IOException {
+
+        token(Sintaxis.REPETIR, "repetir", -1);
+        newLine();
+        block(depth);
+        token(Sintaxis.HASTA, "hasta", -1);
+        condition();
+        token(Sintaxis.PUNTOCOMA, ";", -1);
+        newLine();
+
+    }
+
+    private void block(int depth) throws IOException {
+
+        token(Sintaxis.INICIO, "inicio", -1);
+        newLine();
+        int statements = 1 + random.nextInt(3);
+        for(int i = 0; i < statements; i++){
+            statement(depth + 1);
+        }
+        token(Sintaxis.FIN, "fin", -1);
+        newLine();
+
+    }
+
+    private void condition() throws IOException {
+
+        token(Sintaxis.PAR_ABRIR, "(", -1);
+        variable(Sintaxis.INT_ID, "e", "&");
+        token(Sintaxis.MAYOR_OP, ">", -1);
+        token(Sintaxis.INT_CONST, Integer.toString(random.nextInt(100)), -1);
+        token(Sintaxis.PAR_CERRAR, ")", -1);
+
+    }
+
+    private void intExpression(int operands) throws IOException {
+
+        intOperand();
+        for(int i = 1; i < operands; i++){
+            if(random.nextBoolean()){
+                token(Sintaxis.SUM_OP, "+", -1);
+                intOperand();
+            } else {
+                token(Sintaxis.MUL_OP, "*", -1);
+                token(Sintaxis.PAR_ABRIR, "(", -1);
+                intOperand();
+                token(Sintaxis.RES_OP, "-", -1);
+                intOperand();
+                token(Sintaxis.PAR_CERRAR, ")", -1);
+            }
+        }
+
+    }
+
+    private void intOperand() throws IOException {
+
+        if(random.nextBoolean()){
+            variable(Sintaxis.INT_ID, "e", "&");
+        } else {
+            token(Sintaxis.INT_CONST, Integer.toString(random.nextInt(1000)), -1);
+        }
+
+    }
+
+    private void variable(int idToken, String prefix, String suffix) throws IOException {
+        token(idToken, prefix + random.nextInt(variablesPerType) + suffix, -2);
+    }
+
+    private void token(int token, String lexema, int posicionTabla) throws IOException {
+
+        out.write(token + " , " + lexema + " , " + posicionTabla + " , " + line);
+        out.write('\n');
+        written++;
+
+    }
+
+    private void newLine() {
+        line += 2;
+    }
+
+}
@@ -0,0 +1,273 @@
+package analizador.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Benchmarks de JMH de las fases principales del analizador, sobre un
+ * programa generado con GeneradorProgramas. Los arneses de benchmarks/
+ * siguen sirviendo para comparaciones rápidas; estos miden con
+ * calentamiento, varias JVM y error estadístico.
+ *
+ * Las clases del analizador están en el paquete por defecto, que no se
+ * puede importar desde un paquete con nombre, y JMH no acepta benchmarks
+ * en el paquete por defecto. Por eso se llaman con MethodHandles resueltos
+ * una sola vez en campos static final, que el JIT trata como llamadas
+ * directas.
+ *
+ * Además del análisis completo, cada etapa tiene su propio benchmark:
+ * lectura de tokens, separación de secciones, construcción del árbol,
+ * declaraciones, revisión del cuerpo y escritura de tablas. Las etapas modifican la sesión, así que
+ * el estado Sesiones prepara antes de cada invocación una sesión nueva
+ * que llega justo hasta la etapa anterior a la que se mide.
+ *
+ * Uso: mvn -B -Pjmh package && java -jar target/benchmarks.jar AnalisisJmh
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AnalisisJmh {
+
+    private static final MethodHandle GENERATE_PROGRAM;
+    private static final MethodHandle READ;
+    private static final MethodHandle ANALYZE;
+    private static final MethodHandle GENERATE_VCI;
+    private static final MethodHandle GLOBAL_REGISTRY;
+    private static final MethodHandle INTERN;
+    private static final MethodHandle NEW_TABLE;
+    private static final MethodHandle NEW_READER;
+    private static final MethodHandle READ_TOKENS;
+    private static final MethodHandle NEW_SESSION;
+    private static final MethodHandle SPLIT_SECTIONS;
+    private static final MethodHandle BUILD_TREE;
+    private static final MethodHandle ANALYZE_DECLARATIONS;
+    private static final MethodHandle ANALYZE_BODY;
+    private static final MethodHandle WRITE_TABLES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> generador = Class.forName("GeneradorProgramas");
+            Class<?> analizador = Class.forName("AnalizadorSemantico");
+            Class<?> resultado = Class.forName("ResultadoAnalisis");
+            Class<?> generadorVCI = Class.forName("GeneradorVCI");
+            Class<?> codigo = Class.forName("CodigoIntermedio");
+            Class<?> registro = Class.forName("RegistroLexemas");
+            Class<?> tabla = Class.forName("TablaTokens");
+            Class<?> lector = Class.forName("LectorTokens");
+            Class<?> consumidor = Class.forName("LectorTokens$ConsumidorTokens");
+
+            GENERATE_PROGRAM = lookup.findStatic(generador, "generate",
+                MethodType.methodType(long.class, long.class, long.class, File.class));
+            READ = lookup.findStatic(analizador, "read", MethodType.methodType(analizador, byte[].class))
+                .asType(MethodType.methodType(Object.class, byte[].class));
+            ANALYZE = lookup.findVirtual(analizador, "analyze", MethodType.methodType(resultado))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            GENERATE_VCI = lookup.findStatic(generadorVCI, "generate", MethodType.methodType(codigo, analizador))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            GLOBAL_REGISTRY = lookup.findStatic(registro, "getGlobal", MethodType.methodType(registro))
+                .asType(MethodType.methodType(Object.class));
+            INTERN = lookup.findVirtual(registro, "intern", MethodType.methodType(String.class, byte[].class, int.class, int.class))
+                .asType(MethodType.methodType(Object.class, Object.class, byte[].class, int.class, int.class));
+            NEW_TABLE = lookup.findConstructor(tabla, MethodType.methodType(void.class, int.class))
+                .asType(MethodType.methodType(Object.class, int.class));
+            NEW_READER = lookup.findConstructor(lector, MethodType.methodType(void.class, ReadableByteChannel.class, consumidor))
+                .asType(MethodType.methodType(Object.class, ReadableByteChannel.class, Object.class));
+            READ_TOKENS = lookup.findVirtual(lector, "read", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+            NEW_SESSION = lookup.findConstructor(analizador, MethodType.methodType(void.class, tabla))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            SPLIT_SECTIONS = lookup.findVirtual(analizador, "splitSections", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+            BUILD_TREE = lookup.findVirtual(analizador, "buildTree", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+            ANALYZE_DECLARATIONS = lookup.findVirtual(analizador, "analyzeDeclarations", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+            ANALYZE_BODY = lookup.findVirtual(analizador, "analyzeBody", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+            WRITE_TABLES = lookup.findStatic(analizador, "writeTables", MethodType.methodType(void.class, resultado, File.class))
+                .asType(MethodType.methodType(void.class, Object.class, File.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "10000", "100000" })
+    public int tokens;
+
+    private byte[]      content;
+    private byte[][]    lexemas;
+    private Object      registry;
+    private Object      result;
+    private File        tablesDir;
+
+    @Setup
+    public void setup() throws Throwable {
+
+        File file = File.createTempFile("jmh", ".txt");
+        file.deleteOnExit();
+        long written = (long) GENERATE_PROGRAM.invokeExact((long) tokens, 42L, file);
+        content = Files.readAllBytes(file.toPath());
+
+        // El lexema es el segundo campo de "token , lexema , posicion , linea"
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        lexemas = new byte[lines.size()][];
+        for(int i = 0; i < lexemas.length; i++){
+            String line = lines.get(i);
+            int start = line.indexOf(" , ") + 3;
+            int end = line.indexOf(" , ", start + 1);
+            lexemas[i] = line.substring(start, end).getBytes(StandardCharsets.UTF_8);
+        }
+        if(lexemas.length != written){
+            throw new IllegalStateException("Se esperaban " + written + " tokens y se leyeron " + lexemas.length);
+        }
+
+        registry = (Object) GLOBAL_REGISTRY.invokeExact();
+
+        // La escritura de tablas se mide sobre un mismo resultado ya analizado
+        result = (Object) ANALYZE.invokeExact((Object) READ.invokeExact(content));
+        tablesDir = Files.createTempDirectory("jmh-tablas").toFile();
+        tablesDir.deleteOnExit();
+
+    }
+
+    /*
+     * Sesiones nuevas para las etapas que modifican la sesión: cada una
+     * llega hasta la etapa anterior a la que se mide. Se preparan antes de
+     * cada invocación, fuera del tiempo medido; con el programa pequeño
+     * las etapas más rápidas duran poco más que el costo de esa preparación,
+     * así que sus resultados se comparan solo entre sí
+     */
+    @State(Scope.Thread)
+    public static class Sesiones {
+
+        Object nueva;
+        Object separada;
+        Object conArbol;
+        Object declarada;
+
+        @Setup(Level.Invocation)
+        public void prepare(AnalisisJmh fixture) throws Throwable {
+
+            nueva = (Object) NEW_SESSION.invokeExact(readTokens(fixture.content));
+
+            separada = (Object) NEW_SESSION.invokeExact(readTokens(fixture.content));
+            SPLIT_SECTIONS.invokeExact(separada);
+
+            conArbol = (Object) NEW_SESSION.invokeExact(readTokens(fixture.content));
+            SPLIT_SECTIONS.invokeExact(conArbol);
+            BUILD_TREE.invokeExact(conArbol);
+
+            declarada = (Object) NEW_SESSION.invokeExact(readTokens(fixture.content));
+            SPLIT_SECTIONS.invokeExact(declarada);
+            BUILD_TREE.invokeExact(declarada);
+            ANALYZE_DECLARATIONS.invokeExact(declarada);
+
+        }
+
+    }
+
+    private static Object readTokens(byte[] content) throws Throwable {
+
+        Object table = (Object) NEW_TABLE.invokeExact(content.length / 20 + 16);
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(content));
+        READ_TOKENS.invokeExact((Object) NEW_READER.invokeExact(channel, table));
+        return table;
+
+    }
+
+    @Benchmark
+    public Object analisis() throws Throwable {
+        return (Object) ANALYZE.invokeExact((Object) READ.invokeExact(content));
+    }
+
+    @Benchmark
+    public Object lecturaTokens() throws Throwable {
+        return readTokens(content);
+    }
+
+    @Benchmark
+    public Object separacionSecciones(Sesiones sesiones) throws Throwable {
+        SPLIT_SECTIONS.invokeExact(sesiones.nueva);
+        return sesiones.nueva;
+    }
+
+    @Benchmark
+    public Object construccionArbol(Sesiones sesiones) throws Throwable {
+        BUILD_TREE.invokeExact(sesiones.separada);
+        return sesiones.separada;
+    }
+
+    @Benchmark
+    public Object declaraciones(Sesiones sesiones) throws Throwable {
+        ANALYZE_DECLARATIONS.invokeExact(sesiones.conArbol);
+        return sesiones.conArbol;
+    }
+
+    @Benchmark
+    public Object revisionCuerpo(Sesiones sesiones) throws Throwable {
+        ANALYZE_BODY.invokeExact(sesiones.declarada);
+        return sesiones.declarada;
+    }
+
+    @Benchmark
+    public void escrituraTablas() throws Throwable {
+        WRITE_TABLES.invokeExact(result, tablesDir);
+    }
+
+    @Benchmark
+    public Object generacionVCI(Blackhole blackhole) throws Throwable {
+
+        Object session = (Object) READ.invokeExact(content);
+        blackhole.consume((Object) ANALYZE.invokeExact(session));
+        return (Object) GENERATE_VCI.invokeExact(session);
+
+    }
+
+    /**
+     * Todos los hilos internan los mismos lexemas en el registro global,
+     * que después del calentamiento ya los tiene: mide el camino de lectura
+     */
+    @Benchmark
+    @Threads(8)
+    public int registroCompartido() throws Throwable {
+
+        int shared = 0;
+        for(byte[] lexema : lexemas){
+            if((Object) INTERN.invokeExact(registry, lexema, 0, lexema.length) != null){
+                shared++;
+            }
+        }
+        return shared;
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package analizador.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Compara la clasificación de tokens con los conjuntos HashSet<Integer>
+ * de Sintaxis contra la tabla de categorías, como BenchmarkClasificacion
+ * pero con calentamiento, varias JVM y error estadístico. Las dos
+ * clasificaciones cuentan lo mismo sobre los mismos tokens.
+ *
+ * Sintaxis está en el paquete por defecto, así que sus conjuntos y sus
+ * consultas se resuelven una sola vez en campos static final (ver
+ * AnalisisJmh).
+ *
+ * Uso: mvn -B -Pjmh package && java -jar target/benchmarks.jar ClasificacionJmh
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ClasificacionJmh {
+
+    private static final int[] TOKEN_CODES = {
+        -1, -2, -3, -4, -5, -6, -7, -8, -9, -10, -11, -12, -13, -14, -15, -16, -17,
+        -21, -22, -23, -24, -25, -26, -31, -32, -33, -34, -35, -36, -41, -42, -43,
+        -51, -52, -53, -54, -55, -61, -62, -63, -64, -65, -73, -74, -75, -76, -77
+    };
+
+    private static final Set<Integer>   LOGICAL_AND_RELATIONAL;
+    private static final Set<Integer>   IDENTIFIERS;
+    private static final Set<Integer>   CONSTANTS;
+    private static final MethodHandle   IS_LOGICAL_OR_RELATIONAL;
+    private static final MethodHandle   IS_IDENTIFIER;
+    private static final MethodHandle   IS_CONSTANT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> sintaxis = Class.forName("Sintaxis");
+            MethodType query = MethodType.methodType(boolean.class, int.class);
+
+            LOGICAL_AND_RELATIONAL = getSet(sintaxis, "logicalAndRelationalOperators");
+            IDENTIFIERS = getSet(sintaxis, "identifiers");
+            CONSTANTS = getSet(sintaxis, "constants");
+            IS_LOGICAL_OR_RELATIONAL = lookup.findStatic(sintaxis, "isLogicalOrRelationalOperator", query);
+            IS_IDENTIFIER = lookup.findStatic(sintaxis, "isIdentifier", query);
+            IS_CONSTANT = lookup.findStatic(sintaxis, "isConstant", query);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Integer> getSet(Class<?> sintaxis, String name) throws ReflectiveOperationException {
+        return (Set<Integer>) sintaxis.getField(name).get(null);
+    }
+
+    @Param({ "4096" })
+    public int tokens;
+
+    private int[] codes;
+
+    @Setup
+    public void setup() {
+
+        codes = new int[tokens];
+        Random random = new Random(42);
+        for(int i = 0; i < codes.length; i++){
+            codes[i] = TOKEN_CODES[random.nextInt(TOKEN_CODES.length)];
+        }
+
+    }
+
+    @Benchmark
+    public int conjuntos() {
+
+        int count = 0;
+        for(int token : codes){
+            if(LOGICAL_AND_RELATIONAL.contains(token)){
+                count++;
+            }
+            if(IDENTIFIERS.contains(token)){
+                count++;
+            }
+            if(CONSTANTS.contains(token)){
+                count++;
+            }
+        }
+        return count;
+
+    }
+
+    @Benchmark
+    public int tablaCategorias() throws Throwable {
+
+        int count = 0;
+        for(int token : codes){
+            if((boolean) IS_LOGICAL_OR_RELATIONAL.invokeExact(token)){
+                count++;
+            }
+            if((boolean) IS_IDENTIFIER.invokeExact(token)){
+                count++;
+            }
+            if((boolean) IS_CONSTANT.invokeExact(token)){
+                count++;
+            }
+        }
+        return count;
+
+    }
+
+}
@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Compara el resultado de AnalisisIncremental después de cada edición con
+ * el de analizar de nuevo el programa editado completo: los diagnósticos
+ * y la tabla de direcciones con los saltos del código intermedio.
+ */
+
+public class AnalisisIncrementalTest {
+
+    private static final String PROGRAM = String.join("\n",
+        "programa p@ ;",
+        "variables",
+        "e0& , e1& : entero ;",
+        "r0% : real ;",
+        "s0$ : cadena ;",
+        "l0# : logico ;",
+        "inicio",
+        "e0& = 1 ;",
+        "repetir inicio e0& = 1 ; fin hasta ( e0& > \"x\" ) ;",
+        "e1& = e0& + 2 ;",
+        "si ( e0& < 3 ) entonces inicio r0% = e0& * 2.5 ; fin sino s0$ = \"a\" ;",
+        "mientras ( l0# y e1& > 0 ) hacer inicio e1& = e1& - 1 ; l0# = no l0# ; fin ;",
+        "repetir e1& = e1& + 1 ; hasta ( e1& == 3 ) ;",
+        "escribir ( s0$ + \"b\" ) ;",
+        "leer ( r0% ) ;",
+        "si ( verdadero ) entonces si ( e1& == 2 ) entonces e0& = 5 ; sino e0& = \"y\" ;",
+        "fin"
+    );
+
+    // Los reemplazos conservan la forma del programa: un operando por otro
+    // operando y un operador binario por otro
+    private static final String[] OPERANDS = { "e0&", "e1&", "r0%", "s0$", "l0#", "1", "2.5", "\"x\"", "verdadero", "falso" };
+    private static final String[] OPERATORS = { "+", "-", "*", "/", "<", ">", "==", "<>", "y", "o" };
+
+    @Test
+    public void editAfterNestedStatementKeepsOneDiagnostic() {
+
+        List<Token> program = ProgramasPrueba.tokens(PROGRAM);
+        AnalisisIncremental incremental = new AnalisisIncremental(TablaTokens.fromList(program));
+
+        // El "1" del bloque del primer repetir, antes del "hasta" con error
+        int index = ProgramasPrueba.indexOf(program, "repetir") + 4;
+        for(int edit = 0; edit < 3; edit++){
+            Token replacement = ProgramasPrueba.token(edit % 2 == 0 ? "2" : "1", program.get(index).getNumLinea());
+            program.set(index, replacement);
+            incremental.replaceTokens(index, index + 1, Collections.singletonList(replacement), 0);
+            assertSameAsFullAnalysis(program, incremental);
+        }
+
+    }
+
+    @Test
+    public void editsThatFixTheErrorsAddTheJumps() {
+
+        List<Token> program = ProgramasPrueba.tokens(PROGRAM);
+        AnalisisIncremental incremental = new AnalisisIncremental(TablaTokens.fromList(program));
+        assertEquals(1, incremental.getResult().getAddressesTable().size());
+
+        // Las dos comparaciones y asignaciones con cadenas que no corresponden
+        for(String lexema : new String[]{ "\"x\"", "\"y\"" }){
+            int index = ProgramasPrueba.indexOf(program, lexema);
+            Token replacement = ProgramasPrueba.token("1", program.get(index).getNumLinea());
+            program.set(index, replacement);
+            incremental.replaceTokens(index, index + 1, Collections.singletonList(replacement), 0);
+            assertSameAsFullAnalysis(program, incremental);
+        }
+
+        assertTrue(incremental.getResult().isSuccessful());
+        assertTrue(incremental.getResult().getAddressesTable().size() > 1);
+
+    }
+
+    @Test
+    public void randomEditsMatchFullAnalysis() {
+
+        for(long seed = 0; seed < 10; seed++){
+
+            Random random = new Random(seed);
+            List<Token> program = ProgramasPrueba.tokens(PROGRAM);
+            AnalisisIncremental incremental = new AnalisisIncremental(TablaTokens.fromList(program));
+            int bodyStart = ProgramasPrueba.indexOf(program, "inicio") + 1;
+
+            for(int edit = 0; edit < 30; edit++){
+
+                int index = bodyStart + random.nextInt(program.size() - bodyStart);
+                String lexema = program.get(index).getLexema();
+                String[] choices = contains(OPERANDS, lexema) || Sintaxis.isConstant(program.get(index).getToken())
+                    ? OPERANDS
+                    : contains(OPERATORS, lexema) ? OPERATORS : null;
+                // Los identificadores a la izquierda de una asignación se dejan igual
+                if(choices == null || program.get(index + 1).getToken() == Sintaxis.ASIGN_OP){
+                    continue;
+                }
+
+                Token replacement = ProgramasPrueba.token(choices[random.nextInt(choices.length)], program.get(index).getNumLinea());
+                program.set(index, replacement);
+                incremental.replaceTokens(index, index + 1, Collections.singletonList(replacement), 0);
+
+                assertSameAsFullAnalysis(program, incremental);
+
+            }
+
+        }
+
+    }
+
+    private static void assertSameAsFullAnalysis(List<Token> program, AnalisisIncremental incremental) {
+
+        ResultadoAnalisis expected = new AnalizadorSemantico(TablaTokens.fromList(program)).analyze();
+        assertEquals(expected.getDiagnostics().toText(), incremental.getResult().getDiagnostics().toText());
+        assertEquals(expected.getAddressesTable(), incremental.getResult().getAddressesTable());
+
+    }
+
+    private static boolean contains(String[] values, String value) {
+
+        for(String candidate : values){
+            if(candidate.equals(value)){
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+}
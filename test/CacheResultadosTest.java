@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Guarda resultados en una CacheResultados con nivel en disco y los vuelve
+ * a cargar desde otra instancia sobre el mismo directorio, como al
+ * reiniciar el servidor o repetir un lote.
+ */
+
+public class CacheResultadosTest {
+
+    private static final String VALID = String.join("\n",
+        "programa p@ ;",
+        "variables",
+        "a& , b& : entero ;",
+        "s$ : cadena ;",
+        "inicio",
+        "a& = 1 ;",
+        "si ( a& < 2 ) entonces b& = 3 ; sino s$ = \"x\" ;",
+        "mientras ( a& < 10 ) hacer a& = a& * 2 ;",
+        "repetir b& = b& - 1 ; hasta ( b& == 0 ) ;",
+        "escribir ( s$ ) ;",
+        "fin"
+    );
+
+    private static final String INVALID = VALID.replace("b& = 3 ;", "b& = \"y\" ;");
+
+    @TempDir
+    File diskDir;
+
+    @Test
+    public void resultsReloadedFromDiskMatchAFreshAnalysis() throws IOException {
+
+        for(String source : new String[]{ VALID, INVALID }){
+
+            byte[] content = ProgramasPrueba.tokensFile(source);
+            new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir).analyze(content);
+
+            CacheResultados reloaded = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir);
+            ResultadoAnalisis result = reloaded.analyze(content);
+
+            assertEquals(1, reloaded.getDiskHits());
+            assertEquals(0, reloaded.getMisses());
+            assertSameTables(AnalizadorSemantico.read(content).analyze(), result);
+
+        }
+
+    }
+
+    @Test
+    public void memoryHitsServeTheSameJsonBytes() throws IOException {
+
+        byte[] content = ProgramasPrueba.tokensFile(VALID);
+        CacheResultados cache = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir);
+
+        ResultadoAnalisis first = cache.analyze(content);
+        ResultadoAnalisis second = cache.analyze(content);
+
+        assertEquals(1, cache.getHits());
+        assertSame(first, second);
+        assertSame(first.toJsonBytes(), second.toJsonBytes());
+        assertEquals(first.toJson(), new String(second.toJsonBytes(), StandardCharsets.UTF_8));
+
+    }
+
+    @Test
+    public void changedContentIsAnalyzedAgain() throws IOException {
+
+        byte[] original = ProgramasPrueba.tokensFile(VALID);
+        byte[] changed = ProgramasPrueba.tokensFile(INVALID);
+        assertNotEquals(CacheResultados.hash(original), CacheResultados.hash(changed));
+
+        CacheResultados cache = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir);
+        assertTrue(cache.analyze(original).isSuccessful());
+        ResultadoAnalisis result = cache.analyze(changed);
+
+        assertEquals(2, cache.getMisses());
+        assertSameTables(AnalizadorSemantico.read(changed).analyze(), result);
+
+        // Los dos contenidos quedan en disco, cada uno con su propio resultado
+        CacheResultados reloaded = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir);
+        assertTrue(reloaded.analyze(original).isSuccessful());
+        assertSameTables(result, reloaded.analyze(changed));
+        assertEquals(2, reloaded.getDiskHits());
+
+    }
+
+    @Test
+    public void unreadableFilesAreAnalyzedAgain() throws IOException {
+
+        byte[] content = ProgramasPrueba.tokensFile(VALID);
+        new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir).analyze(content);
+
+        File stored = new File(diskDir, CacheResultados.hash(content) + ".res");
+        assertTrue(stored.isFile());
+        Files.write(stored.toPath(), "no es un resultado".getBytes(StandardCharsets.UTF_8));
+
+        CacheResultados reloaded = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir);
+        ResultadoAnalisis result = reloaded.analyze(content);
+
+        assertEquals(0, reloaded.getDiskHits());
+        assertEquals(1, reloaded.getMisses());
+        assertSameTables(AnalizadorSemantico.read(content).analyze(), result);
+
+        // El archivo dañado se reemplazó con el resultado nuevo
+        CacheResultados again = new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, diskDir);
+        again.analyze(content);
+        assertEquals(1, again.getDiskHits());
+
+    }
+
+    private static void assertSameTables(ResultadoAnalisis expected, ResultadoAnalisis actual) {
+
+        assertEquals(expected.getDiagnostics().toText(), actual.getDiagnostics().toText());
+        assertEquals(expected.getSymbolsTable(), actual.getSymbolsTable());
+        assertEquals(expected.getAddressesTable(), actual.getAddressesTable());
+        assertEquals(expected.getTokensTable(), actual.getTokensTable());
+        assertEquals(expected.toJson(), actual.toJson());
+
+    }
+
+}
@@ -0,0 +1,174 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Ejecuta programas pequeños con el Interprete y revisa lo que escriben,
+ * incluidos los errores de ejecución.
+ */
+
+public class InterpreteTest {
+
+    private static final String DECLARATIONS = String.join("\n",
+        "programa p@ ;",
+        "variables",
+        "a& , b& , i& : entero ;",
+        "r% : real ;",
+        "s$ : cadena ;",
+        "l# : logico ;",
+        "inicio"
+    );
+
+    @Test
+    public void arithmeticFollowsPrecedenceAndTypes() throws IOException {
+
+        String output = run(String.join("\n",
+            "a& = 7 ;",
+            "b& = 2 ;",
+            "escribir ( a& + b& * 3 ) ;",
+            "escribir ( ( a& + b& ) * 3 ) ;",
+            "escribir ( a& / b& ) ;",
+            "escribir ( a& % b& ) ;",
+            "escribir ( a& - b& - 1 ) ;",
+            "r% = 2.5 * b& ;",
+            "escribir ( r% ) ;",
+            "s$ = \"ab\" + \"cd\" ;",
+            "escribir ( s$ ) ;",
+            "l# = a& > b& y no ( a& == 7 ) ;",
+            "escribir ( l# ) ;"
+        ));
+
+        // Las constantes de cadena se escriben sin sus comillas
+        assertEquals(lines("13", "27", "3", "1", "4", "5.0", "abcd", "falso"), output);
+
+    }
+
+    @Test
+    public void divisionByZeroStopsWithAnError() throws IOException {
+
+        Interprete interprete = compile(String.join("\n",
+            "a& = 0 ;",
+            "escribir ( 1 ) ;",
+            "escribir ( 5 / a& ) ;",
+            "escribir ( 2 ) ;"
+        ));
+
+        StringWriter out = new StringWriter();
+        IllegalStateException error = assertThrows(
+            IllegalStateException.class,
+            () -> interprete.run(input(""), Interprete.Salida.of(out))
+        );
+
+        assertTrue(error.getMessage().contains("división entre cero"), error.getMessage());
+        assertEquals(lines("1"), out.toString());
+
+    }
+
+    @Test
+    public void loopsAndConditionalsJumpToTheRightStatements() throws IOException {
+
+        String output = run(String.join("\n",
+            "i& = 1 ;",
+            "a& = 0 ;",
+            "mientras ( i& <= 5 ) hacer inicio a& = a& + i& ; i& = i& + 1 ; fin ;",
+            "escribir ( a& ) ;",
+            "repetir inicio b& = b& + 1 ; fin hasta ( b& >= 3 ) ;",
+            "escribir ( b& ) ;",
+            "repetir b& = b& + 10 ; hasta ( verdadero ) ;",
+            "escribir ( b& ) ;",
+            "mientras ( falso ) hacer escribir ( 0 ) ;",
+            "si ( a& == 15 ) entonces escribir ( 1 ) ; sino escribir ( 2 ) ;",
+            "si ( a& <> 15 ) entonces escribir ( 3 ) ; sino escribir ( 4 ) ;",
+            "si ( verdadero ) entonces si ( falso ) entonces escribir ( 5 ) ; sino escribir ( 6 ) ;"
+        ));
+
+        assertEquals(lines("15", "3", "13", "1", "4", "6"), output);
+
+    }
+
+    @Test
+    public void infiniteLoopsStopAtTheJumpLimit() throws IOException {
+
+        Interprete interprete = compile("mientras ( verdadero ) hacer i& = i& + 1 ;");
+
+        IllegalStateException error = assertThrows(
+            IllegalStateException.class,
+            () -> interprete.run(input(""), Interprete.Salida.of(new StringWriter()), 100)
+        );
+        assertTrue(error.getMessage().contains("100 saltos"), error.getMessage());
+
+    }
+
+    @Test
+    public void readsEveryTypeAndStartsEachRunFromTheDefaults() throws IOException {
+
+        Interprete interprete = compile(String.join("\n",
+            "escribir ( a& ) ;",
+            "leer ( a& ) ;",
+            "leer ( r% ) ;",
+            "leer ( s$ ) ;",
+            "leer ( l# ) ;",
+            "escribir ( a& * 2 ) ;",
+            "escribir ( r% + 1 ) ;",
+            "escribir ( s$ ) ;",
+            "escribir ( no l# ) ;"
+        ));
+
+        for(int run = 0; run < 2; run++){
+            StringWriter out = new StringWriter();
+            interprete.run(input(lines("21", "0.5", "hola mundo", "verdadero")), Interprete.Salida.of(out));
+            assertEquals(lines("0", "42", "1.5", "hola mundo", "falso"), out.toString(), "ejecución " + run);
+        }
+
+    }
+
+    @Test
+    public void readingPastTheEndOfTheInputFails() throws IOException {
+
+        Interprete interprete = compile("leer ( a& ) ; leer ( b& ) ;");
+
+        IOException error = assertThrows(
+            IOException.class,
+            () -> interprete.run(input(lines("1")), Interprete.Salida.of(new StringWriter()))
+        );
+        assertTrue(error.getMessage().contains("entrada"), error.getMessage());
+
+    }
+
+    /**
+     * Analiza un cuerpo con las declaraciones de DECLARATIONS y traduce su
+     * código intermedio
+     */
+    private static Interprete compile(String body) {
+
+        AnalizadorSemantico session = ProgramasPrueba.session(DECLARATIONS + "\n" + body + "\nfin");
+        ResultadoAnalisis result = session.analyze();
+        assertTrue(result.isSuccessful(), result.getDiagnostics().toText());
+        return new Interprete(session.generateCode());
+
+    }
+
+    private static String run(String body) throws IOException {
+
+        StringWriter out = new StringWriter();
+        compile(body).run(input(""), Interprete.Salida.of(out));
+        return out.toString();
+
+    }
+
+    private static Interprete.Entrada input(String text) {
+        return Interprete.Entrada.of(new BufferedReader(new StringReader(text)));
+    }
+
+    private static String lines(String... values) {
+        return String.join("\n", values) + "\n";
+    }
+
+}
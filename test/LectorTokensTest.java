@@ -0,0 +1,128 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Escribe tablas de tokens con EscritorTablas y las vuelve a leer con
+ * LectorTokens, sobre todo con lexemas que contienen el separador " , ".
+ */
+
+public class LectorTokensTest {
+
+    private static final String[] LEXEMAS_WITH_COMMAS = {
+        ",",
+        "\"a , b\"",
+        "\"a,b,c\"",
+        "\" , \"",
+        "\"1 , 2 , 3\"",
+        "\"x , -4 , 7\"",
+        "\"año , ñu\""
+    };
+
+    @TempDir
+    File dir;
+
+    @Test
+    public void lexemasWithCommasSurviveTheTokensTable() throws IOException {
+
+        TablaTokens table = new TablaTokens();
+        for(int i = 0; i < LEXEMAS_WITH_COMMAS.length; i++){
+            int token = i == 0 ? Sintaxis.COMA : Sintaxis.STRING_CONST;
+            table.add(token, LEXEMAS_WITH_COMMAS[i], i % 2 == 0 ? -1 : i, i + 1);
+        }
+
+        File file = new File(dir, "tokensTable.txt");
+        try(EscritorTablas out = new EscritorTablas(file)){
+            out.writeTokensTable(table);
+        }
+
+        assertSameTokens(table.toList(), LectorTokens.readAll(file));
+
+    }
+
+    @Test
+    public void analyzedProgramsRoundTripThroughTheTokensTable() throws IOException {
+
+        List<Token> tokens = ProgramasPrueba.tokens(String.join("\n",
+            "programa p@ ;",
+            "variables",
+            "a& , b& : entero ;",
+            "s$ : cadena ;",
+            "inicio",
+            "s$ = \"x\" ;",
+            "escribir ( s$ ) ;",
+            "fin"
+        ));
+        tokens.get(ProgramasPrueba.indexOf(tokens, "\"x\"")).setLexema("\"uno , dos,tres , 4\"");
+
+        ResultadoAnalisis result = new AnalizadorSemantico(tokens).analyze();
+        assertTrue(result.isSuccessful(), result.getDiagnostics().toText());
+        EscritorTablas.writeText(result, dir);
+
+        File file = new File(dir, "tokensTable.txt");
+        assertSameTokens(result.getTokens().toList(), LectorTokens.readAll(file));
+
+        // El archivo escrito se puede volver a analizar tal cual
+        assertEquals(result.getTokensTable(), AnalizadorSemantico.read(file).analyze().getTokensTable());
+
+    }
+
+    @Test
+    public void linesLongerThanTheBufferAreRead() throws IOException {
+
+        String lexema = "\"" + "a , b ".repeat(20000) + "\"";
+        TablaTokens table = new TablaTokens();
+        table.add(Sintaxis.STRING_CONST, lexema, -1, 1);
+        table.add(Sintaxis.PUNTOCOMA, ";", -1, 1);
+
+        File file = new File(dir, "tokensTable.txt");
+        try(EscritorTablas out = new EscritorTablas(file)){
+            out.writeTokensTable(table);
+        }
+
+        assertSameTokens(table.toList(), LectorTokens.readAll(file));
+
+    }
+
+    @Test
+    public void malformedLinesReportTheirLineNumber() throws IOException {
+
+        String[] lines = {
+            "\"a , b\" , 3",
+            "-63 , \"a , b\" , 3",
+            "-63 , \"a , b\" , x , 3",
+            "-63 ,  , -1 , 3"
+        };
+
+        for(String line : lines){
+            File file = new File(dir, "tokens.txt");
+            Files.write(file.toPath(), ("-76 , , , -1 , 1\n\n" + line + "\n").getBytes(StandardCharsets.UTF_8));
+
+            IOException error = assertThrows(IOException.class, () -> LectorTokens.readAll(file), line);
+            assertTrue(error.getMessage().startsWith("Línea 3 "), error.getMessage());
+        }
+
+    }
+
+    private static void assertSameTokens(List<Token> expected, List<Token> actual) {
+
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++){
+            assertEquals(expected.get(i).getToken(), actual.get(i).getToken(), "token " + i);
+            assertEquals(expected.get(i).getLexema(), actual.get(i).getLexema(), "token " + i);
+            assertEquals(expected.get(i).getPosicionTabla(), actual.get(i).getPosicionTabla(), "token " + i);
+            assertEquals(expected.get(i).getNumLinea(), actual.get(i).getNumLinea(), "token " + i);
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Compara la ejecución de programas con y sin plegar sus expresiones
+ * constantes, y revisa que las expresiones que no pueden plegarse queden
+ * en la tabla de tokens.
+ */
+
+public class PlegadorConstantesTest {
+
+    private static final String DECLARATIONS = String.join("\n",
+        "programa p@ ;",
+        "variables",
+        "a& , i& : entero ;",
+        "r% : real ;",
+        "s$ : cadena ;",
+        "l# : logico ;",
+        "inicio"
+    );
+
+    private static final String[] FOLDABLE = {
+        "escribir ( 10 * ( 89 - 100 ) ) ; escribir ( 7 / 2 ) ; escribir ( 7 % 3 ) ;",
+        "a& = 2 * 3 + 4 ; escribir ( a& - ( 1 + 1 ) ) ;",
+        "r% = 1.5 * 4 ; escribir ( r% + 0.25 ) ;",
+        "s$ = \"ab\" + \"cd\" ; escribir ( s$ + \"e\" ) ;",
+        "l# = verdadero y no falso ; escribir ( l# o falso ) ; escribir ( \"a\" < \"b\" ) ;",
+        "si ( 1 < 2 ) entonces escribir ( 1 ) ; sino escribir ( 2 ) ;",
+        "si ( 3 == 4 ) entonces escribir ( 1 ) ; sino inicio escribir ( 2 ) ; escribir ( 3 ) ; fin ;",
+        "mientras ( falso ) hacer escribir ( 0 ) ; escribir ( 9 ) ;",
+        "repetir inicio a& = a& + 2 ; escribir ( a& ) ; fin hasta ( verdadero ) ;",
+        "i& = 0 ; mientras ( i& < 2 + 1 ) hacer inicio escribir ( i& * ( 2 + 3 ) ) ; i& = i& + 1 ; fin ;",
+        "si ( verdadero ) entonces si ( 1 > 2 ) entonces escribir ( 1 ) ; sino escribir ( 2 + 2 ) ;"
+    };
+
+    @Test
+    public void foldedProgramsPrintTheSameOutput() throws IOException {
+
+        for(String body : FOLDABLE){
+
+            AnalizadorSemantico folded = analyze(body);
+            int before = folded.getTokens().size();
+            folded.optimize();
+
+            assertTrue(folded.getTokens().size() < before, body);
+            assertEquals(run(analyze(body)), run(folded), body);
+
+        }
+
+    }
+
+    @Test
+    public void integerDivisionByZeroIsLeftForExecution() throws IOException {
+
+        for(String body : new String[]{ "escribir ( 1 / 0 ) ;", "escribir ( 5 % ( 2 - 2 ) ) ;" }){
+
+            AnalizadorSemantico folded = analyze(body);
+            folded.optimize();
+
+            assertTrue(contains(folded.getTokens(), body.contains("/") ? Sintaxis.DIV_OP : Sintaxis.MOD_OP), body);
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> run(folded), body);
+            assertTrue(error.getMessage().contains("división entre cero"), error.getMessage());
+
+        }
+
+    }
+
+    @Test
+    public void mixedRealAndIntegerFoldWithRealArithmetic() throws IOException {
+
+        AnalizadorSemantico folded = analyze("r% = 1 + 2.5 ; escribir ( r% ) ; escribir ( 7 / 2.0 ) ;");
+        folded.optimize();
+
+        // La asignación queda "r% = 3.5 ;"
+        int assignment = indexOf(folded.getTokens(), "r%", indexOf(folded.getTokens(), "inicio", 0));
+        assertEquals(Sintaxis.REAL_CONST, folded.getTokens().getToken(assignment + 2));
+        assertEquals(Sintaxis.PUNTOCOMA, folded.getTokens().getToken(assignment + 3));
+        assertEquals("3.5\n3.5\n", run(folded));
+
+    }
+
+    @Test
+    public void realResultsThatAreNotFiniteAreNotFolded() throws IOException {
+
+        String body = "r% = 1 / 0.0 ; escribir ( r% ) ; escribir ( 0.0 / 0 ) ;";
+        AnalizadorSemantico folded = analyze(body);
+        folded.optimize();
+
+        assertEquals(analyze(body).getTokens().size(), folded.getTokens().size());
+        assertEquals(run(analyze(body)), run(folded));
+
+    }
+
+    @Test
+    public void constantConditionsAreReported() {
+
+        Diagnosticos warnings = analyze(String.join(" ",
+            "si ( 1 < 2 ) entonces a& = 1 ;",
+            "mientras ( falso ) hacer a& = 2 ;",
+            "repetir a& = 3 ; hasta ( verdadero ) ;",
+            "si ( a& < 2 ) entonces a& = 4 ;"
+        )).optimize();
+
+        assertEquals(3, warnings.size(), warnings.toText());
+
+    }
+
+    private static AnalizadorSemantico analyze(String body) {
+
+        AnalizadorSemantico session = ProgramasPrueba.session(DECLARATIONS + "\n" + body + "\nfin");
+        ResultadoAnalisis result = session.analyze();
+        assertTrue(result.isSuccessful(), result.getDiagnostics().toText());
+        return session;
+
+    }
+
+    private static String run(AnalizadorSemantico session) throws IOException {
+
+        StringWriter out = new StringWriter();
+        new Interprete(session.generateCode()).run(
+            Interprete.Entrada.of(new BufferedReader(new StringReader(""))),
+            Interprete.Salida.of(out)
+        );
+        return out.toString();
+
+    }
+
+    private static boolean contains(TablaTokens tokens, int token) {
+
+        for(int i = 0; i < tokens.size(); i++){
+            if(tokens.getToken(i) == token){
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    private static int indexOf(TablaTokens tokens, String lexema, int from) {
+
+        for(int i = from; i < tokens.size(); i++){
+            if(tokens.getLexema(i).equals(lexema)){
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(lexema);
+
+    }
+
+}
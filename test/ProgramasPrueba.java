@@ -0,0 +1,118 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Convierte programas de prueba escritos como texto, con una palabra por
+ * token separada por espacios, en la lista de tokens que produciría el
+ * analizador léxico. Las constantes de cadena no pueden tener espacios.
+ */
+
+final class ProgramasPrueba {
+
+    private static final Map<String, Integer> CODES = new HashMap<String, Integer>();
+
+    static {
+        String[] words = {
+            "programa", "inicio", "fin", "leer", "escribir", "si", "sino", "mientras", "repetir", "hasta",
+            "entero", "real", "cadena", "logico", "variables", "entonces", "hacer"
+        };
+        for(int i = 0; i < words.length; i++){
+            CODES.put(words[i], -1 - i);
+        }
+        String[] operators = { "*", "/", "%", "+", "-", "=" };
+        for(int i = 0; i < operators.length; i++){
+            CODES.put(operators[i], -21 - i);
+        }
+        String[] relational = { "<", "<=", ">", ">=", "==", "<>" };
+        for(int i = 0; i < relational.length; i++){
+            CODES.put(relational[i], -31 - i);
+        }
+        CODES.put("y", Sintaxis.AND_OP);
+        CODES.put("o", Sintaxis.OR_OP);
+        CODES.put("no", Sintaxis.NOT_OP);
+        CODES.put("verdadero", Sintaxis.TRUE_CONST);
+        CODES.put("falso", Sintaxis.FALSE_CONST);
+        CODES.put("(", Sintaxis.PAR_ABRIR);
+        CODES.put(")", Sintaxis.PAR_CERRAR);
+        CODES.put(";", Sintaxis.PUNTOCOMA);
+        CODES.put(",", Sintaxis.COMA);
+        CODES.put(":", -77);
+    }
+
+    private ProgramasPrueba() {
+    }
+
+    /**
+     * @param source El programa, con los tokens separados por espacios y
+     *          las líneas por saltos de línea
+     * @return Los tokens del programa, con sus números de línea
+     */
+    static List<Token> tokens(String source) {
+
+        List<Token> tokens = new ArrayList<Token>();
+        String[] lines = source.split("\n");
+        for(int line = 0; line < lines.length; line++){
+            for(String word : lines[line].trim().split(" +")){
+                tokens.add(token(word, line + 1));
+            }
+        }
+        return tokens;
+
+    }
+
+    static Token token(String word, int line) {
+
+        Integer code = CODES.get(word);
+        if(code != null){
+            return new Token(code, word, -1, line);
+        }
+
+        switch(word.charAt(word.length() - 1)){
+            case '&': return new Token(Sintaxis.INT_ID, word, -2, line);
+            case '%': return new Token(Sintaxis.REAL_ID, word, -2, line);
+            case '$': return new Token(Sintaxis.STRING_ID, word, -2, line);
+            case '#': return new Token(Sintaxis.BOOLEANO_ID, word, -2, line);
+            case '@': return new Token(Sintaxis.GENERAL_ID, word, -2, line);
+            case '"': return new Token(Sintaxis.STRING_CONST, word, -1, line);
+            default: return new Token(word.contains(".") ? Sintaxis.REAL_CONST : Sintaxis.INT_CONST, word, -1, line);
+        }
+
+    }
+
+    /**
+     * @return Una sesión nueva con los tokens del programa, sin analizar
+     */
+    static AnalizadorSemantico session(String source) {
+        return new AnalizadorSemantico(TablaTokens.fromList(tokens(source)));
+    }
+
+    /**
+     * @return El programa en el formato de un archivo de tokens, una línea
+     *          "token , lexema , posicion , linea" por token
+     */
+    static byte[] tokensFile(String source) {
+
+        StringBuilder file = new StringBuilder();
+        for(Token token : tokens(source)){
+            file.append(token.getToken()).append(" , ").append(token.getLexema())
+                .append(" , ").append(token.getPosicionTabla()).append(" , ").append(token.getNumLinea()).append('\n');
+        }
+        return file.toString().getBytes(StandardCharsets.UTF_8);
+
+    }
+
+    static int indexOf(List<Token> tokens, String lexema) {
+
+        for(int i = 0; i < tokens.size(); i++){
+            if(tokens.get(i).getLexema().equals(lexema)){
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(lexema);
+
+    }
+
+}
@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Revisa el registro de lexemas compartido entre sesiones, con varios
+ * hilos registrando y buscando a la vez.
+ */
+
+public class RegistroLexemasTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void concurrentInternsShareOneStringPerLexema() throws Exception {
+
+        RegistroLexemas registry = new RegistroLexemas(RegistroLexemas.DEFAULT_MAX_LEXEMAS);
+        byte[][] vocabulary = vocabulary(2003);
+
+        String[][] seen = internFromThreads(registry, vocabulary, 20);
+
+        for(int word = 0; word < vocabulary.length; word++){
+            String expected = new String(vocabulary[word], StandardCharsets.UTF_8);
+            assertEquals(expected, seen[0][word]);
+            assertSame(seen[0][word], registry.find(expected));
+            for(int t = 1; t < THREADS; t++){
+                assertSame(seen[0][word], seen[t][word], "hilo " + t + ", lexema " + expected);
+            }
+        }
+        assertEquals(vocabulary.length, registry.size());
+        assertEquals(0, registry.getClears());
+
+    }
+
+    @Test
+    public void fullShardsAreClearedWhileOtherThreadsIntern() throws Exception {
+
+        // Un lexema por fragmento: casi cada alta vacía un fragmento
+        RegistroLexemas registry = new RegistroLexemas(64);
+        byte[][] vocabulary = vocabulary(4999);
+
+        String[][] seen = internFromThreads(registry, vocabulary, 5);
+
+        for(int word = 0; word < vocabulary.length; word++){
+            String expected = new String(vocabulary[word], StandardCharsets.UTF_8);
+            for(int t = 0; t < THREADS; t++){
+                assertEquals(expected, seen[t][word]);
+            }
+        }
+        assertTrue(registry.size() <= registry.getMaxLexemas());
+        assertTrue(registry.getClears() > 0);
+
+    }
+
+    @Test
+    public void longLexemasAreNotRegistered() {
+
+        RegistroLexemas registry = new RegistroLexemas(RegistroLexemas.DEFAULT_MAX_LEXEMAS);
+        String lexema = "x".repeat(RegistroLexemas.MAX_LEXEMA_BYTES + 1) + "&";
+
+        assertNull(registry.intern(lexema));
+        assertNull(registry.find(lexema));
+        assertEquals(0, registry.size());
+
+    }
+
+    @Test
+    public void onlyIdentifiersAreShared() {
+
+        RegistroLexemas registry = new RegistroLexemas(RegistroLexemas.DEFAULT_MAX_LEXEMAS);
+        TablaTokens first = new TablaTokens(4, new PoolLexemas(registry));
+        TablaTokens second = new TablaTokens(4, new PoolLexemas(registry));
+
+        for(TablaTokens table : new TablaTokens[]{ first, second }){
+            table.add(Sintaxis.INT_ID, "cuenta&", -2, 1);
+            table.add(Sintaxis.STRING_CONST, "\"hola\"", -1, 1);
+        }
+
+        assertSame(first.getLexema(0), second.getLexema(0));
+        assertNotSame(first.getLexema(1), second.getLexema(1));
+        assertNotNull(registry.find("cuenta&"));
+        assertNull(registry.find("\"hola\""));
+
+    }
+
+    private static byte[][] vocabulary(int size) {
+
+        String[] suffixes = { "&", "%", "$", "#", "@" };
+        byte[][] vocabulary = new byte[size][];
+        for(int i = 0; i < size; i++){
+            vocabulary[i] = ("var" + i + suffixes[i % suffixes.length]).getBytes(StandardCharsets.UTF_8);
+        }
+        return vocabulary;
+
+    }
+
+    /**
+     * Registra todo el vocabulario desde varios hilos que arrancan a la vez,
+     * cada uno en otro orden, y busca cada lexema después de registrarlo
+     *
+     * @return La cadena que recibió cada hilo para cada lexema en la última ronda
+     */
+    private static String[][] internFromThreads(RegistroLexemas registry, byte[][] vocabulary, int rounds) throws Exception {
+
+        // El tamaño del vocabulario es primo, así que cada orden lo recorre completo
+        String[][] seen = new String[THREADS][vocabulary.length];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?>[] tasks = new Future<?>[THREADS];
+            for(int t = 0; t < THREADS; t++){
+                int thread = t;
+                tasks[t] = threads.submit(() -> {
+                    start.await();
+                    for(int round = 0; round < rounds; round++){
+                        for(int i = 0; i < vocabulary.length; i++){
+                            int word = (i * (2 * thread + 1) + round) % vocabulary.length;
+                            String lexema = registry.intern(vocabulary[word], 0, vocabulary[word].length);
+                            assertNotNull(lexema);
+                            String found = registry.find(lexema);
+                            if(found != null){
+                                assertEquals(lexema, found);
+                            }
+                            seen[thread][word] = lexema;
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for(Future<?> task : tasks){
+                task.get();
+            }
+        } finally {
+            threads.shutdown();
+            threads.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        return seen;
+
+    }
+
+}
@@ -0,0 +1,278 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Habla con un ServidorAnalisis por TCP en la interfaz de loopback: el
+ * encuadre de las solicitudes y respuestas, las respuestas de error y
+ * varios clientes a la vez.
+ */
+
+public class ServidorAnalisisTest {
+
+    private static final String VALID = String.join("\n",
+        "programa p@ ;",
+        "variables",
+        "a& : entero ;",
+        "inicio",
+        "a& = 1 ;",
+        "mientras ( a& < 10 ) hacer a& = a& * 2 ;",
+        "fin"
+    );
+
+    private static final String INVALID = String.join("\n",
+        "programa p@ ;",
+        "variables",
+        "a& : entero ;",
+        "inicio",
+        "a& = \"x\" ;",
+        "fin"
+    );
+
+    private ServidorAnalisis server;
+    private Thread serving;
+    private int port;
+
+    @BeforeEach
+    public void start() throws IOException {
+
+        server = ServidorAnalisis.openTcp(0, new CacheResultados(CacheResultados.DEFAULT_MAX_BYTES, null));
+        String address = server.getAddress();
+        port = Integer.parseInt(address.substring(address.lastIndexOf(':') + 1));
+
+        serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                // El servidor se cerró
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+
+    }
+
+    @AfterEach
+    public void stop() throws InterruptedException {
+        server.close();
+        serving.join(5000);
+    }
+
+    @Test
+    public void requestsOnOneConnectionAreFramedByLength() throws IOException {
+
+        byte[] valid = ProgramasPrueba.tokensFile(VALID);
+        byte[] invalid = ProgramasPrueba.tokensFile(INVALID);
+
+        try(Socket socket = connect()){
+
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            // Varias solicitudes seguidas, con un cuerpo partido en dos
+            // escrituras y un encabezado terminado en \r\n
+            out.write("PING\n".getBytes(StandardCharsets.US_ASCII));
+            out.write(("ANALIZAR " + valid.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(valid, 0, valid.length / 2);
+            out.flush();
+            out.write(valid, valid.length / 2, valid.length - valid.length / 2);
+            out.write(("ANALIZAR " + invalid.length + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(invalid);
+            out.write("ANALIZAR 0\n".getBytes(StandardCharsets.US_ASCII));
+            out.write("ESTADISTICAS\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            assertEquals("OK 0", readHeader(in));
+
+            String validJson = readBody(in, "OK");
+            assertEquals(expectedJson(valid), validJson);
+            assertTrue(validJson.startsWith("{\"exito\":true"), validJson);
+
+            String invalidJson = readBody(in, "OK");
+            assertEquals(expectedJson(invalid), invalidJson);
+            assertTrue(invalidJson.startsWith("{\"exito\":false"), invalidJson);
+
+            // Un archivo vacío no tiene programa, pero el encuadre sigue
+            readBody(in, "OK");
+
+            String statistics = readBody(in, "OK");
+            assertTrue(statistics.startsWith("{\"solicitudes\":5,"), statistics);
+
+        }
+
+    }
+
+    @Test
+    public void malformedTokensGetAnErrorAndTheConnectionStaysOpen() throws IOException {
+
+        byte[] garbage = "esto no es un token\n".getBytes(StandardCharsets.UTF_8);
+
+        try(Socket socket = connect()){
+
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            out.write(("ANALIZAR " + garbage.length + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(garbage);
+            out.write("PING\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            String error = readBody(in, "ERROR");
+            assertTrue(error.contains("mal formada"), error);
+            assertEquals("OK 0", readHeader(in));
+
+        }
+
+    }
+
+    @Test
+    public void unknownRequestsAndBadLengthsCloseTheConnection() throws IOException {
+
+        String[] requests = { "BORRAR todo\n", "ANALIZAR -3\n", "ANALIZAR muchos\n", "ANALIZAR " + (ServidorAnalisis.MAX_REQUEST_BYTES + 1L) + "\n" };
+        String[] messages = { "Solicitud desconocida", "Longitud no válida", "Longitud no válida", "Longitud no válida" };
+
+        for(int i = 0; i < requests.length; i++){
+            try(Socket socket = connect()){
+
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+
+                out.write(requests[i].getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                String error = readBody(in, "ERROR");
+                assertTrue(error.startsWith(messages[i]), error);
+                assertEquals(-1, in.read(), requests[i]);
+
+            }
+        }
+
+    }
+
+    @Test
+    public void clientReportsServerErrors() throws IOException {
+
+        try(ClienteAnalisis client = ClienteAnalisis.connectTcp(port)){
+            IOException error = assertThrows(IOException.class, () -> client.analyze("1 , x\n".getBytes(StandardCharsets.UTF_8)));
+            assertTrue(error.getMessage().contains("mal formada"), error.getMessage());
+            client.ping();
+        }
+
+    }
+
+    @Test
+    public void concurrentClientsGetTheirOwnResults() throws Exception {
+
+        int clients = 8;
+        int requests = 25;
+
+        // Programas distintos, y cada uno se pide desde varios clientes
+        List<byte[]> programs = new ArrayList<byte[]>();
+        List<String> expected = new ArrayList<String>();
+        for(int i = 0; i < 10; i++){
+            String source = i % 3 == 0
+                ? INVALID.replace("\"x\"", "\"x" + i + "\"")
+                : VALID.replace("a& = 1 ;", "a& = " + i + " ;");
+            byte[] program = ProgramasPrueba.tokensFile(source);
+            programs.add(program);
+            expected.add(expectedJson(program));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> tasks = new ArrayList<Future<?>>();
+            for(int c = 0; c < clients; c++){
+                int client = c;
+                tasks.add(threads.submit(() -> {
+                    try(ClienteAnalisis connection = ClienteAnalisis.connectTcp(port)){
+                        start.await();
+                        for(int r = 0; r < requests; r++){
+                            int program = (client * 7 + r) % programs.size();
+                            assertEquals(expected.get(program), connection.analyze(programs.get(program)));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> task : tasks){
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertEquals(clients * requests, server.getRequestCount());
+        CacheResultados cache = server.getCache();
+        assertEquals(clients * requests, cache.getHits() + cache.getMisses());
+        assertTrue(cache.getMisses() >= programs.size(), cache.toJson());
+        assertTrue(cache.getHits() > 0, cache.toJson());
+
+    }
+
+    private Socket connect() throws IOException {
+
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        socket.setSoTimeout(10000);
+        return socket;
+
+    }
+
+    private static String expectedJson(byte[] program) throws IOException {
+        return AnalizadorSemantico.read(program).analyze().toJson();
+    }
+
+    private static String readHeader(InputStream in) throws IOException {
+
+        StringBuilder header = new StringBuilder();
+        int b;
+        while((b = in.read()) != '\n'){
+            if(b < 0){
+                throw new IOException("El servidor cerró la conexión");
+            }
+            header.append((char) b);
+        }
+        return header.toString();
+
+    }
+
+    /**
+     * Lee una respuesta completa y revisa su estado
+     *
+     * @return El cuerpo de la respuesta
+     */
+    private static String readBody(InputStream in, String status) throws IOException {
+
+        String header = readHeader(in);
+        assertTrue(header.startsWith(status + " "), header);
+
+        int length = Integer.parseInt(header.substring(status.length() + 1));
+        byte[] body = in.readNBytes(length);
+        assertEquals(length, body.length);
+        return new String(body, StandardCharsets.UTF_8);
+
+    }
+
+}
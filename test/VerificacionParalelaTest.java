@@ -0,0 +1,63 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Compara la revisión del cuerpo en paralelo con la secuencial.
+ */
+
+public class VerificacionParalelaTest {
+
+    @Test
+    public void cutsInsideNestedStatementsDoNotDuplicateDiagnostics() {
+
+        // Cada repetir tiene un punto y coma dentro de su bloque, donde
+        // puede caer un corte, y un error en la condición de su "hasta"
+        List<Token> program = new ArrayList<Token>();
+        int line = 1;
+        program.add(new Token(Sintaxis.PROGRAMA, "programa", -1, line));
+        program.add(new Token(Sintaxis.GENERAL_ID, "p@", -2, line));
+        program.add(new Token(Sintaxis.PUNTOCOMA, ";", -1, line++));
+        program.add(new Token(Sintaxis.VAR, "variables", -1, line++));
+        program.add(new Token(Sintaxis.INT_ID, "e0&", -2, line));
+        program.add(new Token(-77, ":", -1, line));
+        program.add(new Token(Sintaxis.INT_PR, "entero", -1, line));
+        program.add(new Token(Sintaxis.PUNTOCOMA, ";", -1, line++));
+        program.add(new Token(Sintaxis.INICIO, "inicio", -1, line++));
+        for(int i = 0; i < 3000; i++, line++){
+            program.add(new Token(Sintaxis.REPETIR, "repetir", -1, line));
+            program.add(new Token(Sintaxis.INICIO, "inicio", -1, line));
+            program.add(new Token(Sintaxis.INT_ID, "e0&", -2, line));
+            program.add(new Token(Sintaxis.ASIGN_OP, "=", -1, line));
+            program.add(new Token(Sintaxis.INT_CONST, "1", -1, line));
+            program.add(new Token(Sintaxis.PUNTOCOMA, ";", -1, line));
+            program.add(new Token(Sintaxis.FIN, "fin", -1, line));
+            program.add(new Token(Sintaxis.HASTA, "hasta", -1, line));
+            program.add(new Token(Sintaxis.PAR_ABRIR, "(", -1, line));
+            program.add(new Token(Sintaxis.INT_ID, "e0&", -2, line));
+            program.add(new Token(Sintaxis.MAYOR_OP, ">", -1, line));
+            program.add(new Token(Sintaxis.STRING_CONST, "\"x\"", -1, line));
+            program.add(new Token(Sintaxis.PAR_CERRAR, ")", -1, line));
+            program.add(new Token(Sintaxis.PUNTOCOMA, ";", -1, line));
+        }
+        program.add(new Token(Sintaxis.FIN, "fin", -1, line));
+
+        String expected = new AnalizadorSemantico(program).analyze().getDiagnostics().toText();
+
+        for(int parallelism : new int[]{ 1, 4, 16 }){
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                String actual = new AnalizadorSemantico(program).analyze(pool).getDiagnostics().toText();
+                assertEquals(expected, actual, "paralelismo " + parallelism);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+    }
+
+}